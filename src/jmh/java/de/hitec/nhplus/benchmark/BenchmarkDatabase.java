@@ -0,0 +1,101 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.DaoFactory;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.User;
+import de.hitec.nhplus.utils.DataGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Temporary database of a benchmark, seeded once per fork with the given number of treatments, a patient per 100 and
+ * a caregiver per 1,000 treatments and 100 users. The data is generated by <code>DataGenerator</code> from a fixed
+ * seed, so every run measures the same rows. The database in the <code>db</code> folder is not touched.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    /**
+     * Number of seeded users, named <code>benutzer0</code> to <code>benutzer99</code>.
+     */
+    public static final int USERS = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int treatments;
+
+    public DaoFactory factory;
+    public DataGenerator generator;
+    public DataGenerator.Owners owners;
+    public long[] pids;
+    public long[] cids;
+    public long[] uids;
+    public long[] tids;
+
+    private Path file;
+
+    /**
+     * Creates the temporary database and inserts the generated rows.
+     */
+    @Setup(Level.Trial)
+    public void seed() throws IOException, SQLException {
+        this.file = Files.createTempFile("nhplus-benchmark-", ".db");
+        ConnectionBuilder.setDatabasePath(this.file.toString());
+        this.factory = DaoFactory.getDaoFactory();
+        this.factory.clearCaches();
+        this.generator = new DataGenerator(DataGenerator.DEFAULT_SEED, DataGenerator.DEFAULT_LAST_DAY);
+        this.factory.inTransaction(daos -> {
+            List<Patient> patients = this.generator.generatePatients(Math.max(10, this.treatments / 100));
+            this.pids = daos.createPatientDAO().createAll(patients);
+            this.cids = daos.createCareGiverDAO().createAll(
+                    this.generator.generateCareGivers(Math.max(5, this.treatments / 1000)));
+            this.owners = DataGenerator.owners(patients, this.pids, this.cids);
+            this.uids = daos.createUserDAO().createAll(generateUsers());
+            this.tids = daos.createTreatmentDao().createAll(
+                    this.generator.generateTreatments(this.treatments, this.owners));
+            return null;
+        });
+    }
+
+    /**
+     * Closes the pool and deletes the temporary database.
+     */
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        ConnectionBuilder.closeConnection();
+        Files.deleteIfExists(this.file);
+        Files.deleteIfExists(Path.of(this.file + "-wal"));
+        Files.deleteIfExists(Path.of(this.file + "-shm"));
+    }
+
+    /**
+     * Returns a random key of the given keys.
+     *
+     * @param random Random generator of the calling thread.
+     * @param keys   The keys.
+     * @return One of the keys.
+     */
+    public static long pick(SplittableRandom random, long[] keys) {
+        return keys[random.nextInt(keys.length)];
+    }
+
+    private static List<User> generateUsers() {
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("benutzer" + i, "hash" + i, "Vorname" + i, "Nachname" + i, i == 0, true));
+        }
+        return users;
+    }
+}
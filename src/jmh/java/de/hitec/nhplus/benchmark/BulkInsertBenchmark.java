@@ -0,0 +1,82 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Treatment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts 100,000 generated treatments once per iteration, one by one with <code>create()</code>, which commits every
+ * row on its own, and with <code>createAll()</code>, which sends them in JDBC batches in one transaction. The inserted
+ * rows are deleted after every iteration.
+ * <p>
+ * The size of the seeded database hardly matters here, run with
+ * <code>mvn -Pjmh test-compile exec:exec -Djmh.args="BulkInsertBenchmark -p treatments=10000"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private BenchmarkDatabase database;
+    private TreatmentDao dao;
+    private List<Treatment> treatments;
+    private long lastSeededTid;
+
+    @Setup(Level.Trial)
+    public void createDao(BenchmarkDatabase database) {
+        this.database = database;
+        this.dao = database.factory.createTreatmentDao();
+        this.lastSeededTid = database.tids[database.tids.length - 1];
+    }
+
+    @Setup(Level.Iteration)
+    public void generateTreatments() {
+        this.treatments = this.database.generator.generateTreatments(ROWS, this.database.owners);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteInserted() throws SQLException {
+        ConnectionBuilder.getPool().inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM treatment WHERE tid > ?")) {
+                statement.setLong(1, this.lastSeededTid);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Benchmark
+    public long createEach() throws SQLException {
+        long lastTid = 0;
+        for (Treatment treatment : this.treatments) {
+            lastTid = this.dao.create(treatment).getTid();
+        }
+        return lastTid;
+    }
+
+    @Benchmark
+    public long[] createAll() throws SQLException {
+        return this.dao.createAll(this.treatments);
+    }
+}
@@ -0,0 +1,211 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.Dao;
+import de.hitec.nhplus.datastorage.DaoFactory;
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the operations of the <code>Dao</code> interface for every DAO, on a database with 10,000, 100,000 and
+ * 1,000,000 treatments. The sample mode reports the throughput and the latency percentiles of each operation. Created
+ * objects are deleted after every iteration, so the size of the tables stays about the same. The largest size needs
+ * about 2 GB of heap for <code>readAll()</code>.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="DaoBenchmark -p treatments=10000"</code>, add
+ * <code>-rf csv -rff file.csv</code> to keep the results for a comparison before and after a change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DaoBenchmark {
+
+    /**
+     * Number of objects per call of <code>createAll()</code> and <code>updateAll()</code>.
+     */
+    private static final int BULK_SIZE = 100;
+
+    @Param({"TreatmentDao", "PatientDao", "CareGiverDao", "UserDao"})
+    public String dao;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ArrayDeque<Long> created = new ArrayDeque<>();
+    private Subject<?> subject;
+    private int nextUserNumber;
+
+    /**
+     * A DAO with the keys of its seeded objects and a generator of new objects.
+     */
+    private static final class Subject<T> {
+        private final Dao<T> dao;
+        private final long[] keys;
+        private final ToLongFunction<T> key;
+        private final Supplier<T> generator;
+
+        private Subject(Dao<T> dao, long[] keys, ToLongFunction<T> key, Supplier<T> generator) {
+            this.dao = dao;
+            this.keys = keys;
+            this.key = key;
+            this.generator = generator;
+        }
+
+        private T read(SplittableRandom random) throws SQLException {
+            return this.dao.read(BenchmarkDatabase.pick(random, this.keys));
+        }
+
+        private long create() throws SQLException {
+            return this.key.applyAsLong(this.dao.create(this.generator.get()));
+        }
+
+        private long[] createAll() throws SQLException {
+            List<T> objects = new ArrayList<>(BULK_SIZE);
+            for (int i = 0; i < BULK_SIZE; i++) {
+                objects.add(this.generator.get());
+            }
+            return this.dao.createAll(objects);
+        }
+
+        private T update(SplittableRandom random) throws SQLException {
+            T object = read(random);
+            if (object != null) {
+                this.dao.update(object);
+            }
+            return object;
+        }
+
+        private List<T> updateAll(SplittableRandom random) throws SQLException {
+            List<T> objects = new ArrayList<>(BULK_SIZE);
+            for (int i = 0; i < BULK_SIZE; i++) {
+                T object = read(random);
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+            this.dao.updateAll(objects);
+            return objects;
+        }
+    }
+
+    /**
+     * An object created before each call of <code>deleteById()</code>, so only the deletion is measured.
+     */
+    @State(Scope.Thread)
+    public static class CreatedObject {
+        long key;
+
+        @Setup(Level.Invocation)
+        public void create(DaoBenchmark benchmark) throws SQLException {
+            this.key = benchmark.subject.create();
+        }
+    }
+
+    /**
+     * Picks the DAO of the parameter <code>dao</code>.
+     */
+    @Setup(Level.Trial)
+    public void pickDao(BenchmarkDatabase database) {
+        DaoFactory factory = database.factory;
+        this.subject = switch (this.dao) {
+            case "TreatmentDao" -> new Subject<>(factory.createTreatmentDao(), database.tids, Treatment::getTid,
+                    () -> database.generator.generateTreatment(database.owners));
+            case "PatientDao" -> new Subject<>(factory.createPatientDAO(), database.pids, Patient::getPid,
+                    database.generator::generatePatient);
+            case "CareGiverDao" -> new Subject<>(factory.createCareGiverDAO(), database.cids, CareGiver::getCid,
+                    database.generator::generateCareGiver);
+            case "UserDao" -> new Subject<>(factory.createUserDAO(), database.uids, User::getUid, this::generateUser);
+            default -> throw new IllegalArgumentException("Unbekanntes DAO: " + this.dao);
+        };
+    }
+
+    /**
+     * Deletes the objects created in the last iteration.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteCreated() throws SQLException {
+        Long key;
+        while ((key = this.created.poll()) != null) {
+            this.subject.dao.deleteById(key);
+        }
+    }
+
+    @Benchmark
+    public Object read() throws SQLException {
+        return this.subject.read(this.random);
+    }
+
+    @Benchmark
+    public Object readAll() throws SQLException {
+        return this.subject.dao.readAll();
+    }
+
+    @Benchmark
+    public long stream() throws SQLException {
+        try (Stream<?> stream = this.subject.dao.stream()) {
+            return stream.count();
+        }
+    }
+
+    @Benchmark
+    public long create() throws SQLException {
+        long key = this.subject.create();
+        this.created.add(key);
+        return key;
+    }
+
+    @Benchmark
+    public long[] createAll() throws SQLException {
+        long[] keys = this.subject.createAll();
+        for (long key : keys) {
+            this.created.add(key);
+        }
+        return keys;
+    }
+
+    @Benchmark
+    public Object update() throws SQLException {
+        return this.subject.update(this.random);
+    }
+
+    @Benchmark
+    public Object updateAll() throws SQLException {
+        return this.subject.updateAll(this.random);
+    }
+
+    @Benchmark
+    public void deleteById(CreatedObject object) throws SQLException {
+        this.subject.dao.deleteById(object.key);
+    }
+
+    private User generateUser() {
+        // Names of created users must not collide with the seeded ones.
+        int number = this.nextUserNumber++;
+        return new User("neu" + number, "hash", "Vorname", "Nachname", false, true);
+    }
+}
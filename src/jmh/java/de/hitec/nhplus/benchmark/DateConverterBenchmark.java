@@ -0,0 +1,127 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.utils.DateConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the <code>DateConverter</code> with its former implementation, which built a
+ * <code>DateTimeFormatter</code> on every call, and with a shared formatter. Every call converts one million dates or
+ * times, so the score is the time per million conversions. No database is needed.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="DateConverterBenchmark"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateConverterBenchmark {
+
+    private static final int CONVERSIONS = 1_000_000;
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+    private static final String TIME_FORMAT = "HH:mm";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_FORMAT);
+
+    private String[] dateTexts;
+    private String[] timeTexts;
+    private LocalDate[] dates;
+    private LocalTime[] times;
+
+    @Setup(Level.Trial)
+    public void generateValues() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate first = LocalDate.of(1930, 1, 1);
+        this.dateTexts = new String[CONVERSIONS];
+        this.timeTexts = new String[CONVERSIONS];
+        this.dates = new LocalDate[CONVERSIONS];
+        this.times = new LocalTime[CONVERSIONS];
+        for (int i = 0; i < CONVERSIONS; i++) {
+            this.dates[i] = first.plusDays(random.nextInt(35_000));
+            this.times[i] = LocalTime.of(random.nextInt(24), random.nextInt(60));
+            this.dateTexts[i] = this.dates[i].format(DATE_FORMATTER);
+            this.timeTexts[i] = this.times[i].format(TIME_FORMATTER);
+        }
+    }
+
+    @Benchmark
+    public void parseDateFormatterPerCall(Blackhole blackhole) {
+        for (String text : this.dateTexts) {
+            blackhole.consume(LocalDate.parse(text, DateTimeFormatter.ofPattern(DATE_FORMAT)));
+        }
+    }
+
+    @Benchmark
+    public void parseDateSharedFormatter(Blackhole blackhole) {
+        for (String text : this.dateTexts) {
+            blackhole.consume(LocalDate.parse(text, DATE_FORMATTER));
+        }
+    }
+
+    @Benchmark
+    public void parseDateConverter(Blackhole blackhole) {
+        for (String text : this.dateTexts) {
+            blackhole.consume(DateConverter.convertStringToLocalDate(text));
+        }
+    }
+
+    @Benchmark
+    public void parseTimeFormatterPerCall(Blackhole blackhole) {
+        for (String text : this.timeTexts) {
+            blackhole.consume(LocalTime.parse(text, DateTimeFormatter.ofPattern(TIME_FORMAT)));
+        }
+    }
+
+    @Benchmark
+    public void parseTimeConverter(Blackhole blackhole) {
+        for (String text : this.timeTexts) {
+            blackhole.consume(DateConverter.convertStringToLocalTime(text));
+        }
+    }
+
+    @Benchmark
+    public void formatDateFormatterPerCall(Blackhole blackhole) {
+        for (LocalDate date : this.dates) {
+            blackhole.consume(date.format(DateTimeFormatter.ofPattern(DATE_FORMAT)));
+        }
+    }
+
+    @Benchmark
+    public void formatDateConverter(Blackhole blackhole) {
+        for (LocalDate date : this.dates) {
+            blackhole.consume(DateConverter.convertLocalDateToString(date));
+        }
+    }
+
+    @Benchmark
+    public void formatTimeFormatterPerCall(Blackhole blackhole) {
+        for (LocalTime time : this.times) {
+            blackhole.consume(time.format(DateTimeFormatter.ofPattern(TIME_FORMAT)));
+        }
+    }
+
+    @Benchmark
+    public void formatTimeConverter(Blackhole blackhole) {
+        for (LocalTime time : this.times) {
+            blackhole.consume(DateConverter.convertLocalTimeToString(time));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.utils.DataGenerator;
+import de.hitec.nhplus.utils.DateConverter;
+import de.hitec.nhplus.utils.EntityIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookup of a loaded patient in the treatment view by the name shown in the combo box and by its ID: the
+ * former scan of the list, which formats the name of every patient, against the <code>EntityIndex</code>. A
+ * <code>HashMap</code> with boxed keys shows the cost of boxing, which the <code>LongObjectMap</code> of the index
+ * avoids. No database is needed.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="PatientIndexBenchmark"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientIndexBenchmark {
+
+    /**
+     * Number of looked up names and IDs, a power of two to cycle through them with a mask.
+     */
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10000"})
+    public int patients;
+
+    private List<Patient> list;
+    private EntityIndex<Patient> index;
+    private Map<Long, Patient> boxed;
+    private String[] names;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generatePatients() {
+        DataGenerator generator = new DataGenerator(DataGenerator.DEFAULT_SEED, DataGenerator.DEFAULT_LAST_DAY);
+        this.list = new ArrayList<>(this.patients);
+        long pid = 1;
+        for (Patient patient : generator.generatePatients(this.patients)) {
+            this.list.add(new Patient(pid++, patient.getFirstName(), patient.getSurname(),
+                    DateConverter.convertStringToLocalDate(patient.getDateOfBirth()), patient.getCareLevel(),
+                    patient.getRoomNumber()));
+        }
+        this.index = new EntityIndex<>(Patient::getPid, PatientIndexBenchmark::formatPatientDisplayName);
+        this.index.addAll(this.list);
+        this.boxed = new HashMap<>();
+        for (Patient patient : this.list) {
+            this.boxed.put(patient.getPid(), patient);
+        }
+        SplittableRandom random = new SplittableRandom(DataGenerator.DEFAULT_SEED);
+        this.names = new String[LOOKUPS];
+        this.ids = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            Patient patient = this.list.get(random.nextInt(this.patients));
+            this.names[i] = formatPatientDisplayName(patient);
+            this.ids[i] = patient.getPid();
+        }
+    }
+
+    @Benchmark
+    public Patient scanByName() {
+        String name = this.names[this.next++ & (LOOKUPS - 1)];
+        for (Patient patient : this.list) {
+            if (name.equals(formatPatientDisplayName(patient))) {
+                return patient;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Patient indexByName() {
+        return this.index.getByName(this.names[this.next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Patient scanById() {
+        long id = this.ids[this.next++ & (LOOKUPS - 1)];
+        for (Patient patient : this.list) {
+            if (patient.getPid() == id) {
+                return patient;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Patient indexById() {
+        return this.index.getById(this.ids[this.next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Patient hashMapById() {
+        return this.boxed.get(this.ids[this.next++ & (LOOKUPS - 1)]);
+    }
+
+    /**
+     * Formats the name of a patient like the combo box of the treatment view.
+     */
+    private static String formatPatientDisplayName(Patient patient) {
+        return String.format("%s, %s", patient.getSurname(), patient.getFirstName());
+    }
+}
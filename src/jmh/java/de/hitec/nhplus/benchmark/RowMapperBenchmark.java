@@ -0,0 +1,138 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.ConnectionPool;
+import de.hitec.nhplus.datastorage.RowMapper;
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Treatment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the decoding of all rows of the treatment table: by column name on every row, as <code>UserDao</code> did
+ * before, by hand-written column indexes, and by a <code>RowMapper</code>, which resolves the names once per query.
+ * The DAO variants add the <code>readAll()</code> and <code>stream()</code> of <code>TreatmentDao</code>, which map
+ * through the same kind of mapper. Every call reads the whole table.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="RowMapperBenchmark -p treatments=500000"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final String SQL = "SELECT tid, pid, caregiver_id, treatment_day, begin_minute, end_minute, "
+            + "description, remark FROM treatment";
+
+    private static final RowMapper<Treatment> MAPPER = new RowMapper<>((result, columns) -> new Treatment(
+            result.getLong(columns[0]),
+            result.getLong(columns[1]),
+            result.getLong(columns[2]),
+            LocalDate.ofEpochDay(result.getLong(columns[3])),
+            toLocalTime(result.getInt(columns[4])),
+            toLocalTime(result.getInt(columns[5])),
+            result.getString(columns[6]),
+            result.getString(columns[7])),
+            "tid", "pid", "caregiver_id", "treatment_day", "begin_minute", "end_minute", "description", "remark");
+
+    private ConnectionPool pool;
+    private TreatmentDao dao;
+
+    @Setup(Level.Trial)
+    public void createDao(BenchmarkDatabase database) {
+        this.pool = ConnectionBuilder.getPool();
+        this.dao = database.factory.createTreatmentDao();
+    }
+
+    @Benchmark
+    public List<Treatment> byName() throws SQLException {
+        return query(result -> {
+            List<Treatment> treatments = new ArrayList<>();
+            while (result.next()) {
+                treatments.add(new Treatment(result.getLong("tid"), result.getLong("pid"),
+                        result.getLong("caregiver_id"), LocalDate.ofEpochDay(result.getLong("treatment_day")),
+                        toLocalTime(result.getInt("begin_minute")), toLocalTime(result.getInt("end_minute")),
+                        result.getString("description"), result.getString("remark")));
+            }
+            return treatments;
+        });
+    }
+
+    @Benchmark
+    public List<Treatment> byIndex() throws SQLException {
+        return query(result -> {
+            List<Treatment> treatments = new ArrayList<>();
+            while (result.next()) {
+                treatments.add(new Treatment(result.getLong(1), result.getLong(2), result.getLong(3),
+                        LocalDate.ofEpochDay(result.getLong(4)), toLocalTime(result.getInt(5)),
+                        toLocalTime(result.getInt(6)), result.getString(7), result.getString(8)));
+            }
+            return treatments;
+        });
+    }
+
+    @Benchmark
+    public List<Treatment> rowMapper() throws SQLException {
+        return query(MAPPER::mapAll);
+    }
+
+    @Benchmark
+    public List<Treatment> daoReadAll() throws SQLException {
+        return this.dao.readAll();
+    }
+
+    @Benchmark
+    public long daoStream() throws SQLException {
+        try (Stream<Treatment> treatments = this.dao.stream()) {
+            return treatments.count();
+        }
+    }
+
+    /**
+     * Prepares the query of all treatments, executes it and decodes its rows with the given function.
+     */
+    private List<Treatment> query(Decode decode) throws SQLException {
+        Connection connection = this.pool.acquire(false);
+        try (PreparedStatement statement = connection.prepareStatement(SQL);
+             ResultSet result = statement.executeQuery()) {
+            return decode.apply(result);
+        } finally {
+            this.pool.release(connection);
+        }
+    }
+
+    private static LocalTime toLocalTime(int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * Decodes all rows of a <code>ResultSet</code>.
+     */
+    @FunctionalInterface
+    private interface Decode {
+        List<Treatment> apply(ResultSet result) throws SQLException;
+    }
+}
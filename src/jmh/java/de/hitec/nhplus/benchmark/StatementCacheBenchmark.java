@@ -0,0 +1,109 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.ConnectionPool;
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Treatment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the statement cache of the DAOs with preparing a new statement on every call, as the DAOs did before, for
+ * <code>TreatmentDao.read()</code> and <code>readTreatmentsByPid()</code>. The uncached variants run the same SQL on a
+ * leased connection and decode the same columns, so the difference is the cost of preparing and closing the statement.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="StatementCacheBenchmark -p treatments=100000"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    private static final String COLUMNS =
+            "tid, pid, caregiver_id, treatment_day, begin_minute, end_minute, description, remark";
+    private static final String READ_SQL = "SELECT " + COLUMNS + " FROM treatment WHERE tid = ?";
+    private static final String READ_BY_PID_SQL = "SELECT " + COLUMNS + " FROM treatment WHERE pid = ?";
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private ConnectionPool pool;
+    private TreatmentDao dao;
+    private long[] tids;
+    private long[] pids;
+
+    @Setup(Level.Trial)
+    public void createDao(BenchmarkDatabase database) {
+        this.pool = ConnectionBuilder.getPool();
+        this.dao = database.factory.createTreatmentDao();
+        this.tids = database.tids;
+        this.pids = database.pids;
+    }
+
+    @Benchmark
+    public Treatment readCached() throws SQLException {
+        return this.dao.read(BenchmarkDatabase.pick(this.random, this.tids));
+    }
+
+    @Benchmark
+    public Treatment readPreparedPerCall() throws SQLException {
+        List<Treatment> treatments = queryPreparedPerCall(READ_SQL, BenchmarkDatabase.pick(this.random, this.tids));
+        return treatments.isEmpty() ? null : treatments.get(0);
+    }
+
+    @Benchmark
+    public List<Treatment> readTreatmentsByPidCached() throws SQLException {
+        return this.dao.readTreatmentsByPid(BenchmarkDatabase.pick(this.random, this.pids));
+    }
+
+    @Benchmark
+    public List<Treatment> readTreatmentsByPidPreparedPerCall() throws SQLException {
+        return queryPreparedPerCall(READ_BY_PID_SQL, BenchmarkDatabase.pick(this.random, this.pids));
+    }
+
+    /**
+     * Prepares the query, executes it with the given key and closes the statement again.
+     */
+    private List<Treatment> queryPreparedPerCall(String sql, long key) throws SQLException {
+        Connection connection = this.pool.acquire(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, key);
+            try (ResultSet result = statement.executeQuery()) {
+                List<Treatment> treatments = new ArrayList<>();
+                while (result.next()) {
+                    treatments.add(new Treatment(result.getLong(1), result.getLong(2), result.getLong(3),
+                            LocalDate.ofEpochDay(result.getLong(4)), toLocalTime(result.getInt(5)),
+                            toLocalTime(result.getInt(6)), result.getString(7), result.getString(8)));
+                }
+                return treatments;
+            }
+        } finally {
+            this.pool.release(connection);
+        }
+    }
+
+    private static LocalTime toLocalTime(int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+}
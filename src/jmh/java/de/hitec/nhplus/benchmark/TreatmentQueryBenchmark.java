@@ -0,0 +1,135 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.utils.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the queries of <code>TreatmentDao</code>, which are not part of the <code>Dao</code> interface, on a
+ * database with 10,000, 100,000 and 1,000,000 treatments.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="TreatmentQueryBenchmark"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TreatmentQueryBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Number of patients per call of <code>readByPids()</code>.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Words of the generated remarks, which the full-text search looks for.
+     */
+    private static final String[] SEARCH_WORDS = {"Patient", "Patientin", "Schmerzen", "gewendet", "Blutdruck",
+            "Wunde", "Tochter", "Rollstuhl", "Park", "Dusche", "Iberogast", "Lymphdrainage", "Appetit", "Arzt"};
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private TreatmentDao dao;
+    private long[] pids;
+    private long[] cids;
+    private int treatments;
+    private LocalDate lastDay;
+
+    @Setup(Level.Trial)
+    public void createDao(BenchmarkDatabase database) {
+        this.dao = database.factory.createTreatmentDao();
+        this.pids = database.pids;
+        this.cids = database.cids;
+        this.treatments = database.treatments;
+        this.lastDay = database.generator.getLastDay();
+    }
+
+    @Benchmark
+    public List<Treatment> readTreatmentsByPid() throws SQLException {
+        return this.dao.readTreatmentsByPid(pickPid());
+    }
+
+    @Benchmark
+    public long streamByPid() throws SQLException {
+        try (Stream<Treatment> stream = this.dao.streamByPid(pickPid())) {
+            return stream.count();
+        }
+    }
+
+    @Benchmark
+    public Object readPage() throws SQLException {
+        return this.dao.readPage(this.random.nextLong(this.treatments), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object readPageByPid() throws SQLException {
+        return this.dao.readPageByPid(pickPid(), pickDay(), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object readRowPage() throws SQLException {
+        return this.dao.readRowPage(this.random.nextLong(this.treatments), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object readRowPageByPid() throws SQLException {
+        return this.dao.readRowPageByPid(pickPid(), pickDay(), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object search() throws SQLException {
+        return this.dao.search(SEARCH_WORDS[this.random.nextInt(SEARCH_WORDS.length)], PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object readByDateRange() throws SQLException {
+        LocalDate from = pickDay();
+        return this.dao.readByDateRange(from, from.plusDays(30));
+    }
+
+    @Benchmark
+    public Object readByCaregiverAndRange() throws SQLException {
+        LocalDate from = pickDay();
+        return this.dao.readByCaregiverAndRange(BenchmarkDatabase.pick(this.random, this.cids), from,
+                from.plusDays(30));
+    }
+
+    @Benchmark
+    public Object readByPids() throws SQLException {
+        List<Long> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(pickPid());
+        }
+        return this.dao.readByPids(batch);
+    }
+
+    private long pickPid() {
+        return BenchmarkDatabase.pick(this.random, this.pids);
+    }
+
+    private LocalDate pickDay() {
+        return this.lastDay.minusDays(this.random.nextInt(DataGenerator.YEARS * 365));
+    }
+}
@@ -0,0 +1,62 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.UserDao;
+import de.hitec.nhplus.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the queries of <code>UserDao</code>, which are not part of the <code>Dao</code> interface, on the
+ * seeded users of the <code>BenchmarkDatabase</code>.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec -Djmh.args="UserQueryBenchmark -p treatments=10000"</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class UserQueryBenchmark {
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private UserDao dao;
+
+    @Setup(Level.Trial)
+    public void createDao(BenchmarkDatabase database) {
+        this.dao = database.factory.createUserDAO();
+    }
+
+    @Benchmark
+    public User findByUsername() throws SQLException {
+        return this.dao.findByUsername(pickUsername());
+    }
+
+    @Benchmark
+    public boolean usernameExists() throws SQLException {
+        return this.dao.usernameExists(pickUsername());
+    }
+
+    @Benchmark
+    public List<User> readAllActive() throws SQLException {
+        return this.dao.readAllActive();
+    }
+
+    private String pickUsername() {
+        return "benutzer" + this.random.nextInt(BenchmarkDatabase.USERS);
+    }
+}
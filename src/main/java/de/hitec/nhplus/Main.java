@@ -1,10 +1,13 @@
 package de.hitec.nhplus;
 
 import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.DaoFactory;
+import de.hitec.nhplus.utils.ViewLoadEvent;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -19,16 +22,28 @@ public class Main extends Application {
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
+        DaoFactory.getDaoFactory().startMutationQueue(Platform::runLater, Main::showSaveError);
         loginWindow();
     }
 
+    /**
+     * Shows an error, if a change could not be saved in the background.
+     */
+    private static void showSaveError(Throwable exception) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Fehler");
+        alert.setHeaderText("Änderung konnte nicht gespeichert werden!");
+        alert.setContentText(exception.getMessage());
+        alert.show();
+    }
+
     /**
      * Shows the login window
      */
     public void loginWindow() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/LoginView.fxml"));
-            VBox pane = loader.load();
+            VBox pane = ViewLoadEvent.load(loader);
             Scene scene = new Scene(pane);
 
             this.primaryStage.setTitle("NHPlus Login");
@@ -38,6 +53,7 @@ public class Main extends Application {
             this.primaryStage.show();
 
             this.primaryStage.setOnCloseRequest(event -> {
+                DaoFactory.getDaoFactory().shutdownMutationQueue();
                 ConnectionBuilder.closeConnection();
                 Platform.exit();
                 System.exit(0);
@@ -4,6 +4,7 @@ import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.UserDao;
 import de.hitec.nhplus.model.User;
 import de.hitec.nhplus.service.Session;
+import de.hitec.nhplus.utils.BackgroundTaskEvent;
 import de.hitec.nhplus.utils.PasswordUtil;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -207,7 +208,7 @@ public class AdminPanelController implements Initializable {
             }
         };
 
-        Thread checkThread = new Thread(checkTask);
+        Thread checkThread = new Thread(BackgroundTaskEvent.wrap("AdminPanelController.checkUsername", checkTask));
         checkThread.setDaemon(true);
         checkThread.start();
     }
@@ -252,7 +253,7 @@ public class AdminPanelController implements Initializable {
             }
         };
 
-        Thread loadThread = new Thread(loadTask);
+        Thread loadThread = new Thread(BackgroundTaskEvent.wrap("AdminPanelController.loadUsers", loadTask));
         loadThread.setDaemon(true);
         loadThread.start();
     }
@@ -285,16 +286,17 @@ public class AdminPanelController implements Initializable {
         Task<Boolean> createTask = new Task<Boolean>() {
             @Override
             protected Boolean call() throws Exception {
-                // Check username availability again
-                if (userDao.usernameExists(username)) {
-                    return false;
-                }
-
-                // Create user
                 String passwordHash = PasswordUtil.hashPassword(password);
                 User newUser = new User(username, passwordHash, firstName, lastName, isAdmin, true);
-                userDao.create(newUser);
-                return true;
+
+                // Check username availability again, in the same transaction as the insert
+                return DaoFactory.getDaoFactory().inTransaction(daoFactory -> {
+                    if (userDao.usernameExists(username)) {
+                        return false;
+                    }
+                    userDao.create(newUser);
+                    return true;
+                });
             }
 
             @Override
@@ -323,7 +325,7 @@ public class AdminPanelController implements Initializable {
             }
         };
 
-        Thread createThread = new Thread(createTask);
+        Thread createThread = new Thread(BackgroundTaskEvent.wrap("AdminPanelController.createUser", createTask));
         createThread.setDaemon(true);
         createThread.start();
     }
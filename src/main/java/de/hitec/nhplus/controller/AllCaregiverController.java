@@ -4,13 +4,17 @@ import de.hitec.nhplus.datastorage.CareGiverDao;
 import de.hitec.nhplus.datastorage.DaoFactory;
 
 import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.utils.BackgroundTaskEvent;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
@@ -18,6 +22,8 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * The <code>AllCareGiverController</code> contains the entire logic of the AllCaregiver view. It determines which data is displayed and how to react to events.
@@ -55,6 +61,7 @@ public class AllCaregiverController {
 
     private final ObservableList<CareGiver> careGivers = FXCollections.observableArrayList();
     private CareGiverDao dao;
+    private PendingWrites writes;
 
     /**
      * When <code>initialize()</code> gets called, all fields are already initialized. For example from the FXMLLoader
@@ -63,7 +70,9 @@ public class AllCaregiverController {
      */
 
     public void initialize() {
-        this.readAllAndShowInTableView();
+        this.dao = DaoFactory.getDaoFactory().createCareGiverDAO();
+        this.writes = new PendingWrites(this::refresh);
+        this.refresh();
 
         this.columnId.setCellValueFactory(new PropertyValueFactory<>("cid"));
 
@@ -109,38 +118,82 @@ public class AllCaregiverController {
     /**
      * This method handles the events fired by the button to add a CareGiver. It collects the data from the
      * <code>TextField</code>s, creates an object of class <code>CareGiver</code> of it and passes the object to
-     * {@link CareGiverDao} to persist the data.
+     * {@link CareGiverDao} to persist the data. The persisted CareGiver is added to the table without reloading it.
      */
     @FXML
     public void handleAdd() {
         String surname = this.textFieldSurname.getText();
         String firstName = this.textFieldFirstName.getText();
         String telephoneNumber = this.textFieldTelephoneNumber.getText();
-        try {
-            this.dao.create(new CareGiver(firstName, surname, telephoneNumber));
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
-        readAllAndShowInTableView();
+        this.writes.track(DaoFactory.getDaoFactory().getMutationQueue()
+                        .create(this.dao, new CareGiver(firstName, surname, telephoneNumber)))
+                .thenAccept(this.careGivers::add);
         clearTextfields();
     }
 
     /**
-     * This method handles events fired by the button to delete CareGivers. It calls {@link CareGiverDao} to delete the
-     * CareGiver from the database and removes the object from the list, which is the data source of the
+     * This method handles events fired by the button to delete CareGivers. Deleting a CareGiver deletes their
+     * treatments as well, so the treatments of the CareGiver are read in the background first, in one batch with those
+     * of the other shown CareGivers, and the user confirms the deletion, if there are any. Then {@link CareGiverDao}
+     * deletes the CareGiver from the database and the object is removed from the list, which is the data source of the
      * <code>TableView</code>.
      */
     @FXML
     public void handleDelete() {
         CareGiver selectedItem = this.tableView.getSelectionModel().getSelectedItem();
-        if (selectedItem != null) {
-            try {
-                DaoFactory.getDaoFactory().createCareGiverDAO().deleteById(selectedItem.getCid());
-                this.tableView.getItems().remove(selectedItem);
-            } catch (SQLException exception) {
-                exception.printStackTrace();
-            }
+        if (selectedItem == null) {
+            return;
         }
+
+        Task<Integer> readTask = new Task<Integer>() {
+            @Override
+            protected Integer call() {
+                // Only this task accesses the treatments of the CareGiver.
+                return selectedItem.getTreatments().size();
+            }
+
+            @Override
+            protected void succeeded() {
+                if (getValue() == 0 || confirmDelete(String.format(
+                        "Mit der Pflegekraft werden %d Behandlungen gelöscht.", getValue()))) {
+                    delete(selectedItem);
+                }
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+                if (confirmDelete("Die Behandlungen der Pflegekraft konnten nicht gelesen werden. "
+                        + "Sie werden mit der Pflegekraft gelöscht.")) {
+                    delete(selectedItem);
+                }
+            }
+        };
+
+        Thread readThread = new Thread(BackgroundTaskEvent.wrap("AllCaregiverController.handleDelete", readTask));
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Asks the user to confirm the deletion of the selected CareGiver.
+     *
+     * @param message Describes what is deleted with the CareGiver.
+     * @return True, if the user confirmed.
+     */
+    private boolean confirmDelete(String message) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, message);
+        alert.setTitle("Pflegekraft löschen");
+        alert.setHeaderText("Pflegekraft wirklich löschen?");
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
+    /**
+     * Queues the deletion of a CareGiver and removes it from the table, once it is deleted.
+     */
+    private void delete(CareGiver careGiver) {
+        this.writes.track(DaoFactory.getDaoFactory().getMutationQueue().deleteById(this.dao, careGiver.getCid()))
+                .thenRun(() -> this.tableView.getItems().remove(careGiver));
     }
 
     /**
@@ -177,30 +230,63 @@ public class AllCaregiverController {
     }
 
     /**
-     * Updates a CareGiver by calling the method <code>update()</code> of {@link CareGiverDao}.
+     * Updates a CareGiver by queueing the method <code>update()</code> of {@link CareGiverDao} in the background. The
+     * queue gets a copy of the edited row, because the writer thread reads it, while the row may be edited again. If
+     * the update fails, the table is refreshed, so the edited row shows the stored values again.
      *
      * @param event Event including the changed object and the change.
      */
     private void doUpdate(TableColumn.CellEditEvent<CareGiver, String> event) {
-        try {
-            this.dao.update(event.getRowValue());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        CareGiver careGiver = CareGiverDao.copyOf(event.getRowValue());
+        this.writes.track(DaoFactory.getDaoFactory().getMutationQueue().update(this.dao, careGiver, careGiver.getCid()))
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        // The row shows the edit already, so it is read again to show the stored values.
+                        refresh();
+                    }
+                });
     }
 
     /**
-     * Reads and puts all CareGivers in the Table View
+     * Reads all CareGivers in a background thread and merges them into the Table View, so only added, removed or
+     * changed CareGivers are updated. Called when the view is loaded and every time it is shown again. If a queued
+     * add, edit or delete of the view could be missing in the read CareGivers, they are read again after it instead.
      */
+    public void refresh() {
+        long start = this.writes.startRead();
+        Task<List<CareGiver>> readTask = new Task<List<CareGiver>>() {
+            @Override
+            protected List<CareGiver> call() throws SQLException {
+                return dao.readAll();
+            }
 
-    private void readAllAndShowInTableView() {
-        this.careGivers.clear();
-        this.dao = DaoFactory.getDaoFactory().createCareGiverDAO();
-        try {
-            this.careGivers.addAll(this.dao.readAll());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+            @Override
+            protected void succeeded() {
+                if (writes.mayMerge(start)) {
+                    ListMerge.merge(careGivers, getValue(), CareGiver::getCid, AllCaregiverController::isUnchanged);
+                }
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+            }
+        };
+
+        Thread readThread = new Thread(BackgroundTaskEvent.wrap("AllCaregiverController.refresh", readTask));
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Compares the values of a shown and a freshly read CareGiver, which the columns show.
+     *
+     * @return true, if the shown CareGiver is up to date.
+     */
+    private static boolean isUnchanged(CareGiver shown, CareGiver read) {
+        return Objects.equals(shown.getFirstName(), read.getFirstName()) &&
+                Objects.equals(shown.getSurname(), read.getSurname()) &&
+                Objects.equals(shown.getTelephoneNumber(), read.getTelephoneNumber());
     }
 
     /**
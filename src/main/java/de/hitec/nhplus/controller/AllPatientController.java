@@ -2,12 +2,16 @@ package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.utils.BackgroundTaskEvent;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
@@ -18,6 +22,8 @@ import de.hitec.nhplus.utils.DateConverter;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
 
 
 /**
@@ -69,6 +75,7 @@ public class AllPatientController {
 
     private final ObservableList<Patient> patients = FXCollections.observableArrayList();
     private PatientDao dao;
+    private PendingWrites writes;
 
     /**
      * When <code>initialize()</code> gets called, all fields are already initialized. For example from the FXMLLoader
@@ -76,7 +83,9 @@ public class AllPatientController {
      * configured.
      */
     public void initialize() {
-        this.readAllAndShowInTableView();
+        this.dao = DaoFactory.getDaoFactory().createPatientDAO();
+        this.writes = new PendingWrites(this::refresh);
+        this.refresh();
 
         this.columnId.setCellValueFactory(new PropertyValueFactory<>("pid"));
 
@@ -174,54 +183,137 @@ public class AllPatientController {
     }
 
     /**
-     * Updates a patient by calling the method <code>update()</code> of {@link PatientDao}.
+     * Updates a patient by queueing the method <code>update()</code> of {@link PatientDao} in the background. The
+     * queue gets a copy of the edited row, because the writer thread reads it, while the row may be edited again. If
+     * the update fails, the table is refreshed, so the edited row shows the stored values again.
      *
      * @param event Event including the changed object and the change.
      */
     private void doUpdate(TableColumn.CellEditEvent<Patient, String> event) {
-        try {
-            this.dao.update(event.getRowValue());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        Patient patient = PatientDao.copyOf(event.getRowValue());
+        this.writes.track(DaoFactory.getDaoFactory().getMutationQueue().update(this.dao, patient, patient.getPid()))
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        // The row shows the edit already, so it is read again to show the stored values.
+                        refresh();
+                    }
+                });
     }
 
     /**
-     * Reloads all patients to the table by clearing the list of all patients and filling it again by all persisted
-     * patients, delivered by {@link PatientDao}.
+     * Reads all patients, delivered by {@link PatientDao}, in a background thread and merges them into the table, so
+     * only added, removed or changed patients are updated. Called when the view is loaded and every time it is shown
+     * again. If a queued add, edit or delete of the view could be missing in the read patients, they are read again
+     * after it instead.
      */
-    private void readAllAndShowInTableView() {
-        this.patients.clear();
-        this.dao = DaoFactory.getDaoFactory().createPatientDAO();
-        try {
-            this.patients.addAll(this.dao.readAll());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+    public void refresh() {
+        long start = this.writes.startRead();
+        Task<List<Patient>> readTask = new Task<List<Patient>>() {
+            @Override
+            protected List<Patient> call() throws SQLException {
+                return dao.readAll();
+            }
+
+            @Override
+            protected void succeeded() {
+                if (writes.mayMerge(start)) {
+                    ListMerge.merge(patients, getValue(), Patient::getPid, AllPatientController::isUnchanged);
+                }
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+            }
+        };
+
+        Thread readThread = new Thread(BackgroundTaskEvent.wrap("AllPatientController.refresh", readTask));
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Compares the values of a shown and a freshly read patient, which the columns show.
+     *
+     * @return true, if the shown patient is up to date.
+     */
+    private static boolean isUnchanged(Patient shown, Patient read) {
+        return Objects.equals(shown.getFirstName(), read.getFirstName()) &&
+                Objects.equals(shown.getSurname(), read.getSurname()) &&
+                Objects.equals(shown.getDateOfBirth(), read.getDateOfBirth()) &&
+                Objects.equals(shown.getCareLevel(), read.getCareLevel()) &&
+                Objects.equals(shown.getRoomNumber(), read.getRoomNumber());
     }
 
     /**
-     * This method handles events fired by the button to delete patients. It calls {@link PatientDao} to delete the
-     * patient from the database and removes the object from the list, which is the data source of the
+     * This method handles events fired by the button to delete patients. Deleting a patient deletes their treatments
+     * as well, so the treatments of the patient are read in the background first, in one batch with those of the
+     * other shown patients, and the user confirms the deletion, if there are any. Then {@link PatientDao} deletes the
+     * patient from the database and the object is removed from the list, which is the data source of the
      * <code>TableView</code>.
      */
     @FXML
     public void handleDelete() {
         Patient selectedItem = this.tableView.getSelectionModel().getSelectedItem();
-        if (selectedItem != null) {
-            try {
-                DaoFactory.getDaoFactory().createPatientDAO().deleteById(selectedItem.getPid());
-                this.tableView.getItems().remove(selectedItem);
-            } catch (SQLException exception) {
-                exception.printStackTrace();
-            }
+        if (selectedItem == null) {
+            return;
         }
+
+        Task<Integer> readTask = new Task<Integer>() {
+            @Override
+            protected Integer call() {
+                // Only this task accesses the treatments of the patient.
+                return selectedItem.getTreatments().size();
+            }
+
+            @Override
+            protected void succeeded() {
+                if (getValue() == 0 || confirmDelete(String.format(
+                        "Mit dem Patienten werden %d Behandlungen gelöscht.", getValue()))) {
+                    delete(selectedItem);
+                }
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+                if (confirmDelete("Die Behandlungen des Patienten konnten nicht gelesen werden. "
+                        + "Sie werden mit dem Patienten gelöscht.")) {
+                    delete(selectedItem);
+                }
+            }
+        };
+
+        Thread readThread = new Thread(BackgroundTaskEvent.wrap("AllPatientController.handleDelete", readTask));
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Asks the user to confirm the deletion of the selected patient.
+     *
+     * @param message Describes what is deleted with the patient.
+     * @return True, if the user confirmed.
+     */
+    private boolean confirmDelete(String message) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, message);
+        alert.setTitle("Patient löschen");
+        alert.setHeaderText("Patient wirklich löschen?");
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
+    /**
+     * Queues the deletion of a patient and removes it from the table, once it is deleted.
+     */
+    private void delete(Patient patient) {
+        this.writes.track(DaoFactory.getDaoFactory().getMutationQueue().deleteById(this.dao, patient.getPid()))
+                .thenRun(() -> this.tableView.getItems().remove(patient));
     }
 
     /**
      * This method handles the events fired by the button to add a patient. It collects the data from the
      * <code>TextField</code>s, creates an object of class <code>Patient</code> of it and passes the object to
-     * {@link PatientDao} to persist the data.
+     * {@link PatientDao} to persist the data. The persisted patient is added to the table without reloading it.
      */
     @FXML
     public void handleAdd() {
@@ -231,12 +323,9 @@ public class AllPatientController {
         LocalDate date = DateConverter.convertStringToLocalDate(birthday);
         String careLevel = this.textFieldCareLevel.getText();
         String roomNumber = this.textFieldRoomNumber.getText();
-        try {
-            this.dao.create(new Patient(firstName, surname, date, careLevel, roomNumber));
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
-        readAllAndShowInTableView();
+        this.writes.track(DaoFactory.getDaoFactory().getMutationQueue()
+                        .create(this.dao, new Patient(firstName, surname, date, careLevel, roomNumber)))
+                .thenAccept(this.patients::add);
         clearTextfields();
     }
 
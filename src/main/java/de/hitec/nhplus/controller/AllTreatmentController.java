@@ -1,80 +1,156 @@
 package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.Main;
-import de.hitec.nhplus.datastorage.CareGiverDao;
 import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.ScheduleIndex;
 import de.hitec.nhplus.datastorage.TreatmentDao;
 import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.model.CareGiver;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 import de.hitec.nhplus.model.Treatment;
-import javafx.beans.property.SimpleStringProperty;
+import de.hitec.nhplus.model.TreatmentRow;
+import de.hitec.nhplus.model.TreatmentSearchResult;
+import de.hitec.nhplus.model.TreatmentSearchResults;
+import de.hitec.nhplus.utils.BackgroundTaskEvent;
+import de.hitec.nhplus.utils.EntityIndex;
+import de.hitec.nhplus.utils.PrefixIndex;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class AllTreatmentController {
 
+    /**
+     * Number of treatments loaded at once, further pages are loaded when the table is scrolled to its end.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of search results shown at once, the best matches first.
+     */
+    private static final int SEARCH_LIMIT = 100;
+
+    /**
+     * Maximum number of patients shown in the patient selection, the best matches of the patient search first.
+     */
+    private static final int PATIENT_SEARCH_LIMIT = 50;
+
+    /**
+     * Shown instead of a conflict, while the treatments of the month of a checked treatment are read.
+     */
+    private static final String CHECKING_MESSAGE = "Prüfe Termine…";
+
     @FXML
-    private TableView<Treatment> tableView;
+    private TableView<TreatmentRow> tableView;
 
     @FXML
-    private TableColumn<Treatment, Integer> columnId;
+    private TableColumn<TreatmentRow, Integer> columnId;
 
     @FXML
-    private TableColumn<Treatment, Integer> columnPid;
+    private TableColumn<TreatmentRow, Integer> columnPid;
 
     @FXML
-    private TableColumn<Treatment, String> columnDate;
+    private TableColumn<TreatmentRow, String> columnDate;
 
     @FXML
-    private TableColumn<Treatment, String> columnBegin;
+    private TableColumn<TreatmentRow, String> columnBegin;
 
     @FXML
-    private TableColumn<Treatment, String> columnEnd;
+    private TableColumn<TreatmentRow, String> columnEnd;
 
     @FXML
-    private TableColumn<Treatment, String> columnDescription;
+    private TableColumn<TreatmentRow, String> columnDescription;
 
     /**
      * Column showing the first name of the assigned caregiver.
      */
     @FXML
-    private TableColumn<Treatment, String> columnCaregiverFirstName;
+    private TableColumn<TreatmentRow, String> columnCaregiverFirstName;
+
+    /**
+     * Column showing the matched text of a search result, only visible while search results are shown.
+     */
+    @FXML
+    private TableColumn<TreatmentRow, String> columnSnippet;
+
+    @FXML
+    private TextField textFieldSearch;
 
     @FXML
     private ComboBox<String> comboBoxPatientSelection;
 
+    @FXML
+    private TextField textFieldPatientSearch;
+
     @FXML
     private Button buttonDelete;
 
     private TreatmentDao dao;
     private final ObservableList<String> patientSelection = FXCollections.observableArrayList();
-    private final ObservableList<Treatment> treatments = FXCollections.observableArrayList();
-    private ArrayList<Patient> patientList = new ArrayList<>();
-    private ArrayList<CareGiver> careGiverList = new ArrayList<>();
+    private ComboBoxSearch<String> patientSearch;
+    private ScheduleIndex scheduleIndex;
+    private final ObservableList<TreatmentRow> treatments = FXCollections.observableArrayList();
+    // Loaded patients by ID and by the name shown in the combo box
+    private final EntityIndex<Patient> patients =
+            new EntityIndex<>(Patient::getPid, AllTreatmentController::formatPatientDisplayName);
 
     // Flag to prevent duplicate loading during ComboBox updates
     private boolean isUpdatingComboBox = false;
 
+    // Keyset cursor of the shown treatments: the patient filter (null for all) and the last loaded row
+    private Patient pagePatient;
+    private LocalDate lastDate;
+    private long lastTid;
+    private boolean hasMorePages;
+
+    // True, while a page is read in the background
+    private boolean loadingPage;
+
+    // Incremented whenever the shown rows are replaced, so pages and search results read before are dropped
+    private int pageGeneration;
+
+    // True, while the table shows search results instead of pages
+    private boolean showingSearchResults;
+
+    // Months of the schedule read for a check, with the checks to repeat, once they are read
+    private final Map<YearMonth, Set<Runnable>> loadingMonths = new HashMap<>();
+    // Months of the schedule, which could not be read, with the message shown by the next check of a treatment in them
+    private final Map<YearMonth, String> failedMonths = new HashMap<>();
+
 
     /**
-     * Initializes the controller: loads all treatments and caregivers,
-     * configures table columns, combo box data, and selection listeners.
+     * Initializes the controller: configures table columns and selection listeners, and loads the first page of
+     * treatments and the combo box data in the background.
      */
     public void initialize() {
+        this.scheduleIndex = new ScheduleIndex(DaoFactory.getDaoFactory().createTreatmentDao());
+        this.patientSearch = new ComboBoxSearch<>(this.textFieldPatientSearch, this.comboBoxPatientSelection,
+                List.of("alle"), PATIENT_SEARCH_LIMIT);
         readAllAndShowInTableView();
-        loadCareGivers();
         comboBoxPatientSelection.setItems(patientSelection);
         comboBoxPatientSelection.getSelectionModel().select(0);
 
@@ -85,99 +161,376 @@ public class AllTreatmentController {
         this.columnEnd.setCellValueFactory(new PropertyValueFactory<>("end"));
         this.columnDescription.setCellValueFactory(new PropertyValueFactory<>("description"));
 
-        // Set cell value for caregiver first name - FIXED
-        this.columnCaregiverFirstName.setCellValueFactory(cellData -> {
-            CareGiver careGiver = findCareGiverById(cellData.getValue().getCid());
-            return new SimpleStringProperty(
-                    careGiver != null ? careGiver.getFirstName() : ""
-            );
+        // The first name of the caregiver is part of the row, so rendering a cell needs no lookup
+        this.columnCaregiverFirstName.setCellValueFactory(new PropertyValueFactory<>("careGiverFirstName"));
+        this.columnSnippet.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(
+                cellData.getValue() instanceof TreatmentSearchResult result ? result.getSnippet() : ""));
+
+        // Going back to the pages, as soon as the search text is removed.
+        this.textFieldSearch.textProperty().addListener((observableValue, oldText, newText) -> {
+            if (this.showingSearchResults && newText.isBlank()) {
+                this.showFirstPage(this.pagePatient);
+            }
         });
 
         this.tableView.setItems(this.treatments);
+        this.installPagingListener();
 
         // Disabling the button to delete treatments as long, as no treatment was selected.
         this.buttonDelete.setDisable(true);
         this.tableView.getSelectionModel().selectedItemProperty().addListener(
                 (observableValue, oldTreatment, newTreatment) ->
                         AllTreatmentController.this.buttonDelete.setDisable(newTreatment == null));
-
-        this.createComboBoxData();
     }
 
     /**
-     * Loads all caregivers from the database to be used for displaying caregiver names in the table.
+     * Reads the first page of all treatments in the background and shows it in the table view, further pages follow
+     * on scrolling. This method prevents duplicate loading by temporarily disabling ComboBox events.
      */
-    private void loadCareGivers() {
+    public void readAllAndShowInTableView() {
+        this.treatments.clear();
+
+        // Prevent ComboBox event from triggering during update
         try {
-            CareGiverDao dao = DaoFactory.getDaoFactory().createCareGiverDAO();
-            this.careGiverList = (ArrayList<CareGiver>) dao.readAll();
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-            // Initialize as empty list if loading fails
-            this.careGiverList = new ArrayList<>();
+            this.isUpdatingComboBox = true;
+            comboBoxPatientSelection.getSelectionModel().select(0);
+        } finally {
+            this.isUpdatingComboBox = false;
         }
+
+        this.resetPages(null);
+        this.refresh();
+    }
+
+    /**
+     * Reads the patients, the loaded months of the schedule and the loaded pages of treatments again in a background
+     * thread, and merges the treatments into the table and the schedule, so only added, removed or changed rows are
+     * updated. Called when the view is loaded and every
+     * time it is shown again. Search results are not read again, and the read pages are dropped, if the shown rows
+     * were replaced in the meantime.
+     */
+    public void refresh() {
+        Patient patient = this.pagePatient;
+        int generation = this.pageGeneration;
+        boolean readPages = !this.showingSearchResults;
+        int rowCount = Math.max(PAGE_SIZE, this.treatments.size());
+        TreatmentDao treatmentDao = this.dao;
+        PatientDao patientDao = DaoFactory.getDaoFactory().createPatientDAO();
+        // Treatments may have been changed elsewhere, so the loaded months of the schedule are read again. The current
+        // and the next month are read in advance, because most treatments are planned in them.
+        YearMonth thisMonth = YearMonth.now();
+        ScheduleIndex.Reload scheduleReload = this.scheduleIndex.prepareReload(thisMonth, thisMonth.plusMonths(1));
+
+        Task<List<TreatmentRow>> readTask = new Task<List<TreatmentRow>>() {
+            private List<Patient> patientList;
+
+            @Override
+            protected List<TreatmentRow> call() throws SQLException {
+                this.patientList = patientDao.readAll();
+                scheduleReload.read();
+                if (!readPages) {
+                    return null;
+                }
+                return patient == null
+                        ? treatmentDao.readRowPage(0, rowCount)
+                        : treatmentDao.readRowPageByPid(patient.getPid(), null, 0, rowCount);
+            }
+
+            @Override
+            protected void succeeded() {
+                createComboBoxData(this.patientList);
+                scheduleIndex.apply(scheduleReload);
+                List<TreatmentRow> rows = getValue();
+                if (rows != null && generation == pageGeneration) {
+                    // A page read in the meantime would continue after the rows replaced by the merge.
+                    pageGeneration++;
+                    loadingPage = false;
+                    ListMerge.merge(treatments, rows, TreatmentRow::getTid, AllTreatmentController::sameRow);
+                    hasMorePages = rows.size() == rowCount;
+                    if (!treatments.isEmpty()) {
+                        TreatmentRow last = treatments.get(treatments.size() - 1);
+                        lastTid = last.getTid();
+                        lastDate = last.getLocalDate();
+                    }
+                }
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+                scheduleIndex.discard(scheduleReload);
+            }
+        };
+
+        Thread readThread = new Thread(BackgroundTaskEvent.wrap("AllTreatmentController.refresh", readTask));
+        readThread.setDaemon(true);
+        readThread.start();
     }
 
     /**
-     * Finds a caregiver by their ID from the loaded caregiver list.
+     * Returns, whether both rows show the same values.
+     */
+    private static boolean sameRow(TreatmentRow shown, TreatmentRow read) {
+        return shown.getPid() == read.getPid() && shown.getDate().equals(read.getDate())
+                && shown.getBegin().equals(read.getBegin()) && shown.getEnd().equals(read.getEnd())
+                && Objects.equals(shown.getDescription(), read.getDescription())
+                && Objects.equals(shown.getCareGiverFirstName(), read.getCareGiverFirstName());
+    }
+
+    /**
+     * Clears the table and shows the first page of treatments.
+     *
+     * @param patient The patient to show the treatments of, or null for the treatments of all patients.
+     */
+    private void showFirstPage(Patient patient) {
+        this.resetPages(patient);
+        this.loadNextPage();
+    }
+
+    /**
+     * Clears the table and resets the keyset cursor to the first page.
      *
-     * @param cid The caregiver ID to search for.
-     * @return The CareGiver object if found, null otherwise.
+     * @param patient The patient to show the treatments of, or null for the treatments of all patients.
      */
-    private CareGiver findCareGiverById(long cid) {
-        if (careGiverList != null) {
-            for (CareGiver cg : careGiverList) {
-                if (cg.getCid() == cid) {
-                    return cg;
+    private void resetPages(Patient patient) {
+        this.pageGeneration++;
+        this.loadingPage = false;
+        this.showingSearchResults = false;
+        this.columnSnippet.setVisible(false);
+        this.textFieldSearch.clear();
+        this.treatments.clear();
+        this.dao = DaoFactory.getDaoFactory().createTreatmentDao();
+        this.pagePatient = patient;
+        this.lastDate = null;
+        this.lastTid = 0;
+        this.hasMorePages = true;
+    }
+
+    /**
+     * Reads the next page of treatments in a background thread, starting after the last loaded treatment, and appends
+     * it to the table. Only one page is read at a time. The page is dropped, if the table was reset or shows search
+     * results in the meantime.
+     */
+    private void loadNextPage() {
+        if (!this.hasMorePages || this.loadingPage) {
+            return;
+        }
+        this.loadingPage = true;
+        int generation = this.pageGeneration;
+        TreatmentDao treatmentDao = this.dao;
+        Patient patient = this.pagePatient;
+        LocalDate afterDate = this.lastDate;
+        long afterTid = this.lastTid;
+
+        Task<List<TreatmentRow>> pageTask = new Task<List<TreatmentRow>>() {
+            @Override
+            protected List<TreatmentRow> call() throws SQLException {
+                return patient == null
+                        ? treatmentDao.readRowPage(afterTid, PAGE_SIZE)
+                        : treatmentDao.readRowPageByPid(patient.getPid(), afterDate, afterTid, PAGE_SIZE);
+            }
+
+            @Override
+            protected void succeeded() {
+                if (generation != pageGeneration) {
+                    return;
+                }
+                loadingPage = false;
+                List<TreatmentRow> page = getValue();
+                hasMorePages = page.size() == PAGE_SIZE;
+                if (!page.isEmpty()) {
+                    TreatmentRow last = page.get(page.size() - 1);
+                    lastTid = last.getTid();
+                    lastDate = last.getLocalDate();
+                    treatments.addAll(page);
+                }
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+                if (generation == pageGeneration) {
+                    loadingPage = false;
+                    hasMorePages = false;
                 }
             }
+        };
+
+        Thread pageThread = new Thread(BackgroundTaskEvent.wrap("AllTreatmentController.loadNextPage", pageTask));
+        pageThread.setDaemon(true);
+        pageThread.start();
+    }
+
+    /**
+     * Adds a newly created treatment to the table without reloading it. The treatment is inserted at its position in
+     * the order of the pages. It is skipped, if it does not match the patient filter, or if it lies behind the loaded
+     * pages, because a later page will bring it.
+     *
+     * @param treatment The persisted treatment.
+     * @param careGiverFirstName First name of the assigned caregiver.
+     */
+    public void addTreatment(Treatment treatment, String careGiverFirstName) {
+        this.scheduleIndex.put(treatment);
+        if (this.showingSearchResults
+                || this.pagePatient != null && this.pagePatient.getPid() != treatment.getPid()) {
+            return;
+        }
+        TreatmentRow row = TreatmentRow.of(treatment, careGiverFirstName);
+        Comparator<TreatmentRow> pageOrder = this.pagePatient == null
+                ? Comparator.comparingLong(TreatmentRow::getTid)
+                : Comparator.comparing(TreatmentRow::getLocalDate).thenComparingLong(TreatmentRow::getTid);
+        int index = Collections.binarySearch(this.treatments, row, pageOrder);
+        if (index >= 0) {
+            return;
         }
-        return null;
+        index = -index - 1;
+        if (index == this.treatments.size() && this.hasMorePages) {
+            return;
+        }
+        this.treatments.add(index, row);
     }
 
     /**
-     * Reads all treatments and shows them in the table view.
-     * This method prevents duplicate loading by temporarily disabling ComboBox events.
+     * Replaces the row of a changed treatment. The caregiver of a treatment cannot be changed, so the row keeps the
+     * first name of its caregiver.
+     *
+     * @param treatment The changed treatment.
      */
-    public void readAllAndShowInTableView() {
-        this.treatments.clear();
+    public void updateTreatment(Treatment treatment) {
+        this.scheduleIndex.put(treatment);
+        for (int i = 0; i < this.treatments.size(); i++) {
+            TreatmentRow row = this.treatments.get(i);
+            if (row.getTid() == treatment.getTid()) {
+                this.treatments.set(i, TreatmentRow.of(treatment, row.getCareGiverFirstName()));
+                return;
+            }
+        }
+    }
 
-        // Prevent ComboBox event from triggering during update
-        try {
-            this.isUpdatingComboBox = true;
-            comboBoxPatientSelection.getSelectionModel().select(0);
-        } finally {
-            this.isUpdatingComboBox = false;
+    /**
+     * Checks a new or changed treatment against the schedule of its caregiver and its patient. If the treatments of
+     * its month are not read yet, they are read in a background thread and the check must be repeated, once they are.
+     *
+     * @param treatment The treatment to check, with a tid of 0, if it is not persisted yet.
+     * @param recheck   Repeats the check on the JavaFX Application Thread, after the month was read or could not be
+     *                  read. Passing the same object again, while the month is read, repeats the check once.
+     * @return A message describing the first overlapping treatment, a message that the schedule is being checked or
+     * could not be checked, or null if there is no conflict. Saving must wait, as long as there is a message.
+     */
+    public String findConflictMessage(Treatment treatment, Runnable recheck) {
+        YearMonth month = YearMonth.from(treatment.getLocalDate());
+        // The message is shown once, the next check reads the month again.
+        String failure = this.failedMonths.remove(month);
+        if (failure != null) {
+            return failure;
+        }
+        if (!this.scheduleIndex.isLoaded(month)) {
+            loadScheduleMonth(month, recheck);
+            return CHECKING_MESSAGE;
+        }
+        List<Treatment> conflicts = this.scheduleIndex.findConflicts(treatment);
+        if (conflicts.isEmpty()) {
+            return null;
+        }
+        Treatment conflict = conflicts.get(0);
+        String who = conflict.getCid() == treatment.getCid() ? "Die Pflegekraft" : "Der Patient";
+        String message = String.format("%s hat am %s von %s bis %s bereits die Behandlung \"%s\".", who,
+                conflict.getDate(), conflict.getBegin(), conflict.getEnd(), conflict.getDescription());
+        if (conflicts.size() > 1) {
+            message += String.format(" (%d Überschneidungen)", conflicts.size());
         }
+        return message;
+    }
 
-        this.dao = DaoFactory.getDaoFactory().createTreatmentDao();
-        try {
-            this.treatments.addAll(dao.readAll());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+    /**
+     * Reads the treatments of a month into the schedule in a background thread, unless it is read already, and
+     * repeats the waiting checks afterwards.
+     *
+     * @param month   The month to read.
+     * @param recheck The check to repeat.
+     */
+    private void loadScheduleMonth(YearMonth month, Runnable recheck) {
+        Set<Runnable> rechecks = this.loadingMonths.get(month);
+        if (rechecks != null) {
+            rechecks.add(recheck);
+            return;
         }
+        rechecks = new LinkedHashSet<>();
+        rechecks.add(recheck);
+        this.loadingMonths.put(month, rechecks);
+        ScheduleIndex.Reload load = this.scheduleIndex.prepareLoad(month);
+
+        Task<Void> loadTask = new Task<Void>() {
+            @Override
+            protected Void call() throws SQLException {
+                load.read();
+                return null;
+            }
+
+            @Override
+            protected void succeeded() {
+                scheduleIndex.apply(load);
+                loadingMonths.remove(month).forEach(Runnable::run);
+            }
+
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
+                scheduleIndex.discard(load);
+                failedMonths.put(month, "Die Termine konnten nicht geprüft werden: " + getException().getMessage());
+                loadingMonths.remove(month).forEach(Runnable::run);
+            }
+        };
+
+        Thread loadThread = new Thread(BackgroundTaskEvent.wrap("AllTreatmentController.loadScheduleMonth", loadTask));
+        loadThread.setDaemon(true);
+        loadThread.start();
     }
 
     /**
-     * Populates the patient selection combo box with all patients from the database,
-     * prefixed by an option for showing all treatments.
+     * Loads the next page, as soon as the vertical scroll bar of the table reaches its end. The scroll bar only
+     * exists after the skin of the table was created.
      */
-    private void createComboBoxData() {
-        patientSelection.clear();
-        patientSelection.add("alle");
+    private void installPagingListener() {
+        this.tableView.skinProperty().addListener((observable, oldSkin, newSkin) -> {
+            for (Node node : this.tableView.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar scrollBar && scrollBar.getOrientation() == Orientation.VERTICAL) {
+                    scrollBar.valueProperty().addListener((observableValue, oldValue, newValue) -> {
+                        if (newValue.doubleValue() >= scrollBar.getMax()) {
+                            this.loadNextPage();
+                        }
+                    });
+                }
+            }
+        });
+    }
 
-        PatientDao dao = DaoFactory.getDaoFactory().createPatientDAO();
+    /**
+     * Puts the given patients into the patient search, which fills the patient selection combo box with the best
+     * matches of the typed name, prefixed by an option for showing all treatments. Matches in the surname rank before
+     * matches in the first name. The selected patient stays selected.
+     *
+     * @param readPatients All patients, read from the database.
+     */
+    private void createComboBoxData(List<Patient> readPatients) {
+        List<Patient> patientList = new ArrayList<>(readPatients);
+        patientList.sort(Comparator.comparing(AllTreatmentController::formatPatientDisplayName));
+        this.patients.clear();
+        this.patients.addAll(patientList);
+        PrefixIndex<String> index = new PrefixIndex<>();
+        for (Patient patient: patientList) {
+            String displayName = formatPatientDisplayName(patient);
+            index.add(displayName, patient.getSurname(), 2);
+            index.add(displayName, patient.getFirstName(), 1);
+        }
         try {
-            patientList = (ArrayList<Patient>) dao.readAll();
-            for (Patient patient: patientList) {
-                this.patientSelection.add(formatPatientDisplayName(patient));
+            this.isUpdatingComboBox = true;
+            this.patientSearch.setIndex(index);
+            if (comboBoxPatientSelection.getValue() == null) {
+                comboBoxPatientSelection.getSelectionModel().selectFirst(); // "alle" wird vorausgewählt
             }
-            comboBoxPatientSelection.setItems(patientSelection);
-            comboBoxPatientSelection.getSelectionModel().selectFirst(); // "alle" wird vorausgewählt
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-            // Initialize as empty list if loading fails
-            this.patientList = new ArrayList<>();
+        } finally {
+            this.isUpdatingComboBox = false;
         }
     }
 
@@ -187,7 +540,7 @@ public class AllTreatmentController {
      * @param patient the Patient to format
      * @return the formatted display name
      */
-    private String formatPatientDisplayName(Patient patient) {
+    private static String formatPatientDisplayName(Patient patient) {
         return String.format("%s, %s", patient.getSurname(), patient.getFirstName());
     }
 
@@ -198,29 +551,20 @@ public class AllTreatmentController {
     @FXML
     public void handleComboBox() {
         // Skip if we're updating the ComboBox programmatically
-        if (isUpdatingComboBox) {
+        if (isUpdatingComboBox || this.patientSearch.isUpdating()) {
             return;
         }
 
         String selectedPatient = this.comboBoxPatientSelection.getSelectionModel().getSelectedItem();
-        this.treatments.clear();
-        this.dao = DaoFactory.getDaoFactory().createTreatmentDao();
-
         if (selectedPatient == null || selectedPatient.equals("alle")) {
-            try {
-                this.treatments.addAll(this.dao.readAll());
-            } catch (SQLException exception) {
-                exception.printStackTrace();
-            }
+            this.showFirstPage(null);
         }
         else {
             Patient patient = getPatientFromDisplayName(selectedPatient);
             if (patient != null) {
-                try {
-                    this.treatments.addAll(this.dao.readTreatmentsByPid(patient.getPid()));
-                } catch (SQLException exception) {
-                    exception.printStackTrace();
-                }
+                this.showFirstPage(patient);
+            } else {
+                this.treatments.clear();
             }
         }
     }
@@ -232,68 +576,70 @@ public class AllTreatmentController {
      * @return the matching Patient, or null if not found
      */
     private Patient getPatientFromDisplayName(String displayName) {
-        if (patientList == null || patientList.isEmpty()) {
-            return null;
-        }
-
-        for (Patient patient : patientList) {
-            if (displayName.equals(formatPatientDisplayName(patient))) {
-                return patient;
-            }
-        }
-        return null;
+        return displayName == null ? null : this.patients.getByName(displayName);
     }
 
     /**
-     * Searches the loaded patient list for a patient by surname.
-     *
-     * @param surname the surname to search for
-     * @return the matching Patient, or null if none matches
+     * Searches the descriptions and remarks of the treatments of all patients for the entered words in a background
+     * thread and shows the best matches instead of the pages. If only the newest matches could be ranked, the header
+     * of the snippets says so. Removing the search text shows the pages again, and results of a search, which was
+     * overtaken by another search or by the pages, are dropped.
      */
-    private Patient searchPatientInList(String surname) {
-        if (this.patientList == null || this.patientList.isEmpty()) {
-            return null;
+    @FXML
+    public void handleSearch() {
+        String query = this.textFieldSearch.getText();
+        if (query == null || query.isBlank()) {
+            return;
         }
-
-        for (Patient patient : this.patientList) {
-            if (patient.getSurname().equals(surname)) {
-                return patient;
+        // Pages still being read would be replaced by the results anyway.
+        int generation = ++this.pageGeneration;
+        this.loadingPage = false;
+        TreatmentDao treatmentDao = this.dao;
+
+        Task<TreatmentSearchResults> searchTask = new Task<TreatmentSearchResults>() {
+            @Override
+            protected TreatmentSearchResults call() throws SQLException {
+                return treatmentDao.search(query, SEARCH_LIMIT);
             }
-        }
-        return null;
-    }
 
-    /**
-     * Searches the loaded caregiver list for a caregiver by surname.
-     *
-     * @param surname the surname to search for
-     * @return the matching CareGiver, or null if none matches
-     */
-    private CareGiver searchCareGiverInList(String surname) {
-        if (this.careGiverList == null || this.careGiverList.isEmpty()) {
-            return null;
-        }
+            @Override
+            protected void succeeded() {
+                if (generation != pageGeneration) {
+                    return;
+                }
+                showingSearchResults = true;
+                hasMorePages = false;
+                // A word in most treatments has too many matches to rank them all, so the user is told.
+                columnSnippet.setText(getValue().isLimitedToNewest()
+                        ? "Fundstelle (neueste " + getValue().getRankedMatches() + " Treffer)"
+                        : "Fundstelle");
+                columnSnippet.setVisible(true);
+                treatments.setAll(getValue().getResults());
+            }
 
-        for (CareGiver caregiver : this.careGiverList) {
-            if (caregiver.getSurname().equals(surname)) {
-                return caregiver;
+            @Override
+            protected void failed() {
+                getException().printStackTrace();
             }
-        }
-        return null;
+        };
+
+        Thread searchThread = new Thread(BackgroundTaskEvent.wrap("AllTreatmentController.handleSearch", searchTask));
+        searchThread.setDaemon(true);
+        searchThread.start();
     }
 
     /**
-     * Deletes the selected treatment both from the table view and the database.
+     * Deletes the selected treatment from the database in the background and from the table view, once it is deleted.
      */
     @FXML
     public void handleDelete() {
-        int index = this.tableView.getSelectionModel().getSelectedIndex();
-        Treatment t = this.treatments.remove(index);
-        TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
-        try {
-            dao.deleteById(t.getTid());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+        TreatmentRow t = this.tableView.getSelectionModel().getSelectedItem();
+        if (t != null) {
+            DaoFactory.getDaoFactory().getMutationQueue().deleteById(this.dao, t.getTid())
+                    .thenRun(() -> {
+                        this.scheduleIndex.remove(t.getTid());
+                        this.treatments.remove(t);
+                    });
         }
     }
 
@@ -332,9 +678,16 @@ public class AllTreatmentController {
     public void handleMouseClick() {
         tableView.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2 && (tableView.getSelectionModel().getSelectedItem() != null)) {
-                int index = this.tableView.getSelectionModel().getSelectedIndex();
-                Treatment treatment = this.treatments.get(index);
-                treatmentWindow(treatment);
+                TreatmentRow row = this.tableView.getSelectionModel().getSelectedItem();
+                try {
+                    // The table only holds rows, so the full treatment is read for the dialog.
+                    Treatment treatment = this.dao.read(row.getTid());
+                    if (treatment != null) {
+                        treatmentWindow(treatment);
+                    }
+                } catch (SQLException exception) {
+                    exception.printStackTrace();
+                }
             }
         });
     }
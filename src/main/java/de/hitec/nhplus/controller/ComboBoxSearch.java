@@ -0,0 +1,97 @@
+package de.hitec.nhplus.controller;
+
+import de.hitec.nhplus.utils.PrefixIndex;
+import javafx.animation.PauseTransition;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects a search field to a combo box: while the user types, the combo box only shows the best matches of the
+ * typed words, looked up in a <code>PrefixIndex</code> in memory. The lookup waits until the user stopped typing for a
+ * moment, so fast typing filters once instead of once per key. Pressing Enter in the search field selects the best
+ * match.
+ *
+ * @param <T> Type of the items of the combo box.
+ */
+public class ComboBoxSearch<T> {
+
+    /**
+     * Time without typing, after which the combo box is filtered.
+     */
+    private static final Duration DEBOUNCE = Duration.millis(150);
+
+    private final TextField searchField;
+    private final ComboBox<T> comboBox;
+    private final List<T> fixedItems;
+    private final int limit;
+    private final PauseTransition pause = new PauseTransition(DEBOUNCE);
+    private PrefixIndex<T> index = new PrefixIndex<>();
+    private boolean updating;
+
+    /**
+     * Installs the search on the given search field and combo box.
+     *
+     * @param searchField Field to type the search words into.
+     * @param comboBox    Combo box to show the matches in.
+     * @param fixedItems  Items always shown before the matches, e.g. an entry for all patients.
+     * @param limit       Maximum number of shown matches.
+     */
+    public ComboBoxSearch(TextField searchField, ComboBox<T> comboBox, List<T> fixedItems, int limit) {
+        this.searchField = searchField;
+        this.comboBox = comboBox;
+        this.fixedItems = fixedItems;
+        this.limit = limit;
+        this.pause.setOnFinished(event -> filter(true));
+        this.searchField.textProperty().addListener((observableValue, oldText, newText) -> this.pause.playFromStart());
+        this.searchField.setOnAction(event -> selectBestMatch());
+    }
+
+    /**
+     * Replaces the index, e.g. after the items were loaded, and shows the matches of the current search words.
+     *
+     * @param index Index of all items.
+     */
+    public void setIndex(PrefixIndex<T> index) {
+        this.index = index;
+        filter(false);
+    }
+
+    /**
+     * Returns, whether the items of the combo box are being replaced at the moment. Selection events of the combo box
+     * during this time are caused by the search and not by the user.
+     *
+     * @return True, while the items are replaced.
+     */
+    public boolean isUpdating() {
+        return this.updating;
+    }
+
+    private void filter(boolean showMatches) {
+        List<T> items = new ArrayList<>(this.fixedItems);
+        items.addAll(this.index.search(this.searchField.getText(), this.limit));
+        T selected = this.comboBox.getValue();
+        try {
+            this.updating = true;
+            this.comboBox.getItems().setAll(items);
+            // Keeps the selection, even if the selected item is not among the matches.
+            this.comboBox.setValue(selected);
+        } finally {
+            this.updating = false;
+        }
+        if (showMatches && this.searchField.isFocused() && !this.searchField.getText().isBlank()) {
+            this.comboBox.show();
+        }
+    }
+
+    private void selectBestMatch() {
+        this.pause.stop();
+        filter(false);
+        if (this.comboBox.getItems().size() > this.fixedItems.size()) {
+            this.comboBox.getSelectionModel().select(this.fixedItems.size());
+        }
+    }
+}
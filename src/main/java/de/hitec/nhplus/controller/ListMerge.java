@@ -0,0 +1,51 @@
+package de.hitec.nhplus.controller;
+
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Merges freshly read rows into the items of a table, which shows an older state of them. Only rows, which were
+ * added, removed or changed, are touched, so the table keeps its selection and scroll position, when nothing or little
+ * changed.
+ */
+final class ListMerge {
+
+    private ListMerge() {
+    }
+
+    /**
+     * Merges the fresh rows into the items. Removed rows are removed, changed rows are replaced and new rows are
+     * appended. If the remaining rows are not the first fresh rows in the same order, the items are replaced at once.
+     *
+     * @param items     The items of the table.
+     * @param fresh     The rows read from the database, in the order of the table.
+     * @param key       Returns the ID of a row.
+     * @param unchanged Returns, whether the shown row and the fresh row with the same ID show the same values.
+     */
+    static <T> void merge(ObservableList<T> items, List<T> fresh, ToLongFunction<? super T> key,
+                          BiPredicate<? super T, ? super T> unchanged) {
+        Map<Long, T> freshByKey = new HashMap<>();
+        for (T row : fresh) {
+            freshByKey.put(key.applyAsLong(row), row);
+        }
+        items.removeIf(row -> !freshByKey.containsKey(key.applyAsLong(row)));
+        int size = items.size();
+        for (int i = 0; i < size; i++) {
+            if (i >= fresh.size() || key.applyAsLong(items.get(i)) != key.applyAsLong(fresh.get(i))) {
+                items.setAll(fresh);
+                return;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (!unchanged.test(items.get(i), fresh.get(i))) {
+                items.set(i, fresh.get(i));
+            }
+        }
+        items.addAll(fresh.subList(size, fresh.size()));
+    }
+}
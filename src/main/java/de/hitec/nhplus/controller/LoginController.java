@@ -5,7 +5,9 @@ import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.UserDao;
 import de.hitec.nhplus.model.User;
 import de.hitec.nhplus.service.Session;
+import de.hitec.nhplus.utils.BackgroundTaskEvent;
 import de.hitec.nhplus.utils.PasswordUtil;
+import de.hitec.nhplus.utils.ViewLoadEvent;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
@@ -144,7 +146,7 @@ public class LoginController {
             }
         };
 
-        Thread loginThread = new Thread(loginTask);
+        Thread loginThread = new Thread(BackgroundTaskEvent.wrap("LoginController.login", loginTask));
         loginThread.setDaemon(true);
         loginThread.start();
     }
@@ -171,7 +173,7 @@ public class LoginController {
     private void redirectToMainWindow() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/MainWindowView.fxml"));
-            BorderPane pane = loader.load();
+            BorderPane pane = ViewLoadEvent.load(loader);
             Scene scene = new Scene(pane);
 
             Stage stage = (Stage) loginButton.getScene().getWindow();
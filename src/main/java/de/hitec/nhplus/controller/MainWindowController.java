@@ -2,10 +2,13 @@ package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.Main;
 import de.hitec.nhplus.service.Session;
+import de.hitec.nhplus.utils.ViewLoadEvent;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -15,14 +18,22 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 
 /**
  * The <code>MainWindowController</code> contains the entire logic of the MainWindow view. It determines which data is
- * displayed and how to react to events.
+ * displayed and how to react to events. The views of patients, treatments and CareGivers are loaded right after the
+ * login, kept with their controllers until logout and refreshed in the background, when they are shown again.
  */
 public class MainWindowController implements Initializable {
 
+    private static final String PATIENT_VIEW = "/de/hitec/nhplus/AllPatientView.fxml";
+    private static final String TREATMENT_VIEW = "/de/hitec/nhplus/AllTreatmentView.fxml";
+    private static final String CAREGIVER_VIEW = "/de/hitec/nhplus/AllCaregiverView.fxml";
+
     @FXML
     private BorderPane mainBorderPane;
 
@@ -35,6 +46,23 @@ public class MainWindowController implements Initializable {
     @FXML
     private Button logoutButton;
 
+    // Loaded views by the path of their FXML file, kept until logout
+    private final Map<String, CachedView> views = new HashMap<>();
+
+    /**
+     * A loaded view and the refresh of its controller.
+     */
+    private static final class CachedView {
+        private final Parent root;
+        private final Runnable refresh;
+        private boolean shown;
+
+        private CachedView(Parent root, Runnable refresh) {
+            this.root = root;
+            this.refresh = refresh;
+        }
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         // Set welcome message with current user
@@ -52,48 +80,87 @@ public class MainWindowController implements Initializable {
             adminButton.setVisible(false);
             adminButton.setManaged(false);
         }
+
+        preloadViews();
     }
 
     /**
      * This method handles the events fired by the button to show all patients.
-     * It collects the data from the Database, and loads the AllPatientView View.
+     * It shows the cached AllPatientView View, which collects the changed data from the Database in the background.
      */
     @FXML
     private void handleShowAllPatient(ActionEvent event) {
-        FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/AllPatientView.fxml"));
-        try {
-            mainBorderPane.setCenter(loader.load());
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+        showView(PATIENT_VIEW, AllPatientController::refresh);
     }
 
     /**
      * This method handles the events fired by the button to show all treatments.
-     * It collects the data from the Database, and loads the AllTreatmentView View.
+     * It shows the cached AllTreatmentView View, which collects the changed data from the Database in the background.
      */
     @FXML
     private void handleShowAllTreatments(ActionEvent event) {
-        FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/AllTreatmentView.fxml"));
-        try {
-            mainBorderPane.setCenter(loader.load());
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+        showView(TREATMENT_VIEW, AllTreatmentController::refresh);
     }
 
     /**
      * This method handles the events fired by the button to show all CareGivers.
-     * It collects the data from the Database, and loads the AllCaregiverView View.
+     * It shows the cached AllCaregiverView View, which collects the changed data from the Database in the background.
      */
     @FXML
     private void handleShowAllCareGivers(ActionEvent event) {
-        FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/AllCaregiverView.fxml"));
-        try {
-            mainBorderPane.setCenter(loader.load());
-        } catch (IOException exception) {
-            exception.printStackTrace();
+        showView(CAREGIVER_VIEW, AllCaregiverController::refresh);
+    }
+
+    /**
+     * Loads the views of the main window one after another, each in its own pulse of the FX thread, so the window
+     * stays responsive. Their controllers read their data in background threads.
+     */
+    private void preloadViews() {
+        Platform.runLater(() -> loadView(PATIENT_VIEW, AllPatientController::refresh));
+        Platform.runLater(() -> loadView(TREATMENT_VIEW, AllTreatmentController::refresh));
+        Platform.runLater(() -> loadView(CAREGIVER_VIEW, AllCaregiverController::refresh));
+    }
+
+    /**
+     * Shows the given view in the center of the window. A view, which was shown before, is refreshed.
+     *
+     * @param fxml    Path of the FXML file of the view.
+     * @param refresh Refreshes the view through its controller.
+     */
+    private <C> void showView(String fxml, Consumer<C> refresh) {
+        CachedView view = loadView(fxml, refresh);
+        if (view == null) {
+            return;
+        }
+        // A view, which was loaded but not shown yet, has just read its data.
+        if (view.shown) {
+            view.refresh.run();
+        }
+        view.shown = true;
+        mainBorderPane.setCenter(view.root);
+    }
+
+    /**
+     * Returns the cached view or loads it, which lets its controller read its data.
+     *
+     * @param fxml    Path of the FXML file of the view.
+     * @param refresh Refreshes the view through its controller.
+     * @return The view, or null if it could not be loaded.
+     */
+    private <C> CachedView loadView(String fxml, Consumer<C> refresh) {
+        CachedView view = this.views.get(fxml);
+        if (view == null) {
+            FXMLLoader loader = new FXMLLoader(Main.class.getResource(fxml));
+            try {
+                Parent root = ViewLoadEvent.load(loader);
+                C controller = loader.getController();
+                view = new CachedView(root, () -> refresh.accept(controller));
+                this.views.put(fxml, view);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
         }
+        return view;
     }
 
     /**
@@ -104,7 +171,7 @@ public class MainWindowController implements Initializable {
     private void handleShowAdminPanel(ActionEvent event) {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/AdminPanel.fxml"));
-            BorderPane pane = loader.load();
+            BorderPane pane = ViewLoadEvent.load(loader);
             Scene scene = new Scene(pane);
 
             Stage adminStage = new Stage();
@@ -131,7 +198,7 @@ public class MainWindowController implements Initializable {
         // Return to login window
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/LoginView.fxml"));
-            Scene scene = new Scene(loader.load());
+            Scene scene = new Scene(ViewLoadEvent.load(loader));
 
             Stage currentStage = (Stage) logoutButton.getScene().getWindow();
             currentStage.setTitle("NHPlus Login");
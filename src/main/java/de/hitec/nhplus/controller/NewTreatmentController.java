@@ -11,11 +11,15 @@ import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.model.CareGiver;
 import de.hitec.nhplus.model.Treatment;
 import de.hitec.nhplus.utils.DateConverter;
+import de.hitec.nhplus.utils.PrefixIndex;
 import javafx.util.StringConverter;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import de.hitec.nhplus.datastorage.CareGiverDao;
@@ -52,13 +56,29 @@ public class NewTreatmentController {
     @FXML
     private ComboBox<CareGiver> comboBoxCaregiver;
 
+    @FXML
+    private TextField textFieldCaregiverSearch;
+
     @FXML
     private Button buttonAdd;
 
+    /**
+     * Shows an overlapping treatment of the selected caregiver or the patient.
+     */
+    @FXML
+    private Label labelConflict;
+
     private AllTreatmentController controller;
     private Patient patient;
     private CareGiver careGiver;
     private Stage stage;
+    // Validates the inputs again, once the schedule of the month of the treatment was read
+    private final Runnable recheck = () -> this.buttonAdd.setDisable(this.areInputDataInvalid());
+
+    /**
+     * Maximum number of caregivers shown in the combo box, the best matches of the caregiver search first.
+     */
+    private static final int CAREGIVER_SEARCH_LIMIT = 50;
 
     /**
      * Initializes the controller: sets references to parent controller, stage, patient, and caregiver;
@@ -108,7 +128,7 @@ public class NewTreatmentController {
 
     /**
      * Creates a new Treatment from input fields, saves it to the database,
-     * refreshes the parent table view, and closes the window.
+     * adds it to the parent table view, and closes the window.
      */
     @FXML
     public void handleAdd(){
@@ -128,23 +148,21 @@ public class NewTreatmentController {
         String description = textFieldDescription.getText();
         String remarks = textAreaRemarks.getText();
         Treatment treatment = new Treatment(patient.getPid(), careGiver.getCid(), date, begin, end, description, remarks);
-        createTreatment(treatment);
-        controller.readAllAndShowInTableView();
+        createTreatment(treatment, careGiver);
         stage.close();
     }
 
     /**
-     * Persists the given Treatment object to the database using TreatmentDao.
+     * Persists the given Treatment object to the database using TreatmentDao in the background and adds the persisted
+     * Treatment to the parent table view afterwards.
      *
      * @param treatment the Treatment to save
+     * @param careGiver the CareGiver assigned to the Treatment
      */
-    private void createTreatment(Treatment treatment) {
+    private void createTreatment(Treatment treatment, CareGiver careGiver) {
         TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
-        try {
-            dao.create(treatment);
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        DaoFactory.getDaoFactory().getMutationQueue().create(dao, treatment)
+                .thenAccept(created -> controller.addTreatment(created, careGiver.getFirstName()));
     }
 
     /**
@@ -157,35 +175,62 @@ public class NewTreatmentController {
 
     /**
      * Validates input fields: checks non-null times, proper time order, non-blank description, date selection, and caregiver selection.
+     * If all inputs are valid, the treatment is checked for overlaps with other treatments of the caregiver or the
+     * patient, which are shown below the caregiver. While the schedule of the month is read, or if it could not be
+     * read, that is shown instead and the treatment cannot be added.
      *
-     * @return true if any input is invalid, false otherwise
+     * @return true if any input is invalid, the treatment overlaps another one or could not be checked yet, false
+     * otherwise
      */
     private boolean areInputDataInvalid() {
+        this.labelConflict.setText("");
         if (this.textFieldBegin.getText() == null || this.textFieldEnd.getText() == null) {
             return true;
         }
+        LocalTime begin;
+        LocalTime end;
         try {
-            LocalTime begin = DateConverter.convertStringToLocalTime(this.textFieldBegin.getText());
-            LocalTime end = DateConverter.convertStringToLocalTime(this.textFieldEnd.getText());
+            begin = DateConverter.convertStringToLocalTime(this.textFieldBegin.getText());
+            end = DateConverter.convertStringToLocalTime(this.textFieldEnd.getText());
             if (!end.isAfter(begin)) {
                 return true;
             }
         } catch (Exception exception) {
             return true;
         }
-        return this.textFieldDescription.getText().isBlank() ||
+        if (this.textFieldDescription.getText().isBlank() ||
                 this.datePicker.getValue() == null ||
-                this.comboBoxCaregiver.getValue() == null; // Check if caregiver is selected
+                this.comboBoxCaregiver.getValue() == null) { // Check if caregiver is selected
+            return true;
+        }
+        Treatment planned = new Treatment(this.patient.getPid(), this.comboBoxCaregiver.getValue().getCid(),
+                this.datePicker.getValue(), begin, end, this.textFieldDescription.getText(), "");
+        String conflict = this.controller.findConflictMessage(planned, this.recheck);
+        if (conflict != null) {
+            this.labelConflict.setText(conflict);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Populates the ComboBox with all available caregivers and sets the selected caregiver.
+     * Loads all available caregivers into the caregiver search, which fills the ComboBox with the best matches of the
+     * typed name, and sets the selected caregiver. Matches in the surname rank before matches in the first name.
      */
     private void createComboboxData() {
         try {
             CareGiverDao dao = DaoFactory.getDaoFactory().createCareGiverDAO();
-            ObservableList<CareGiver> caregivers = FXCollections.observableArrayList(dao.readAll());
+            List<CareGiver> careGiverList = new ArrayList<>(dao.readAll());
+            careGiverList.sort(Comparator.comparing(CareGiver::getSurname).thenComparing(CareGiver::getFirstName));
+            PrefixIndex<CareGiver> index = new PrefixIndex<>();
+            for (CareGiver cg : careGiverList) {
+                index.add(cg, cg.getSurname(), 2);
+                index.add(cg, cg.getFirstName(), 1);
+            }
+            ObservableList<CareGiver> caregivers = FXCollections.observableArrayList();
             comboBoxCaregiver.setItems(caregivers);
+            new ComboBoxSearch<>(this.textFieldCaregiverSearch, this.comboBoxCaregiver, List.of(), CAREGIVER_SEARCH_LIMIT)
+                    .setIndex(index);
             comboBoxCaregiver.setConverter(new StringConverter<CareGiver>() {
                 @Override
                 public String toString(CareGiver cg) {
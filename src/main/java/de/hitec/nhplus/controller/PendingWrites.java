@@ -0,0 +1,75 @@
+package de.hitec.nhplus.controller;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tracks the writes, which a view queued in the <code>MutationQueue</code> for the rows of its table. Rows read while
+ * a write of the view is queued or running can miss it, so merging them would undo the write in the table, e.g. drop
+ * a just added row or show the old value of an edited cell. The view asks <code>mayMerge()</code> before merging and
+ * reads the rows again, once its writes are done.
+ * <p>
+ * All methods are called on the JavaFX Application Thread, like the callbacks of the <code>MutationQueue</code>.
+ */
+final class PendingWrites {
+
+    private final Runnable refresh;
+    private int running;
+    private long submitted;
+    private boolean refreshWaiting;
+
+    /**
+     * Creates the tracker of a view.
+     *
+     * @param refresh Reads the rows of the view again.
+     */
+    PendingWrites(Runnable refresh) {
+        this.refresh = refresh;
+    }
+
+    /**
+     * Tracks a write queued by the view.
+     *
+     * @param write Future of the queued write.
+     * @return A future completed like the given one, after the write was counted as done.
+     */
+    <R> CompletableFuture<R> track(CompletableFuture<R> write) {
+        this.running++;
+        this.submitted++;
+        return write.whenComplete((result, failure) -> {
+            this.running--;
+            if (this.running == 0 && this.refreshWaiting) {
+                this.refreshWaiting = false;
+                this.refresh.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of writes submitted so far, to be passed to <code>mayMerge()</code>, when the read of the
+     * rows starts.
+     *
+     * @return The number of submitted writes.
+     */
+    long startRead() {
+        return this.submitted;
+    }
+
+    /**
+     * Checks, if rows read since the given start may be merged into the table. If not, the rows are read again, as
+     * soon as no write of the view is running anymore.
+     *
+     * @param start The number of submitted writes, when the read started.
+     * @return True, if no write was submitted since the start and none is running.
+     */
+    boolean mayMerge(long start) {
+        if (this.running == 0 && this.submitted == start) {
+            return true;
+        }
+        if (this.running > 0) {
+            this.refreshWaiting = true;
+        } else {
+            this.refresh.run();
+        }
+        return false;
+    }
+}
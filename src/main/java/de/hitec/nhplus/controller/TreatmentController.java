@@ -4,6 +4,7 @@ import de.hitec.nhplus.datastorage.CareGiverDao;
 import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.PatientDao;
 import de.hitec.nhplus.datastorage.TreatmentDao;
+import javafx.beans.value.ChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
@@ -14,6 +15,7 @@ import de.hitec.nhplus.model.CareGiver;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 
 
@@ -46,10 +48,21 @@ public class TreatmentController {
     @FXML
     private Label labelCaregiverPhone;
 
+    /**
+     * Shows an overlapping treatment of the caregiver or the patient.
+     */
+    @FXML
+    private Label labelConflict;
+
+    @FXML
+    private Button btnChange;
+
     private AllTreatmentController controller;
     private Stage stage;
     private Patient patient;
     private Treatment treatment;
+    // Validates the inputs again, once the schedule of the month of the treatment was read
+    private final Runnable recheck = () -> this.btnChange.setDisable(this.areInputDataInvalid());
 
     /**
      * Initializes the controller: sets the parent controller, stage, patient, and treatment;
@@ -68,6 +81,12 @@ public class TreatmentController {
             this.patient = pDao.read((int) treatment.getPid());
             this.treatment = treatment;
             showData();
+            ChangeListener<Object> inputListener = (observableValue, oldValue, newValue) ->
+                    this.btnChange.setDisable(this.areInputDataInvalid());
+            this.textFieldBegin.textProperty().addListener(inputListener);
+            this.textFieldEnd.textProperty().addListener(inputListener);
+            this.textFieldDescription.textProperty().addListener(inputListener);
+            this.datePicker.valueProperty().addListener(inputListener);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -107,31 +126,65 @@ public class TreatmentController {
     }
 
     /**
-     * Reads input values from UI fields into the Treatment object,
-     * updates the database, refreshes the parent table view, and closes the window.
+     * Reads input values from UI fields into a changed copy of the Treatment, queues its update and closes the window.
+     * The parent table view shows the changed treatment, once the update is committed. If it fails, the treatment
+     * stays unchanged.
      */
     @FXML
     public void handleChange(){
-        this.treatment.setDate(this.datePicker.getValue().toString());
-        this.treatment.setBegin(textFieldBegin.getText());
-        this.treatment.setEnd(textFieldEnd.getText());
-        this.treatment.setDescription(textFieldDescription.getText());
-        this.treatment.setRemarks(textAreaRemarks.getText());
-        doUpdate();
-        controller.readAllAndShowInTableView();
+        Treatment changed = new Treatment(this.treatment.getTid(), this.treatment.getPid(), this.treatment.getCid(),
+                this.datePicker.getValue(), DateConverter.convertStringToLocalTime(textFieldBegin.getText()),
+                DateConverter.convertStringToLocalTime(textFieldEnd.getText()), textFieldDescription.getText(),
+                textAreaRemarks.getText());
+        doUpdate(changed);
         stage.close();
     }
 
     /**
-     * Persists the current Treatment object updates to the database using TreatmentDao.
+     * Persists the changed Treatment using TreatmentDao, in the background, and passes it to the parent controller,
+     * when the update is committed.
+     *
+     * @param changed The changed copy of the treatment.
      */
-    private void doUpdate(){
+    private void doUpdate(Treatment changed){
         TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
+        DaoFactory.getDaoFactory().getMutationQueue().update(dao, changed, changed.getTid())
+                .thenRun(() -> controller.updateTreatment(changed));
+    }
+
+    /**
+     * Validates the input fields like the dialog for new treatments: the times must be valid and in order, the
+     * description must not be blank and a date must be selected. If all inputs are valid, the changed treatment is
+     * checked for overlaps with other treatments of the caregiver or the patient. While the schedule of the month is
+     * read, or if it could not be read, that is shown instead and the treatment cannot be changed.
+     *
+     * @return true if any input is invalid, the treatment overlaps another one or could not be checked yet, false
+     * otherwise
+     */
+    private boolean areInputDataInvalid() {
+        this.labelConflict.setText("");
+        LocalTime begin;
+        LocalTime end;
         try {
-            dao.update(treatment);
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+            begin = DateConverter.convertStringToLocalTime(this.textFieldBegin.getText());
+            end = DateConverter.convertStringToLocalTime(this.textFieldEnd.getText());
+            if (!end.isAfter(begin)) {
+                return true;
+            }
+        } catch (Exception exception) {
+            return true;
+        }
+        if (this.textFieldDescription.getText().isBlank() || this.datePicker.getValue() == null) {
+            return true;
+        }
+        Treatment changed = new Treatment(this.treatment.getTid(), this.treatment.getPid(), this.treatment.getCid(),
+                this.datePicker.getValue(), begin, end, this.textFieldDescription.getText(), "");
+        String conflict = this.controller.findConflictMessage(changed, this.recheck);
+        if (conflict != null) {
+            this.labelConflict.setText(conflict);
+            return true;
         }
+        return false;
     }
 
     /**
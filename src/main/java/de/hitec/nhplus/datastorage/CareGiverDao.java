@@ -4,6 +4,7 @@ import de.hitec.nhplus.model.CareGiver;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Implements the Interface <code>DaoImp</code>. Overrides methods to generate specific <code>PreparedStatements</code>,
@@ -12,28 +13,58 @@ import java.util.ArrayList;
 public class CareGiverDao extends DaoImp<CareGiver> {
 
     /**
-     * The constructor initiates an object of <code>CareGiverDao</code> and passes the connection to its super class.
+     * Maps a row of the care_giver table to an object of <code>CareGiver</code>.
+     */
+    private static final RowMapper<CareGiver> MAPPER = new RowMapper<>((result, columns) -> new CareGiver(
+            result.getLong(columns[0]),
+            result.getString(columns[1]),
+            result.getString(columns[2]),
+            result.getString(columns[3])),
+            "cid", "firstname", "surname", "telephone_number");
+
+    /**
+     * Reads the treatments of the caregivers for their loaders.
+     */
+    private final TreatmentDao treatmentDao;
+
+    /**
+     * The constructor initiates an object of <code>CareGiverDao</code> and passes the connection pool and the cache to its
+     * super class.
+     *
+     * @param pool Pool of <code>Connection</code>s to execute the SQL-statements.
+     * @param cache Cache of the careGivers, shared by all <code>CareGiverDao</code>s.
+     */
+    public CareGiverDao(ConnectionPool pool, EntityCache<CareGiver> cache) {
+        super(pool, cache);
+        this.treatmentDao = new TreatmentDao(pool);
+    }
+
+    /**
+     * Returns the careGiver id (cid) of the given careGiver.
      *
-     * @param connection Object of <code>Connection</code> to execute the SQL-statements.
+     * @param careGiver The careGiver.
+     * @return The careGiver id (cid).
      */
-    public CareGiverDao(Connection connection) {
-        super(connection);
+    @Override
+    protected long getKey(CareGiver careGiver) {
+        return careGiver.getCid();
     }
 
 
     /**
      * Generates a <code>PreparedStatement</code> to persist the given object of <code>careGiver</code>.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param careGiver Object of <code>careGiver</code> to persist.
      * @return <code>PreparedStatement</code> to insert the given careGiver.
      */
     @Override
-    protected PreparedStatement getCreateStatement(CareGiver careGiver) {
+    protected PreparedStatement getCreateStatement(Connection connection, CareGiver careGiver) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "INSERT INTO care_giver (firstname, surname, telephone_number) " +
                     "VALUES (?, ?, ?)";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, careGiver.getFirstName());
             preparedStatement.setString(2, careGiver.getSurname());
             preparedStatement.setString(3, careGiver.getTelephoneNumber());
@@ -43,18 +74,46 @@ public class CareGiverDao extends DaoImp<CareGiver> {
         return preparedStatement;
     }
 
+    /**
+     * Copies the given careGiver with its generated careGiver id (cid).
+     *
+     * @param careGiver The created careGiver.
+     * @param cid The generated careGiver id.
+     * @return The persisted careGiver.
+     */
+    @Override
+    protected CareGiver getPersistedInstance(CareGiver careGiver, long cid) {
+        CareGiver persisted = new CareGiver(cid, careGiver.getFirstName(), careGiver.getSurname(),
+                careGiver.getTelephoneNumber());
+        newReadPreparer().accept(persisted);
+        return persisted;
+    }
+
+    /**
+     * Returns an independent copy of the given careGiver without its treatments, e.g. for the cache of the
+     * careGivers or for a queued update, which must not see later edits of the shown careGiver.
+     *
+     * @param careGiver The careGiver.
+     * @return The copy.
+     */
+    public static CareGiver copyOf(CareGiver careGiver) {
+        return new CareGiver(careGiver.getCid(), careGiver.getFirstName(), careGiver.getSurname(),
+                careGiver.getTelephoneNumber());
+    }
+
     /**
      * Generates a <code>PreparedStatement</code> to query a careGiver by a given careGiver id (cid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param cid careGiver id to query.
      * @return <code>PreparedStatement</code> to query the careGiver.
      */
     @Override
-    protected PreparedStatement getReadByIDStatement(long cid) {
+    protected PreparedStatement getReadByIDStatement(Connection connection, long cid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "SELECT * FROM care_giver WHERE cid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, cid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -70,24 +129,21 @@ public class CareGiverDao extends DaoImp<CareGiver> {
      */
     @Override
     protected CareGiver getInstanceFromResultSet(ResultSet result) throws SQLException {
-        return new CareGiver(
-                result.getInt(1),
-                result.getString(2),
-                result.getString(3),
-                result.getString(4));
+        return MAPPER.map(result);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to query all CareGiver.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @return <code>PreparedStatement</code> to query all CareGiver.
      */
     @Override
-    protected PreparedStatement getReadAllStatement() {
+    protected PreparedStatement getReadAllStatement(Connection connection) {
         PreparedStatement statement = null;
         try {
             final String SQL = "SELECT * FROM care_giver";
-            statement = this.connection.prepareStatement(SQL);
+            statement = prepareStatement(connection, SQL);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -103,24 +159,19 @@ public class CareGiverDao extends DaoImp<CareGiver> {
      */
     @Override
     protected ArrayList<CareGiver> getListFromResultSet(ResultSet result) throws SQLException {
-        ArrayList<CareGiver> list = new ArrayList<>();
-        while (result.next()) {
-            CareGiver careGiver = new CareGiver(result.getInt(1), result.getString(2),
-                    result.getString(3), result.getString(4));
-            list.add(careGiver);
-        }
-        return list;
+        return MAPPER.mapAll(result);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to update the given careGiver, identified
      * by the id of the careGiver (cid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param careGiver careGiver object to update.
      * @return <code>PreparedStatement</code> to update the given careGiver.
      */
     @Override
-    protected PreparedStatement getUpdateStatement(CareGiver careGiver) {
+    protected PreparedStatement getUpdateStatement(Connection connection, CareGiver careGiver) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
@@ -129,7 +180,7 @@ public class CareGiverDao extends DaoImp<CareGiver> {
                             "surname = ?, " +
                             "telephone_number = ? " +
                             "WHERE cid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, careGiver.getFirstName());
             preparedStatement.setString(2, careGiver.getSurname());
             preparedStatement.setString(3, careGiver.getTelephoneNumber());
@@ -143,19 +194,43 @@ public class CareGiverDao extends DaoImp<CareGiver> {
     /**
      * Generates a <code>PreparedStatement</code> to delete a careGiver with the given id.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param cid Id of the careGiver to delete.
      * @return <code>PreparedStatement</code> to delete careGiver with the given id.
      */
     @Override
-    protected PreparedStatement getDeleteStatement(long cid) {
+    protected PreparedStatement getDeleteStatement(Connection connection, long cid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "DELETE FROM care_giver WHERE cid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, cid);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
         return preparedStatement;
     }
+
+    /**
+     * Lets the caregivers of one result read their treatments on first access, in batches of the caregivers of the result.
+     *
+     * @return Registers a read careGiver with the loader of the result.
+     */
+    @Override
+    protected Consumer<CareGiver> newReadPreparer() {
+        TreatmentBatchLoader loader = TreatmentBatchLoader.forCareGivers(this.treatmentDao);
+        return careGiver -> {
+            loader.register(careGiver.getCid());
+            careGiver.getTreatments().setLoader(loader, careGiver.getCid());
+        };
+    }
+
+    /**
+     * Marks the kept treatments of all loaders and the word counts of the search as outdated, because deleting a
+     * careGiver deletes its treatments as well.
+     */
+    @Override
+    protected void afterWrite() {
+        TreatmentDao.treatmentsChanged(this.pool);
+    }
 }
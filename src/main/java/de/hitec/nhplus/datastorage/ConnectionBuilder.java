@@ -7,47 +7,110 @@ import java.sql.SQLException;
 import org.sqlite.SQLiteConfig;
 /**
  *  Handles the Connection to the Database.
- *  Open/Closes the Connection to the Database and is used to Configure the connection.
+ *  Opens/Closes the Connection pool of the Database and is used to Configure the connections.
  * */
 public class ConnectionBuilder {
 
     private static final String DB_NAME = "nursingHome.db";
-    private static final String URL = "jdbc:sqlite:db/" + DB_NAME;
 
-    private static Connection connection;
+    /**
+     * Path of the database file, can be changed with the system property <code>nhplus.db.path</code> or with
+     * <code>setDatabasePath()</code>.
+     */
+    private static volatile String databasePath = System.getProperty("nhplus.db.path", "db/" + DB_NAME);
+
+    /**
+     * Number of read connections, can be changed with the system property <code>nhplus.db.poolSize</code>.
+     */
+    private static final int POOL_SIZE = Integer.getInteger("nhplus.db.poolSize", 4);
+
+    /**
+     * Number of cached statements per connection, can be changed with the system property
+     * <code>nhplus.db.statementCacheSize</code>.
+     */
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("nhplus.db.statementCacheSize", 32);
+
+    /**
+     * Milliseconds a connection waits for a lock held by another connection before failing with SQLITE_BUSY.
+     */
+    private static final int BUSY_TIMEOUT = 5000;
+
+    /**
+     * Milliseconds to wait for the slow-query log to write its last entries, when the pool is closed.
+     */
+    private static final long SLOW_QUERY_LOG_FLUSH_TIMEOUT = 1000;
+
+    private static volatile ConnectionPool pool;
 
 
     /**
-     * Handles Opening the Connection to the Database.
-     * Opens and Configures the Connection to the Database
-     * @return Returns the Connection.
+     * Handles Opening the Connection pool to the Database.
+     * Opens the pool on first use, brings the schema up to date and returns the pool afterwards.
+     * @return Returns the Connection pool.
      * */
-    synchronized public static Connection getConnection() {
+    synchronized public static ConnectionPool getPool() {
         try {
-            if (ConnectionBuilder.connection == null) {
-                SQLiteConfig configuration = new SQLiteConfig();
-                configuration.enforceForeignKeys(true);
-                ConnectionBuilder.connection = DriverManager.getConnection(URL, configuration.toProperties());
+            if (ConnectionBuilder.pool == null) {
+                ConnectionBuilder.pool = new ConnectionPool(POOL_SIZE, STATEMENT_CACHE_SIZE);
+                new SchemaMigrator().migrate(ConnectionBuilder.pool);
             }
         } catch (SQLException exception) {
             System.out.println("Verbindung zur Datenbank konnte nicht aufgebaut werden!");
             exception.printStackTrace();
         }
-        return ConnectionBuilder.connection;
+        return ConnectionBuilder.pool;
+    }
+
+    /**
+     * Switches to another database file, e.g. a temporary database for benchmarks. An open pool is closed, the next
+     * call of <code>getPool()</code> opens the new file and brings its schema up to date.
+     * @param path Path of the database file, it is created, if it does not exist.
+     * */
+    synchronized public static void setDatabasePath(String path) {
+        closeConnection();
+        ConnectionBuilder.databasePath = path;
     }
 
     /**
-     * Handles closing the connection to the Database.
-     * Trys to close the connection to the Database.
+     * Opens and Configures a single Connection to the Database.
+     * Write connections switch the database to WAL mode, so readers and the writer do not block each other.
+     * @param readOnly True for the read connections of the pool.
+     * @return Returns the new Connection.
+     * */
+    static Connection openConnection(boolean readOnly) throws SQLException {
+        SQLiteConfig configuration = new SQLiteConfig();
+        configuration.enforceForeignKeys(true);
+        configuration.setBusyTimeout(BUSY_TIMEOUT);
+        if (readOnly) {
+            configuration.setReadOnly(true);
+        } else {
+            configuration.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            configuration.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        }
+        return DriverManager.getConnection("jdbc:sqlite:" + databasePath, configuration.toProperties());
+    }
+
+    /**
+     * Returns the pool, if it is open, without opening it and without waiting for <code>closeConnection()</code>, e.g.
+     * for the writer thread of the slow-query log.
+     * @return The open pool or <code>null</code>.
+     * */
+    static ConnectionPool getOpenPool() {
+        return ConnectionBuilder.pool;
+    }
+
+    /**
+     * Handles closing the connections to the Database.
+     * Writes the remaining entries of the slow-query log, while their query plans can still be read, and trys to
+     * close all connections of the pool.
      * */
     synchronized public static void closeConnection() {
-        try {
-            if (ConnectionBuilder.connection != null) {
-                ConnectionBuilder.connection.close();
-                ConnectionBuilder.connection = null;
-            }
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+        SlowQueryLog.flush(SLOW_QUERY_LOG_FLUSH_TIMEOUT);
+        if (ConnectionBuilder.pool != null) {
+            ConnectionBuilder.pool.close();
+            ConnectionBuilder.pool = null;
         }
+        SlowQueryLog.clearPlans();
+        TreatmentDao.clearSearchStatistics();
     }
 }
@@ -0,0 +1,312 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A small pool of SQLite connections. The pool holds exactly one write connection, because SQLite only allows one
+ * writer at a time, and a configurable number of read-only connections, which can be used in parallel thanks to the
+ * WAL journal mode.
+ * <p>
+ * Connections are leased per unit of work and bound to the leasing thread. If a thread leases again while it already
+ * holds a suitable connection, it gets the same connection back, so nested DAO calls of one thread share a single
+ * connection. Reads inside a write lease use the write connection, to see the thread's own changes.
+ * <p>
+ * Every connection has its own <code>StatementCache</code>, so statements are prepared once per connection.
+ */
+public class ConnectionPool {
+
+    private final BlockingQueue<Connection> readConnections;
+    private final BlockingQueue<Connection> writeConnection = new ArrayBlockingQueue<>(1);
+    private final List<Connection> allConnections = new ArrayList<>();
+    private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+    private final ThreadLocal<Deque<Lease>> leases = ThreadLocal.withInitial(ArrayDeque::new);
+    private volatile boolean closed;
+
+    /**
+     * Opens the write connection and <code>size</code> read connections.
+     *
+     * @param size               Number of read connections.
+     * @param statementCacheSize Maximum number of cached statements per connection.
+     * @throws SQLException If a connection could not be opened.
+     */
+    public ConnectionPool(int size, int statementCacheSize) throws SQLException {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool needs at least one read connection.");
+        }
+        this.readConnections = new ArrayBlockingQueue<>(size);
+        try {
+            // The writer is opened first, because it switches the database to WAL mode.
+            Connection writer = ConnectionBuilder.openConnection(false);
+            register(writer, statementCacheSize);
+            this.writeConnection.add(writer);
+            for (int i = 0; i < size; i++) {
+                Connection reader = ConnectionBuilder.openConnection(true);
+                register(reader, statementCacheSize);
+                this.readConnections.add(reader);
+            }
+        } catch (SQLException exception) {
+            // Only the connections opened so far are closed, the pool itself was never handed out.
+            closeAll(this.statementCaches, this.allConnections);
+            throw exception;
+        }
+    }
+
+    private void register(Connection connection, int statementCacheSize) {
+        this.allConnections.add(connection);
+        this.statementCaches.put(connection, new StatementCache(connection, statementCacheSize));
+    }
+
+    /**
+     * Leases a connection for the current thread. The connection must be given back by calling
+     * <code>release()</code> on the same thread, preferably in a <code>finally</code> block.
+     *
+     * @param write True, if the unit of work changes data and needs the write connection.
+     * @return The leased connection.
+     * @throws SQLException If the pool is closed or the thread was interrupted while waiting.
+     */
+    public Connection acquire(boolean write) throws SQLException {
+        if (this.closed) {
+            throw new SQLException("The connection pool is closed.");
+        }
+        Deque<Lease> threadLeases = this.leases.get();
+        Lease current = threadLeases.peek();
+        if (current != null && (current.write || !write)) {
+            current.depth++;
+            return current.connection;
+        }
+        for (Lease lease : threadLeases) {
+            if (lease.write) {
+                // The thread already holds the writer further down, e.g. a read lease inside a transaction.
+                lease.depth++;
+                return lease.connection;
+            }
+        }
+        try {
+            Connection connection = write ? this.writeConnection.take() : this.readConnections.take();
+            threadLeases.push(new Lease(connection, write));
+            return connection;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", exception);
+        }
+    }
+
+    /**
+     * Gives back a connection leased by <code>acquire()</code>. The connection returns to the pool as soon as the
+     * outermost lease of the current thread is released.
+     *
+     * @param connection The connection to give back.
+     */
+    public void release(Connection connection) {
+        Deque<Lease> threadLeases = this.leases.get();
+        Iterator<Lease> iterator = threadLeases.iterator();
+        while (iterator.hasNext()) {
+            Lease lease = iterator.next();
+            if (lease.connection == connection) {
+                if (--lease.depth == 0) {
+                    iterator.remove();
+                    if (threadLeases.isEmpty()) {
+                        this.leases.remove();
+                    }
+                    (lease.write ? this.writeConnection : this.readConnections).add(connection);
+                }
+                return;
+            }
+        }
+        throw new IllegalStateException("The connection was not leased by the current thread.");
+    }
+
+    /**
+     * Leases the write connection and runs the given work in one transaction. The transaction is committed, if the
+     * work succeeds, and rolled back, if it throws an exception. If the current thread already is inside a
+     * transaction, the work runs inside a savepoint of it instead, so only the work of the inner scope is rolled back
+     * on failure and nothing is committed before the outermost scope ends. If ending the transaction fails after the
+     * work failed, that failure is added to the exception of the work as suppressed exception.
+     *
+     * @param work The work to run on the write connection.
+     * @param <R>  Type of the result of the work.
+     * @return The result of the work.
+     * @throws SQLException If the work or the commit fails.
+     */
+    public <R> R inTransaction(ConnectionWork<R> work) throws SQLException {
+        Connection connection = acquire(true);
+        Lease lease = findWriteLease();
+        boolean outermost = lease.transactionDepth == 0;
+        lease.transactionDepth++;
+        Savepoint savepoint = null;
+        Throwable failure = null;
+        try {
+            if (outermost) {
+                lease.transactionCallbacks = new ArrayList<>();
+                connection.setAutoCommit(false);
+            } else {
+                savepoint = connection.setSavepoint();
+            }
+            R result = work.execute(connection);
+            if (outermost) {
+                connection.commit();
+            } else {
+                connection.releaseSavepoint(savepoint);
+            }
+            return result;
+        } catch (Throwable exception) {
+            failure = exception;
+            try {
+                if (outermost) {
+                    connection.rollback();
+                } else if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+            } catch (SQLException rollbackException) {
+                exception.addSuppressed(rollbackException);
+            }
+            throw exception;
+        } finally {
+            lease.transactionDepth--;
+            try {
+                if (outermost) {
+                    endTransaction(connection, failure);
+                }
+            } finally {
+                release(connection);
+            }
+        }
+    }
+
+    /**
+     * Switches the connection back to auto-commit and runs the actions waiting for the end of the transaction. A
+     * failure is added to the given failure of the transaction, if there is one, so it does not replace it.
+     */
+    private void endTransaction(Connection connection, Throwable failure) throws SQLException {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException exception) {
+            if (failure == null) {
+                throw exception;
+            }
+            failure.addSuppressed(exception);
+        } finally {
+            runTransactionCallbacks();
+        }
+    }
+
+    /**
+     * Returns, whether the current thread is inside a transaction opened by <code>inTransaction()</code>.
+     *
+     * @return True, if the changes of the current thread are not committed yet.
+     */
+    public boolean isInTransaction() {
+        Lease lease = findWriteLease();
+        return lease != null && lease.transactionDepth > 0;
+    }
+
+    /**
+     * Runs the given action, after the transaction of the current thread ended, no matter if it was committed or
+     * rolled back. Outside a transaction, the action runs at once.
+     *
+     * @param action The action to run.
+     */
+    public void afterTransaction(Runnable action) {
+        Lease lease = findWriteLease();
+        if (lease != null && lease.transactionCallbacks != null) {
+            lease.transactionCallbacks.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    private void runTransactionCallbacks() {
+        Lease lease = findWriteLease();
+        List<Runnable> callbacks = lease.transactionCallbacks;
+        if (callbacks == null) {
+            return;
+        }
+        lease.transactionCallbacks = null;
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    private Lease findWriteLease() {
+        for (Lease lease : this.leases.get()) {
+            if (lease.write) {
+                return lease;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the statement cache of a connection of this pool.
+     *
+     * @param connection A connection leased from this pool.
+     * @return The <code>StatementCache</code> of the connection.
+     */
+    public StatementCache getStatementCache(Connection connection) {
+        StatementCache cache = this.statementCaches.get(connection);
+        if (cache == null) {
+            throw new IllegalArgumentException("The connection does not belong to this pool.");
+        }
+        return cache;
+    }
+
+    /**
+     * Closes all connections of the pool. Connections, which are leased at this moment, are closed as well.
+     */
+    public void close() {
+        this.closed = true;
+        closeAll(this.statementCaches, this.allConnections);
+    }
+
+    private static void closeAll(Map<Connection, StatementCache> statementCaches, List<Connection> connections) {
+        for (StatementCache cache : statementCaches.values()) {
+            cache.close();
+        }
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException exception) {
+                exception.printStackTrace();
+            }
+        }
+        connections.clear();
+    }
+
+    /**
+     * Work, which runs on a leased connection.
+     *
+     * @param <R> Type of the result of the work.
+     */
+    @FunctionalInterface
+    public interface ConnectionWork<R> {
+        R execute(Connection connection) throws SQLException;
+    }
+
+    /**
+     * A connection leased by one thread, together with the number of nested leases. The lease of the write connection
+     * also counts the nested transaction scopes and collects the actions to run after its transaction.
+     */
+    private static class Lease {
+        private final Connection connection;
+        private final boolean write;
+        private int depth = 1;
+        private int transactionDepth;
+        private List<Runnable> transactionCallbacks;
+
+        private Lease(Connection connection, boolean write) {
+            this.connection = connection;
+            this.write = write;
+        }
+    }
+}
@@ -1,19 +1,39 @@
 package de.hitec.nhplus.datastorage;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 /**
  * Interface to implement the DAO pattern
  * */
 public interface Dao<T> {
 
-    void create(T t) throws SQLException;
+    /**
+     * Persists the given object.
+     * @param t The object to persist.
+     * @return The persisted object with its generated ID.
+     * */
+    T create(T t) throws SQLException;
+
+    long[] createAll(Collection<T> ts) throws SQLException;
 
     T read(long key) throws SQLException;
 
     List<T> readAll() throws SQLException;
 
+    /**
+     * Streams all objects lazily from an open cursor, so only the rows of the current fetch are held in memory.
+     * The stream holds a database connection until it is exhausted or closed, it must be closed on the thread,
+     * which opened it, preferably with a try-with-resources statement.
+     * Errors while reading are thrown as <code>UncheckedSQLException</code>.
+     * @return A lazily populated <code>Stream</code> of all objects.
+     * */
+    Stream<T> stream() throws SQLException;
+
     void update(T t) throws SQLException;
 
+    void updateAll(Collection<T> ts) throws SQLException;
+
     void deleteById(long key) throws SQLException;
 }
@@ -0,0 +1,115 @@
+package de.hitec.nhplus.datastorage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.ArrayDeque;
+
+/**
+ * Java Flight Recorder event of one DAO call. The event is off by default and switched on by the settings of a
+ * recording, e.g. <code>doc/nhplus.jfc</code>. While it is off, a call costs one check of <code>isEnabled()</code>.
+ * <p>
+ * The calls are measured by their <code>OperationMetrics</code>, which only pass a start time from one end of the call
+ * to the other. An event therefore begins in <code>begin()</code> and waits on a small stack of the calling thread
+ * until <code>end()</code> commits it. A call, which ends on another thread than it began on, e.g. a stream closed by
+ * another thread, is not recorded.
+ * <p>
+ * The SQL of the call is taken from the trace of the <code>SlowQueryLog</code>. While the event is enabled, the
+ * <code>StatementCache</code> traces its statements, even if the log is off, so statements prepared before the
+ * recording started are traced from their next use on.
+ */
+@Name("de.hitec.nhplus.DaoCall")
+@Label("DAO-Aufruf")
+@Category({"NHPlus", "Datenbank"})
+@Description("Aufruf einer Methode eines DAO mit den ausgeführten SQL-Anweisungen")
+@Enabled(false)
+@StackTrace(false)
+final class DaoCallEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(DaoCallEvent.class);
+
+    /**
+     * Maximum number of open events per thread. Events of calls, which ended while the event was off, are never
+     * committed, so the stack is cleared, when it grows beyond any sensible nesting of calls.
+     */
+    private static final int MAX_OPEN_EVENTS = 16;
+
+    private static final ThreadLocal<ArrayDeque<DaoCallEvent>> OPEN_EVENTS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Label("Methode")
+    @Description("Name der DAO-Klasse und -Methode")
+    String operation;
+
+    @Label("SQL")
+    @Description("Die vom Aufruf ausgeführten SQL-Anweisungen")
+    String sql;
+
+    @Label("Zeilen")
+    @Description("Anzahl der gelesenen oder geschriebenen Zeilen, -1 wenn der Aufruf fehlschlug")
+    long rows;
+
+    private transient long start;
+
+    /**
+     * Returns, whether a running recording enables the event.
+     *
+     * @return True, if the event is enabled.
+     */
+    static boolean isRecorded() {
+        return TYPE.isEnabled();
+    }
+
+    /**
+     * Begins an event for a call, if the event is enabled.
+     *
+     * @param start Start time of the call from <code>System.nanoTime()</code>.
+     */
+    static void begin(long start) {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+        ArrayDeque<DaoCallEvent> events = OPEN_EVENTS.get();
+        if (events.size() >= MAX_OPEN_EVENTS) {
+            events.clear();
+        }
+        DaoCallEvent event = new DaoCallEvent();
+        event.start = start;
+        events.push(event);
+        event.begin();
+    }
+
+    /**
+     * Commits the event of a call, which began on this thread.
+     *
+     * @param operation Name of the DAO class and method.
+     * @param start     Start time of the call, as passed to <code>begin()</code>.
+     * @param rows      Number of rows read or written by the call, -1 if the call failed.
+     */
+    static void end(String operation, long start, long rows) {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+        ArrayDeque<DaoCallEvent> events = OPEN_EVENTS.get();
+        // Events, which began after this call, belong to nested calls, which ended while the event was off.
+        while (!events.isEmpty() && events.peek().start - start > 0) {
+            events.pop();
+        }
+        if (events.isEmpty() || events.peek().start != start) {
+            return;
+        }
+        DaoCallEvent event = events.pop();
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.sql = SlowQueryLog.statementsSince(start);
+            event.rows = rows;
+            event.commit();
+        }
+    }
+}
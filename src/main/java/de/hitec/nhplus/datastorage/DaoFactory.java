@@ -1,12 +1,36 @@
 package de.hitec.nhplus.datastorage;
 
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
 /**
  * Creates the DAO Objects to use.
+ * All DAOs share the connection pool of <code>ConnectionBuilder</code> and lease a connection per unit of work.
+ * PatientDaos and CareGiverDaos also share one cache per table.
  * */
 public class DaoFactory {
 
     private static DaoFactory instance;
 
+    /**
+     * Milliseconds to wait for pending mutations, when the mutation queue is shut down.
+     */
+    private static final long MUTATION_SHUTDOWN_TIMEOUT = 10000;
+
+    /**
+     * Maximum number of cached patients and careGivers each, can be changed with the system property
+     * <code>nhplus.db.entityCacheSize</code>.
+     */
+    private static final int ENTITY_CACHE_SIZE = Integer.getInteger("nhplus.db.entityCacheSize", 1024);
+
+    private final EntityCache<Patient> patientCache = new EntityCache<>(ENTITY_CACHE_SIZE, PatientDao::copyOf);
+    private final EntityCache<CareGiver> careGiverCache = new EntityCache<>(ENTITY_CACHE_SIZE, CareGiverDao::copyOf);
+    private MutationQueue mutationQueue;
+
     private DaoFactory() {
     }
 
@@ -21,12 +45,79 @@ public class DaoFactory {
         return DaoFactory.instance;
     }
 
+    /**
+     * Runs the given work as one unit of work. All DAO calls of the work share the write connection and are committed
+     * together at the end, or rolled back together, if the work throws an exception. Nested calls run inside a
+     * savepoint of the enclosing transaction.
+     * @param work The work to run, it gets this factory to create its DAOs.
+     * @return Returns the result of the work
+     * */
+    public <R> R inTransaction(TransactionWork<R> work) throws SQLException {
+        return ConnectionBuilder.getPool().inTransaction(connection -> work.execute(this));
+    }
+
+    /**
+     * Starts the queue, which writes the mutations of the user interface in the background.
+     * @param callbackExecutor Executor to complete the futures of the mutations with, e.g. <code>Platform::runLater</code>.
+     * @param failureHandler Gets the exception of every failed mutation, called through the callback executor.
+     * */
+    public synchronized void startMutationQueue(Executor callbackExecutor, Consumer<Throwable> failureHandler) {
+        if (this.mutationQueue == null) {
+            this.mutationQueue = new MutationQueue(callbackExecutor, failureHandler);
+        }
+    }
+
+    /**
+     * Returns the mutation queue. If it was not started before, it is started with callbacks on its writer thread.
+     * @return Returns the MutationQueue instance
+     * */
+    public synchronized MutationQueue getMutationQueue() {
+        if (this.mutationQueue == null) {
+            this.mutationQueue = new MutationQueue(Runnable::run, exception -> { });
+        }
+        return this.mutationQueue;
+    }
+
+    /**
+     * Writes the pending mutations and stops the mutation queue.
+     * */
+    public synchronized void shutdownMutationQueue() {
+        if (this.mutationQueue != null) {
+            this.mutationQueue.shutdown(MUTATION_SHUTDOWN_TIMEOUT);
+            this.mutationQueue = null;
+        }
+    }
+
+    /**
+     * Returns the cache shared by all PatientDaos, e.g. to read its hit and miss counters.
+     * @return Returns the cache of the patients
+     * */
+    public EntityCache<Patient> getPatientCache() {
+        return this.patientCache;
+    }
+
+    /**
+     * Returns the cache shared by all CareGiverDaos, e.g. to read its hit and miss counters.
+     * @return Returns the cache of the careGivers
+     * */
+    public EntityCache<CareGiver> getCareGiverCache() {
+        return this.careGiverCache;
+    }
+
+    /**
+     * Empties all caches, e.g. after the tables were changed without the DAOs.
+     * */
+    public void clearCaches() {
+        this.patientCache.clear();
+        this.careGiverCache.clear();
+    }
+
     /**
      * Creates a new TreatmentDao and returns it.
      * @return Returns the TreatmentDao instance
      * */
     public TreatmentDao createTreatmentDao() {
-        return new TreatmentDao(ConnectionBuilder.getConnection());
+        return new TreatmentDao(ConnectionBuilder.getPool());
     }
 
     /**
@@ -34,7 +125,7 @@ public class DaoFactory {
      * @return Returns the PatientDao instance
      *  */
     public PatientDao createPatientDAO() {
-        return new PatientDao(ConnectionBuilder.getConnection());
+        return new PatientDao(ConnectionBuilder.getPool(), this.patientCache);
     }
 
     /**
@@ -42,7 +133,7 @@ public class DaoFactory {
      * @return Returns the CareGiver instance
      * */
     public CareGiverDao createCareGiverDAO() {
-        return new CareGiverDao(ConnectionBuilder.getConnection());
+        return new CareGiverDao(ConnectionBuilder.getPool(), this.careGiverCache);
     }
 
     /**
@@ -50,6 +141,6 @@ public class DaoFactory {
      * @return Returns the UserDao instance
      * */
     public UserDao createUserDAO() {
-        return new UserDao(ConnectionBuilder.getConnection());
+        return new UserDao(ConnectionBuilder.getPool());
     }
 }
\ No newline at end of file
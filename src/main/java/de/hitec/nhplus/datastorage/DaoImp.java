@@ -2,46 +2,336 @@ package de.hitec.nhplus.datastorage;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 /**
  * Abstract class to use for the DAO Classes.
  * Implements and declares the needed methods.
+ * Every method leases a connection from the <code>ConnectionPool</code> for its unit of work and gives it back
+ * afterwards, so DAOs can be used from several threads at once. Statements come from the statement cache of the
+ * leased connection and stay open, every <code>ResultSet</code> is closed after reading.
+ * <p>
+ * Every method of the <code>Dao</code> interface records its calls, errors, rows and latency in the
+ * <code>DaoMetrics</code> of the DAO class. Subclasses run their own queries through <code>measure()</code> to be
+ * recorded as well.
  * */
 public abstract class DaoImp<T> implements Dao<T> {
-    protected Connection connection;
+    /**
+     * Default number of rows sent to the database in one JDBC batch.
+     * */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Default number of rows fetched from the database at once by the streams of this DAO.
+     * */
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    protected final ConnectionPool pool;
+    protected final DaoMetrics metrics;
+    private final EntityCache<T> cache;
+    private final OperationMetrics createMetrics;
+    private final OperationMetrics createAllMetrics;
+    private final OperationMetrics readMetrics;
+    private final OperationMetrics readAllMetrics;
+    private final OperationMetrics streamMetrics;
+    private final OperationMetrics updateMetrics;
+    private final OperationMetrics updateAllMetrics;
+    private final OperationMetrics deleteByIdMetrics;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    public DaoImp(ConnectionPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * Creates a DAO, which reads single objects through the given cache.
+     * @param pool Pool of <code>Connection</code>s to execute the SQL-statements.
+     * @param cache Cache shared by all DAOs of the table, or <code>null</code> to read from the database every time.
+     * */
+    public DaoImp(ConnectionPool pool, EntityCache<T> cache) {
+        this.pool = pool;
+        this.cache = cache;
+        this.metrics = DaoMetrics.of(getClass());
+        this.createMetrics = this.metrics.operation("create");
+        this.createAllMetrics = this.metrics.operation("createAll");
+        this.readMetrics = this.metrics.operation("read");
+        this.readAllMetrics = this.metrics.operation("readAll");
+        this.streamMetrics = this.metrics.operation("stream");
+        this.updateMetrics = this.metrics.operation("update");
+        this.updateAllMetrics = this.metrics.operation("updateAll");
+        this.deleteByIdMetrics = this.metrics.operation("deleteById");
+    }
+
+    /**
+     * Sets the number of rows, which <code>createAll()</code> and <code>updateAll()</code> send in one JDBC batch.
+     * @param batchSize The chunk size, at least 1.
+     * */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be at least 1.");
+        }
+        this.batchSize = batchSize;
+    }
 
-    public DaoImp(Connection connection) {
-        this.connection = connection;
+    /**
+     * Sets the number of rows, which the streams of this DAO fetch from the database at once.
+     * @param fetchSize The fetch size, at least 1.
+     * */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("The fetch size must be at least 1.");
+        }
+        this.fetchSize = fetchSize;
     }
     /**
      * This Methode gets and executes the Create SQL Statement.
+     * @param t The Object to create.
+     * @return The persisted Object with its generated ID. The key is read with <code>last_insert_rowid()</code> on
+     * the leased write connection, because the SQLite driver does not support <code>getGeneratedKeys()</code>.
+     * */
+    @Override
+    public T create(T t) throws SQLException {
+        long start = this.createMetrics.start();
+        try {
+            T persisted;
+            Connection connection = this.pool.acquire(true);
+            try {
+                getCreateStatement(connection, t).executeUpdate();
+                persisted = getPersistedInstance(t, readLastInsertedKey(connection));
+            } finally {
+                afterWrite();
+                this.pool.release(connection);
+            }
+            this.createMetrics.success(start, 1);
+            return persisted;
+        } catch (SQLException | RuntimeException exception) {
+            this.createMetrics.failure(start);
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the persisted version of a newly created object. Reads the row back by default, so values filled in by
+     * the database are included. DAOs, whose objects hold all columns, override this to copy the object instead.
+     * Runs while the write connection of <code>create()</code> is still leased.
+     * @param t The created Object.
+     * @param key The generated ID of the Object.
+     * */
+    protected T getPersistedInstance(T t, long key) throws SQLException {
+        return read(key);
+    }
+
+    /**
+     * Returns the preparation of the objects of one result, before <code>read()</code>, <code>readAll()</code> or
+     * <code>stream()</code> hands them out, e.g. to share one loader between them. A new one is asked for with every
+     * call, and for a stream once. Does nothing by default.
+     * @return Prepares one read or cached Object.
+     * */
+    protected Consumer<T> newReadPreparer() {
+        return t -> {
+        };
+    }
+
+    /**
+     * Called after the statements of <code>create()</code>, <code>createAll()</code>, <code>update()</code>,
+     * <code>updateAll()</code> or <code>deleteById()</code> were executed, also if they failed. Does nothing by
+     * default.
+     * */
+    protected void afterWrite() {
+    }
+    /**
+     * This Methode persists all given objects with JDBC batches of <code>batchSize</code> rows in one transaction.
+     * If the current thread is already inside a transaction, the rows become part of it.
+     * @param ts The Objects to create.
+     * @return The generated IDs in the order of the given objects. Autoincrement keys are handed out consecutively
+     * to the rows of a batch, because the write connection is exclusive for the transaction.
      * */
     @Override
-    public void create(T t) throws SQLException {
-        getCreateStatement(t).executeUpdate();
+    public long[] createAll(Collection<T> ts) throws SQLException {
+        long start = this.createAllMetrics.start();
+        long[] keys = new long[ts.size()];
+        try {
+            this.pool.inTransaction(connection -> {
+                PreparedStatement statement = null;
+                int index = 0;
+                int pending = 0;
+                for (T t : ts) {
+                    statement = getCreateStatement(connection, t);
+                    statement.addBatch();
+                    if (++pending == this.batchSize) {
+                        index = executeCreateBatch(connection, statement, keys, index, pending);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    executeCreateBatch(connection, statement, keys, index, pending);
+                }
+                afterWrite();
+                return null;
+            });
+        } catch (SQLException | RuntimeException exception) {
+            this.createAllMetrics.failure(start);
+            throw exception;
+        }
+        this.createAllMetrics.success(start, keys.length);
+        return keys;
+    }
+
+    /**
+     * Executes one batch of inserts and stores the generated keys of its rows.
+     * @return The index in <code>keys</code> for the next batch.
+     * */
+    private int executeCreateBatch(Connection connection, PreparedStatement statement, long[] keys, int index, int count)
+            throws SQLException {
+        statement.executeBatch();
+        long lastKey = readLastInsertedKey(connection);
+        for (int i = 0; i < count; i++) {
+            keys[index + i] = lastKey - count + 1 + i;
+        }
+        return index + count;
     }
+
+    /**
+     * Reads the key of the row inserted last on the given connection.
+     * @param connection The leased connection, which executed the insert.
+     * */
+    protected long readLastInsertedKey(Connection connection) throws SQLException {
+        try (ResultSet result = prepareStatement(connection, "SELECT last_insert_rowid()").executeQuery()) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
     /**
      * This Methode gets and executes the Read SQL Statement and Returns its results.
-     * Used to read a single records from a table.
+     * Used to read a single records from a table. If the DAO has a cache, the object is taken from the cache or put
+     * into it after reading. Objects read inside a transaction are not cached, because it could be rolled back.
      * @param key The ID of the Record to get.
      * */
     @Override
     public T read(long key) throws SQLException {
+        long start = this.readMetrics.start();
+        if (this.cache != null) {
+            T cached = this.cache.get(key);
+            if (cached != null) {
+                newReadPreparer().accept(cached);
+                this.readMetrics.success(start, 1);
+                return cached;
+            }
+        }
+        long generation = this.cache != null ? this.cache.getGeneration() : 0;
         T object = null;
-        ResultSet result = getReadByIDStatement(key).executeQuery();
-        if (result.next()) {
-            object = getInstanceFromResultSet(result);
+        try {
+            Connection connection = this.pool.acquire(false);
+            try (ResultSet result = getReadByIDStatement(connection, key).executeQuery()) {
+                if (result.next()) {
+                    object = getInstanceFromResultSet(result);
+                }
+            } finally {
+                this.pool.release(connection);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            this.readMetrics.failure(start);
+            throw exception;
+        }
+        if (object != null && this.cache != null && !this.pool.isInTransaction()) {
+            this.cache.put(key, object, generation);
+        }
+        if (object != null) {
+            newReadPreparer().accept(object);
         }
+        this.readMetrics.success(start, object != null ? 1 : 0);
         return object;
     }
     /**
      * This Methode gets and executes the read all SQL Statement and Returns its results.
-     * Used to read all records from a table.
+     * Used to read all records from a table. If the DAO has a cache, the read objects are put into it.
      * */
     @Override
     public List<T> readAll() throws SQLException {
-        return getListFromResultSet(getReadAllStatement().executeQuery());
+        long start = this.readAllMetrics.start();
+        long generation = this.cache != null ? this.cache.getGeneration() : 0;
+        List<T> objects;
+        try {
+            Connection connection = this.pool.acquire(false);
+            try (ResultSet result = getReadAllStatement(connection).executeQuery()) {
+                objects = getListFromResultSet(result);
+            } finally {
+                this.pool.release(connection);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            this.readAllMetrics.failure(start);
+            throw exception;
+        }
+        if (this.cache != null && !this.pool.isInTransaction()) {
+            for (T object : objects) {
+                this.cache.put(getKey(object), object, generation);
+            }
+        }
+        objects.forEach(newReadPreparer());
+        this.readAllMetrics.success(start, objects.size());
+        return objects;
+    }
+    /**
+     * This Methode gets and executes the read all SQL Statement and streams its results lazily.
+     * The call is measured until the stream is closed.
+     * */
+    @Override
+    public Stream<T> stream() throws SQLException {
+        return streamQuery(this::getReadAllStatement, this.streamMetrics);
+    }
+
+    /**
+     * Executes the query of the given statement and streams its results lazily from the open cursor. The statement
+     * is detached from the statement cache, while the stream is open, so other calls of this thread cannot close
+     * its <code>ResultSet</code>. The cursor, the statement and the leased connection are given back, when the
+     * stream is exhausted or closed.
+     * @param query Prepares the query on the leased connection.
+     * */
+    protected Stream<T> streamQuery(ConnectionPool.ConnectionWork<PreparedStatement> query) throws SQLException {
+        return streamQuery(query, null);
+    }
+
+    /**
+     * Streams the results of the given query like <code>streamQuery(query)</code> and records the call in the given
+     * metrics, when the stream is exhausted or closed.
+     * @param query Prepares the query on the leased connection.
+     * @param operation The metrics of the call, or <code>null</code>.
+     * */
+    protected Stream<T> streamQuery(ConnectionPool.ConnectionWork<PreparedStatement> query, OperationMetrics operation)
+            throws SQLException {
+        long start = operation != null ? operation.start() : 0;
+        Connection connection = this.pool.acquire(false);
+        StatementCache cache = this.pool.getStatementCache(connection);
+        PreparedStatement statement = null;
+        String sql = null;
+        ResultSet result;
+        try {
+            statement = query.execute(connection);
+            sql = cache.detach(statement);
+            statement.setFetchSize(this.fetchSize);
+            result = statement.executeQuery();
+        } catch (SQLException | RuntimeException exception) {
+            if (statement != null) {
+                cache.attach(sql, statement);
+            }
+            this.pool.release(connection);
+            if (operation != null) {
+                operation.failure(start);
+            }
+            throw exception;
+        }
+        Cursor cursor = new Cursor(connection, cache, sql, statement, result, operation, start, newReadPreparer());
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
     }
+
     /**
     * This Methode gets and executes the Update SQL Statement.
      * Used to Update a single record in a table.
@@ -49,8 +339,57 @@ public abstract class DaoImp<T> implements Dao<T> {
      *  */
     @Override
     public void update(T t) throws SQLException {
-        getUpdateStatement(t).executeUpdate();
+        long start = this.updateMetrics.start();
+        int rows;
+        try {
+            Connection connection = this.pool.acquire(true);
+            try {
+                rows = getUpdateStatement(connection, t).executeUpdate();
+            } finally {
+                invalidate(getKey(t));
+                afterWrite();
+                this.pool.release(connection);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            this.updateMetrics.failure(start);
+            throw exception;
+        }
+        this.updateMetrics.success(start, rows);
     }
+    /**
+     * This Methode updates all given objects with JDBC batches of <code>batchSize</code> rows in one transaction.
+     * If the current thread is already inside a transaction, the updates become part of it.
+     * @param ts The Objects to Update.
+     * */
+    @Override
+    public void updateAll(Collection<T> ts) throws SQLException {
+        long start = this.updateAllMetrics.start();
+        try {
+            this.pool.inTransaction(connection -> {
+                PreparedStatement statement = null;
+                int pending = 0;
+                for (T t : ts) {
+                    statement = getUpdateStatement(connection, t);
+                    statement.addBatch();
+                    invalidate(getKey(t));
+                    if (++pending == this.batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+                afterWrite();
+                return null;
+            });
+        } catch (SQLException | RuntimeException exception) {
+            this.updateAllMetrics.failure(start);
+            throw exception;
+        }
+        this.updateAllMetrics.success(start, ts.size());
+    }
+
     /**
      * This Methode gets and executes the delete SQL Statement.
      * Used to delete a single record in a table.
@@ -58,20 +397,165 @@ public abstract class DaoImp<T> implements Dao<T> {
      * */
     @Override
     public void deleteById(long key) throws SQLException {
-        getDeleteStatement(key).executeUpdate();
+        long start = this.deleteByIdMetrics.start();
+        int rows;
+        try {
+            Connection connection = this.pool.acquire(true);
+            try {
+                rows = getDeleteStatement(connection, key).executeUpdate();
+            } finally {
+                invalidate(key);
+                afterWrite();
+                this.pool.release(connection);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            this.deleteByIdMetrics.failure(start);
+            throw exception;
+        }
+        this.deleteByIdMetrics.success(start, rows);
     }
 
+    /**
+     * Removes the object with the given ID from the cache of the DAO. Inside a transaction, the object is removed
+     * again, when the transaction ended, because concurrent reads could have cached the state before the commit.
+     * @param key The ID of the changed object.
+     * */
+    private void invalidate(long key) {
+        if (this.cache != null) {
+            this.cache.invalidate(key);
+            this.pool.afterTransaction(() -> this.cache.invalidate(key));
+        }
+    }
+
+    /**
+     * Returns the cached <code>PreparedStatement</code> for the given SQL of the leased connection.
+     * The statement must not be closed by the caller.
+     * @param connection The leased connection.
+     * @param sql The SQL of the statement.
+     * */
+    protected PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        return this.pool.getStatementCache(connection).prepare(sql);
+    }
+
+    /**
+     * Runs a unit of work of a subclass, e.g. a query, on a leased connection and records it in the metrics of the
+     * given method, like the methods of the <code>Dao</code> interface.
+     * @param method Name of the method for the metrics.
+     * @param write True, if the work changes data and needs the write connection.
+     * @param work Executes the statements on the leased connection and maps their result.
+     * @param rows Returns the number of rows of the result.
+     * @return The result of the work.
+     * */
+    protected <R> R measure(String method, boolean write, ConnectionPool.ConnectionWork<R> work,
+                            ToLongFunction<? super R> rows) throws SQLException {
+        OperationMetrics operation = this.metrics.operation(method);
+        long start = operation.start();
+        R result;
+        try {
+            Connection connection = this.pool.acquire(write);
+            try {
+                result = work.execute(connection);
+            } finally {
+                this.pool.release(connection);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            operation.failure(start);
+            throw exception;
+        }
+        operation.success(start, rows.applyAsLong(result));
+        return result;
+    }
+
+    /**
+     * Spliterator over an open <code>ResultSet</code>, which maps one row per step.
+     * */
+    private class Cursor extends Spliterators.AbstractSpliterator<T> {
+        private final Connection connection;
+        private final StatementCache cache;
+        private final String sql;
+        private final PreparedStatement statement;
+        private final ResultSet result;
+        private final OperationMetrics operation;
+        private final long start;
+        private final Consumer<T> preparer;
+        private long rows;
+        private boolean failed;
+        private boolean closed;
+
+        private Cursor(Connection connection, StatementCache cache, String sql, PreparedStatement statement,
+                       ResultSet result, OperationMetrics operation, long start, Consumer<T> preparer) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.cache = cache;
+            this.sql = sql;
+            this.statement = statement;
+            this.result = result;
+            this.operation = operation;
+            this.start = start;
+            this.preparer = preparer;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (this.closed) {
+                return false;
+            }
+            try {
+                if (!this.result.next()) {
+                    // Give back the connection early, so an exhausted stream does not hold it until it is closed.
+                    close();
+                    return false;
+                }
+                this.rows++;
+                T object = getInstanceFromResultSet(this.result);
+                this.preparer.accept(object);
+                action.accept(object);
+                return true;
+            } catch (SQLException exception) {
+                this.failed = true;
+                close();
+                throw new UncheckedSQLException(exception);
+            }
+        }
+
+        private void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.result.close();
+            } catch (SQLException exception) {
+                exception.printStackTrace();
+            }
+            this.cache.attach(this.sql, this.statement);
+            DaoImp.this.pool.release(this.connection);
+            if (this.operation != null) {
+                if (this.failed) {
+                    this.operation.failure(this.start);
+                } else {
+                    this.operation.success(this.start, this.rows);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ID of the given object.
+     * */
+    protected abstract long getKey(T t);
+
     protected abstract T getInstanceFromResultSet(ResultSet set) throws SQLException;
 
     protected abstract ArrayList<T> getListFromResultSet(ResultSet set) throws SQLException;
 
-    protected abstract PreparedStatement getCreateStatement(T t);
+    protected abstract PreparedStatement getCreateStatement(Connection connection, T t);
 
-    protected abstract PreparedStatement getReadByIDStatement(long key);
+    protected abstract PreparedStatement getReadByIDStatement(Connection connection, long key);
 
-    protected abstract PreparedStatement getReadAllStatement();
+    protected abstract PreparedStatement getReadAllStatement(Connection connection);
 
-    protected abstract PreparedStatement getUpdateStatement(T t);
+    protected abstract PreparedStatement getUpdateStatement(Connection connection, T t);
 
-    protected abstract PreparedStatement getDeleteStatement(long key);
+    protected abstract PreparedStatement getDeleteStatement(Connection connection, long key);
 }
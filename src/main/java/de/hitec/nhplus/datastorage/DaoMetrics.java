@@ -0,0 +1,84 @@
+package de.hitec.nhplus.datastorage;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics of all methods of one DAO class. The metrics of every method are published as an MBean named
+ * <code>de.hitec.nhplus:type=Dao,dao=&lt;class&gt;,method=&lt;method&gt;</code>, so they can be watched live with
+ * JConsole. The publishing can be switched off with the system property <code>nhplus.metrics.jmx=false</code>.
+ * <p>
+ * All DAO objects of a class share one <code>DaoMetrics</code>, because <code>DaoFactory</code> creates a new DAO for
+ * every use.
+ */
+public class DaoMetrics {
+
+    private static final String DOMAIN = "de.hitec.nhplus";
+    private static final boolean JMX_ENABLED =
+            Boolean.parseBoolean(System.getProperty("nhplus.metrics.jmx", "true"));
+    private static final Map<Class<?>, DaoMetrics> DAOS = new ConcurrentHashMap<>();
+
+    private final String daoName;
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private DaoMetrics(String daoName) {
+        this.daoName = daoName;
+    }
+
+    /**
+     * Returns the metrics of the given DAO class, which are created on first use.
+     *
+     * @param daoClass The class of the DAO.
+     * @return The metrics shared by all DAOs of the class.
+     */
+    public static DaoMetrics of(Class<?> daoClass) {
+        return DAOS.computeIfAbsent(daoClass, type -> new DaoMetrics(type.getSimpleName()));
+    }
+
+    /**
+     * Returns the metrics of all DAO classes used so far.
+     */
+    public static Map<Class<?>, DaoMetrics> getAll() {
+        return Map.copyOf(DAOS);
+    }
+
+    /**
+     * Returns the metrics of the given method. They are created and published on first use, so callers should keep
+     * the returned object instead of looking it up per call.
+     *
+     * @param method Name of the method.
+     * @return The metrics of the method.
+     */
+    public OperationMetrics operation(String method) {
+        return this.operations.computeIfAbsent(method, this::register);
+    }
+
+    /**
+     * Returns the metrics of all methods used so far, keyed by the name of the method.
+     */
+    public Map<String, OperationMetrics> getOperations() {
+        return Map.copyOf(this.operations);
+    }
+
+    private OperationMetrics register(String method) {
+        OperationMetrics metrics = new OperationMetrics(this.daoName + "." + method);
+        if (JMX_ENABLED) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName(DOMAIN + ":type=Dao,dao=" + this.daoName + ",method=" + method);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(metrics, name);
+            } catch (JMException exception) {
+                // The metrics are still recorded, they are only missing in JConsole.
+                exception.printStackTrace();
+            }
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,138 @@
+package de.hitec.nhplus.datastorage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of persisted objects, keyed by their ID. The cache holds at most <code>capacity</code> objects
+ * and evicts the least recently used one, when a new object does not fit anymore. It is shared by all DAOs of a table
+ * and can be used from several threads.
+ * <p>
+ * Every invalidation increases the generation of the cache. An object read from the database is only put into the
+ * cache, if no invalidation happened since the read started, so a read running concurrently to an update cannot put
+ * the old state back into the cache.
+ * <p>
+ * The cached objects are mutable, e.g. rows of a table, which are edited in place. So the cache keeps its own copy of
+ * every object and hands out a new copy on every hit. The cached copies are never changed and can be copied by several
+ * threads at once.
+ *
+ * @param <T> Type of the cached objects.
+ */
+public class EntityCache<T> {
+
+    private final LinkedHashMap<Long, T> entities;
+    private final UnaryOperator<T> copy;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity Maximum number of cached objects.
+     * @param copy     Returns an independent copy of an object.
+     */
+    public EntityCache(int capacity, UnaryOperator<T> copy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1.");
+        }
+        this.copy = copy;
+        this.entities = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+                if (size() > capacity) {
+                    EntityCache.this.evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the cached object with the given ID and counts a hit or a miss.
+     *
+     * @param key ID of the object.
+     * @return A copy of the cached object or <code>null</code>, if it is not cached.
+     */
+    public T get(long key) {
+        T entity;
+        synchronized (this) {
+            entity = this.entities.get(key);
+            if (entity == null) {
+                this.misses++;
+                return null;
+            }
+            this.hits++;
+        }
+        return this.copy.apply(entity);
+    }
+
+    /**
+     * Returns the current generation, to be passed to <code>put()</code> after reading from the database.
+     *
+     * @return The number of invalidations so far.
+     */
+    public synchronized long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Caches a copy of the given object, if the cache was not invalidated since the given generation. The caller
+     * keeps the given object and may change it.
+     *
+     * @param key        ID of the object.
+     * @param entity     The object read from the database.
+     * @param generation Generation of the cache, when the read started.
+     */
+    public void put(long key, T entity, long generation) {
+        T copy = this.copy.apply(entity);
+        synchronized (this) {
+            if (this.generation == generation) {
+                this.entities.put(key, copy);
+            }
+        }
+    }
+
+    /**
+     * Removes the object with the given ID from the cache.
+     *
+     * @param key ID of the changed or deleted object.
+     */
+    public synchronized void invalidate(long key) {
+        this.generation++;
+        this.entities.remove(key);
+    }
+
+    /**
+     * Removes all objects from the cache.
+     */
+    public synchronized void clear() {
+        this.generation++;
+        this.entities.clear();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    public synchronized int size() {
+        return this.entities.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EntityCache[size=" + this.entities.size() + ", hits=" + this.hits + ", misses=" + this.misses
+                + ", evictions=" + this.evictions + "]";
+    }
+}
@@ -0,0 +1,211 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs the creates, updates and deletes of the DAOs one after another on a single background thread, so the thread
+ * calling them, usually the JavaFX Application Thread, never waits for a commit. Mutations are executed in the order
+ * they were submitted.
+ * <p>
+ * Every mutation returns a <code>CompletableFuture</code>, which is completed through the callback executor given to
+ * the constructor. With <code>Platform::runLater</code> as executor, all dependent actions and the failure handler
+ * run on the JavaFX Application Thread and may change the user interface.
+ * <p>
+ * An update, which follows a pending update of the same entity, replaces it instead of being queued, because only the
+ * latest state has to be written. Both callers get the same future.
+ */
+public class MutationQueue {
+
+    private final Executor callbackExecutor;
+    private final Consumer<Throwable> failureHandler;
+    private final Deque<Mutation<?>> pending = new ArrayDeque<>();
+    private final Thread writer;
+    private boolean shutdown;
+
+    /**
+     * Creates the queue and starts its writer thread.
+     *
+     * @param callbackExecutor Executor to complete the futures of the mutations with.
+     * @param failureHandler   Gets every exception of a failed mutation, called through the callback executor.
+     */
+    public MutationQueue(Executor callbackExecutor, Consumer<Throwable> failureHandler) {
+        this.callbackExecutor = callbackExecutor;
+        this.failureHandler = failureHandler;
+        this.writer = new Thread(this::run, "nhplus-mutations");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Persists the given object in the background.
+     *
+     * @param dao DAO to persist the object with.
+     * @param t   The object to persist.
+     * @return Future of the persisted object with its generated ID.
+     */
+    public <T> CompletableFuture<T> create(Dao<T> dao, T t) {
+        return submit(new Mutation<>(null, 0, () -> dao.create(t)));
+    }
+
+    /**
+     * Updates the given object in the background. Replaces a pending update of the same object.
+     *
+     * @param dao DAO to update the object with.
+     * @param t   The object to update.
+     * @param key ID of the object.
+     * @return Future, which is completed, once the update is committed.
+     */
+    public <T> CompletableFuture<Void> update(Dao<T> dao, T t, long key) {
+        synchronized (this.pending) {
+            Mutation<?> last = this.pending.peekLast();
+            if (last != null && last.updatedDao == dao.getClass() && last.key == key) {
+                @SuppressWarnings("unchecked")
+                Mutation<Void> update = (Mutation<Void>) last;
+                update.work = () -> {
+                    dao.update(t);
+                    return null;
+                };
+                return update.future;
+            }
+            return submit(new Mutation<>(dao.getClass(), key, () -> {
+                dao.update(t);
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Deletes the object with the given ID in the background.
+     *
+     * @param dao DAO to delete the object with.
+     * @param key ID of the object.
+     * @return Future, which is completed, once the delete is committed.
+     */
+    public CompletableFuture<Void> deleteById(Dao<?> dao, long key) {
+        return submit(new Mutation<>(null, 0, () -> {
+            dao.deleteById(key);
+            return null;
+        }));
+    }
+
+    /**
+     * Runs the given work in one transaction in the background, e.g. several mutations, which belong together.
+     *
+     * @param work The work to run.
+     * @return Future of the result of the work.
+     */
+    public <R> CompletableFuture<R> inTransaction(TransactionWork<R> work) {
+        return submit(new Mutation<>(null, 0, () -> DaoFactory.getDaoFactory().inTransaction(work)));
+    }
+
+    /**
+     * Stops accepting mutations and waits, until the pending mutations are written.
+     *
+     * @param timeoutMillis Maximum time to wait in milliseconds.
+     */
+    public void shutdown(long timeoutMillis) {
+        synchronized (this.pending) {
+            this.shutdown = true;
+            this.pending.notifyAll();
+        }
+        try {
+            this.writer.join(timeoutMillis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <R> CompletableFuture<R> submit(Mutation<R> mutation) {
+        synchronized (this.pending) {
+            if (this.shutdown) {
+                mutation.future.completeExceptionally(new RejectedExecutionException("The mutation queue is shut down."));
+                return mutation.future;
+            }
+            this.pending.addLast(mutation);
+            this.pending.notifyAll();
+        }
+        return mutation.future;
+    }
+
+    private void run() {
+        while (true) {
+            Mutation<?> mutation;
+            synchronized (this.pending) {
+                while (this.pending.isEmpty() && !this.shutdown) {
+                    try {
+                        this.pending.wait();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                }
+                mutation = this.pending.pollFirst();
+                if (mutation == null) {
+                    return;
+                }
+            }
+            execute(mutation);
+        }
+    }
+
+    /**
+     * Executes a mutation and completes its future. Every failure, errors included, fails only this mutation, so the
+     * writer thread keeps running for the following ones.
+     */
+    private <R> void execute(Mutation<R> mutation) {
+        R result;
+        try {
+            result = mutation.work.execute();
+        } catch (Throwable exception) {
+            exception.printStackTrace();
+            complete(mutation, () -> {
+                mutation.future.completeExceptionally(exception);
+                this.failureHandler.accept(exception);
+            });
+            return;
+        }
+        complete(mutation, () -> mutation.future.complete(result));
+    }
+
+    /**
+     * Passes the completion of a mutation to the callback executor. If the executor does not accept it, e.g. because
+     * the JavaFX toolkit has been shut down, the future is failed right here, so no caller waits forever.
+     */
+    private void complete(Mutation<?> mutation, Runnable completion) {
+        try {
+            this.callbackExecutor.execute(completion);
+        } catch (Throwable exception) {
+            exception.printStackTrace();
+            mutation.future.completeExceptionally(exception);
+        }
+    }
+
+    /**
+     * Work of a mutation.
+     */
+    @FunctionalInterface
+    private interface MutationWork<R> {
+        R execute() throws SQLException;
+    }
+
+    /**
+     * A queued mutation. Updates carry the class of their DAO and the key of their entity, to be coalesced.
+     */
+    private static class Mutation<R> {
+        private final Class<?> updatedDao;
+        private final long key;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private MutationWork<R> work;
+
+        private Mutation(Class<?> updatedDao, long key, MutationWork<R> work) {
+            this.updatedDao = updatedDao;
+            this.key = key;
+            this.work = work;
+        }
+    }
+}
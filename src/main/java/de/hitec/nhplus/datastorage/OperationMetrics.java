@@ -0,0 +1,136 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.utils.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of one method of one DAO class. Recording costs two calls of
+ * <code>System.nanoTime()</code> and a few atomic increments without locks, which is small compared to a statement
+ * executed by SQLite.
+ * <p>
+ * A call is measured like this:
+ * <pre>
+ * long start = metrics.start();
+ * try {
+ *     ...
+ *     metrics.success(start, rows);
+ * } catch (SQLException | RuntimeException exception) {
+ *     metrics.failure(start);
+ *     throw exception;
+ * }
+ * </pre>
+ * Calls slower than the threshold of the <code>SlowQueryLog</code> are logged there, and every call is recorded as
+ * <code>DaoCallEvent</code>, while the event is enabled in a Java Flight Recorder recording.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Creates empty metrics.
+     *
+     * @param name Name of the DAO class and method, e.g. <code>TreatmentDao.read</code>.
+     */
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the start time of a call.
+     *
+     * @return The current value of <code>System.nanoTime()</code>.
+     */
+    public long start() {
+        long start = System.nanoTime();
+        DaoCallEvent.begin(start);
+        return start;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param start The start time returned by <code>start()</code>.
+     * @param rows  Number of rows read or written by the call.
+     */
+    public void success(long start, long rows) {
+        long elapsed = System.nanoTime() - start;
+        this.latencies.record(elapsed);
+        this.calls.increment();
+        this.rows.add(rows);
+        SlowQueryLog.report(this.name, start, elapsed, rows);
+        DaoCallEvent.end(this.name, start, rows);
+    }
+
+    /**
+     * Records a call, which failed with an exception.
+     *
+     * @param start The start time returned by <code>start()</code>.
+     */
+    public void failure(long start) {
+        long elapsed = System.nanoTime() - start;
+        this.latencies.record(elapsed);
+        this.calls.increment();
+        this.errors.increment();
+        SlowQueryLog.report(this.name, start, elapsed, -1);
+        DaoCallEvent.end(this.name, start, -1);
+    }
+
+    @Override
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return this.errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return this.rows.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return this.latencies.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return this.latencies.getPercentile(0.50) / 1e3;
+    }
+
+    @Override
+    public double getP95Micros() {
+        return this.latencies.getPercentile(0.95) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return this.latencies.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return this.latencies.getMax() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        this.calls.reset();
+        this.errors.reset();
+        this.rows.reset();
+        this.latencies.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: calls=%d, errors=%d, rows=%d, p50=%.1fµs, p95=%.1fµs, p99=%.1fµs, max=%.1fµs",
+                this.name, getCalls(), getErrors(), getRows(), getP50Micros(), getP95Micros(), getP99Micros(), getMaxMicros());
+    }
+}
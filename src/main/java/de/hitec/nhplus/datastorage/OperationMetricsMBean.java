@@ -0,0 +1,28 @@
+package de.hitec.nhplus.datastorage;
+
+/**
+ * Management interface of <code>OperationMetrics</code>, as shown in JConsole. Durations are given in microseconds.
+ */
+public interface OperationMetricsMBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    long getRows();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP95Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    /**
+     * Clears the counters and the histogram.
+     */
+    void reset();
+}
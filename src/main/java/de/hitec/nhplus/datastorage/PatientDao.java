@@ -4,8 +4,8 @@ import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.utils.DateConverter;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Implements the Interface <code>DaoImp</code>. Overrides methods to generate specific <code>PreparedStatements</code>,
@@ -14,28 +14,60 @@ import java.util.ArrayList;
 public class PatientDao extends DaoImp<Patient> {
 
     /**
-     * The constructor initiates an object of <code>PatientDao</code> and passes the connection to its super class.
+     * Maps a row of the patient table to an object of <code>Patient</code>.
+     */
+    private static final RowMapper<Patient> MAPPER = new RowMapper<>((result, columns) -> new Patient(
+            result.getLong(columns[0]),
+            result.getString(columns[1]),
+            result.getString(columns[2]),
+            DateConverter.convertStringToLocalDate(result.getString(columns[3])),
+            result.getString(columns[4]),
+            result.getString(columns[5])),
+            "pid", "firstname", "surname", "dateOfBirth", "carelevel", "roomnumber");
+
+    /**
+     * Reads the treatments of the patients for their loaders.
+     */
+    private final TreatmentDao treatmentDao;
+
+    /**
+     * The constructor initiates an object of <code>PatientDao</code> and passes the connection pool and the cache to its
+     * super class.
+     *
+     * @param pool Pool of <code>Connection</code>s to execute the SQL-statements.
+     * @param cache Cache of the patients, shared by all <code>PatientDao</code>s.
+     */
+    public PatientDao(ConnectionPool pool, EntityCache<Patient> cache) {
+        super(pool, cache);
+        this.treatmentDao = new TreatmentDao(pool);
+    }
+
+    /**
+     * Returns the patient id (pid) of the given patient.
      *
-     * @param connection Object of <code>Connection</code> to execute the SQL-statements.
+     * @param patient The patient.
+     * @return The patient id (pid).
      */
-    public PatientDao(Connection connection) {
-        super(connection);
+    @Override
+    protected long getKey(Patient patient) {
+        return patient.getPid();
     }
 
 
     /**
      * Generates a <code>PreparedStatement</code> to persist the given object of <code>Patient</code>.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param patient Object of <code>Patient</code> to persist.
      * @return <code>PreparedStatement</code> to insert the given patient.
      */
     @Override
-    protected PreparedStatement getCreateStatement(Patient patient) {
+    protected PreparedStatement getCreateStatement(Connection connection, Patient patient) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "INSERT INTO patient (firstname, surname, dateOfBirth, carelevel, roomnumber) " +
                     "VALUES (?, ?, ?, ?, ?)";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, patient.getFirstName());
             preparedStatement.setString(2, patient.getSurname());
             preparedStatement.setString(3, patient.getDateOfBirth());
@@ -47,18 +79,48 @@ public class PatientDao extends DaoImp<Patient> {
         return preparedStatement;
     }
 
+    /**
+     * Copies the given patient with its generated patient id (pid).
+     *
+     * @param patient The created patient.
+     * @param pid The generated patient id.
+     * @return The persisted patient.
+     */
+    @Override
+    protected Patient getPersistedInstance(Patient patient, long pid) {
+        Patient persisted = new Patient(pid, patient.getFirstName(), patient.getSurname(),
+                DateConverter.convertStringToLocalDate(patient.getDateOfBirth()), patient.getCareLevel(),
+                patient.getRoomNumber());
+        newReadPreparer().accept(persisted);
+        return persisted;
+    }
+
+    /**
+     * Returns an independent copy of the given patient without its treatments, e.g. for the cache of the patients or
+     * for a queued update, which must not see later edits of the shown patient.
+     *
+     * @param patient The patient.
+     * @return The copy.
+     */
+    public static Patient copyOf(Patient patient) {
+        return new Patient(patient.getPid(), patient.getFirstName(), patient.getSurname(),
+                DateConverter.convertStringToLocalDate(patient.getDateOfBirth()), patient.getCareLevel(),
+                patient.getRoomNumber());
+    }
+
     /**
      * Generates a <code>PreparedStatement</code> to query a patient by a given patient id (pid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param pid Patient id to query.
      * @return <code>PreparedStatement</code> to query the patient.
      */
     @Override
-    protected PreparedStatement getReadByIDStatement(long pid) {
+    protected PreparedStatement getReadByIDStatement(Connection connection, long pid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "SELECT * FROM patient WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, pid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -74,26 +136,21 @@ public class PatientDao extends DaoImp<Patient> {
      */
     @Override
     protected Patient getInstanceFromResultSet(ResultSet result) throws SQLException {
-        return new Patient(
-                result.getInt(1),
-                result.getString(2),
-                result.getString(3),
-                DateConverter.convertStringToLocalDate(result.getString(4)),
-                result.getString(5),
-                result.getString(6));
+        return MAPPER.map(result);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to query all patients.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @return <code>PreparedStatement</code> to query all patients.
      */
     @Override
-    protected PreparedStatement getReadAllStatement() {
+    protected PreparedStatement getReadAllStatement(Connection connection) {
         PreparedStatement statement = null;
         try {
             final String SQL = "SELECT * FROM patient";
-            statement = this.connection.prepareStatement(SQL);
+            statement = prepareStatement(connection, SQL);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -109,26 +166,19 @@ public class PatientDao extends DaoImp<Patient> {
      */
     @Override
     protected ArrayList<Patient> getListFromResultSet(ResultSet result) throws SQLException {
-        ArrayList<Patient> list = new ArrayList<>();
-        while (result.next()) {
-            LocalDate date = DateConverter.convertStringToLocalDate(result.getString(4));
-            Patient patient = new Patient(result.getInt(1), result.getString(2),
-                    result.getString(3), date,
-                    result.getString(5), result.getString(6));
-            list.add(patient);
-        }
-        return list;
+        return MAPPER.mapAll(result);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to update the given patient, identified
      * by the id of the patient (pid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param patient Patient object to update.
      * @return <code>PreparedStatement</code> to update the given patient.
      */
     @Override
-    protected PreparedStatement getUpdateStatement(Patient patient) {
+    protected PreparedStatement getUpdateStatement(Connection connection, Patient patient) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
@@ -139,7 +189,7 @@ public class PatientDao extends DaoImp<Patient> {
                             "carelevel = ?, " +
                             "roomnumber = ? " +
                             "WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, patient.getFirstName());
             preparedStatement.setString(2, patient.getSurname());
             preparedStatement.setString(3, patient.getDateOfBirth());
@@ -155,19 +205,43 @@ public class PatientDao extends DaoImp<Patient> {
     /**
      * Generates a <code>PreparedStatement</code> to delete a patient with the given id.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param pid Id of the patient to delete.
      * @return <code>PreparedStatement</code> to delete patient with the given id.
      */
     @Override
-    protected PreparedStatement getDeleteStatement(long pid) {
+    protected PreparedStatement getDeleteStatement(Connection connection, long pid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "DELETE FROM patient WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, pid);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
         return preparedStatement;
     }
+
+    /**
+     * Lets the patients of one result read their treatments on first access, in batches of the patients of the result.
+     *
+     * @return Registers a read patient with the loader of the result.
+     */
+    @Override
+    protected Consumer<Patient> newReadPreparer() {
+        TreatmentBatchLoader loader = TreatmentBatchLoader.forPatients(this.treatmentDao);
+        return patient -> {
+            loader.register(patient.getPid());
+            patient.getTreatments().setLoader(loader, patient.getPid());
+        };
+    }
+
+    /**
+     * Marks the kept treatments of all loaders and the word counts of the search as outdated, because deleting a
+     * patient deletes its treatments as well.
+     */
+    @Override
+    protected void afterWrite() {
+        TreatmentDao.treatmentsChanged(this.pool);
+    }
 }
@@ -0,0 +1,115 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the query plan of SQL statements with <code>EXPLAIN QUERY PLAN</code>, to find queries, which scan a whole
+ * table instead of searching an index.
+ * <p>
+ * If the system property <code>nhplus.db.checkQueryPlans</code> is set to <code>true</code>, every filtered query
+ * is checked, when it is prepared for the first time, and a warning is printed for each full table scan.
+ */
+public class QueryPlan {
+
+    /**
+     * True, if prepared queries are checked for full table scans.
+     */
+    public static final boolean CHECK_ENABLED = Boolean.getBoolean("nhplus.db.checkQueryPlans");
+
+    /**
+     * Step on a virtual table with a non-zero index number or a non-empty index string, i.e. with constraints the
+     * virtual table uses itself. FTS5 tables describe them in the string, <code>fts5vocab</code> tables in the number.
+     */
+    private static final Pattern CONSTRAINED_VIRTUAL_TABLE =
+            Pattern.compile(" VIRTUAL TABLE INDEX (?:[1-9]\\d*:|\\d+:\\S)");
+
+    /**
+     * Returns the steps of the query plan of the given SQL. Parameters of the SQL are bound to <code>NULL</code>,
+     * which does not change the plan.
+     *
+     * @param connection Connection to explain the query with.
+     * @param sql        SQL of the query.
+     * @return The detail column of every step of the plan.
+     * @throws SQLException If the query cannot be explained.
+     */
+    public static List<String> explain(Connection connection, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    plan.add(result.getString("detail"));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the steps of a query plan, which scan a whole table or index. A step on a virtual table, which passes
+     * constraints to the table, e.g. a <code>MATCH</code> on a full-text index, is a search of that index and no
+     * scan. Reading the rows of a subquery is no scan either, the subquery itself is checked by its own steps.
+     *
+     * @param plan The query plan, as returned by <code>explain()</code>.
+     * @return The scanning steps, empty if the query only searches indexes.
+     */
+    public static List<String> findScans(List<String> plan) {
+        List<String> scans = new ArrayList<>();
+        Set<String> subqueries = new HashSet<>();
+        for (String step : plan) {
+            if (step.startsWith("CO-ROUTINE ") || step.startsWith("MATERIALIZE ")) {
+                subqueries.add(step.substring(step.indexOf(' ') + 1));
+            } else if (step.startsWith("SCAN ") && !subqueries.contains(step.substring(5))
+                    && !CONSTRAINED_VIRTUAL_TABLE.matcher(step).find()) {
+                scans.add(step);
+            }
+        }
+        return scans;
+    }
+
+    /**
+     * Prints a warning for every full scan in the plan of the given query, see <code>findScans(connection, sql)</code>.
+     *
+     * @param connection Connection to explain the query with.
+     * @param sql        SQL of the query.
+     */
+    static void check(Connection connection, String sql) {
+        try {
+            for (String scan : findScans(connection, sql)) {
+                System.out.println("Warnung: Abfrage durchsucht die ganze Tabelle (" + scan + "): " + sql);
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the full scans in the plan of the given query. Queries without a <code>WHERE</code> clause are skipped,
+     * because they read the whole table anyway.
+     *
+     * @param connection Connection to explain the query with.
+     * @param sql        SQL of the query.
+     * @return The scanning steps, empty if the query only searches indexes or is not filtered.
+     * @throws SQLException If the query cannot be explained.
+     */
+    static List<String> findScans(Connection connection, String sql) throws SQLException {
+        String normalized = sql.toUpperCase(Locale.ROOT);
+        if (!normalized.startsWith("SELECT") || !normalized.contains(" WHERE ")) {
+            return List.of();
+        }
+        return findScans(explain(connection, sql));
+    }
+}
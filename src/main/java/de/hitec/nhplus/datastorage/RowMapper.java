@@ -0,0 +1,121 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Maps the rows of a <code>ResultSet</code> to objects. The columns are named once, when the mapper is created, and
+ * looked up in the <code>ResultSetMetaData</code> once per query instead of once per row and column. The decoder then
+ * reads every column by its resolved index, so the mapping of a row is written once for single rows, lists and
+ * streams, and does not depend on the order of the columns in the query.
+ * <p>
+ * The indexes of the last <code>ResultSetMetaData</code> are kept, so rows of a cached statement, which are mapped
+ * one at a time, e.g. by a stream, are not resolved again. A mapper can be shared by several threads.
+ *
+ * @param <T> Type of the mapped objects.
+ */
+public class RowMapper<T> {
+
+    /**
+     * Decodes the current row of a <code>ResultSet</code>.
+     *
+     * @param <T> Type of the decoded objects.
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+
+        /**
+         * Decodes the current row.
+         *
+         * @param result  ResultSet positioned on the row.
+         * @param columns Indexes of the named columns in the <code>ResultSet</code>, in the order of the names.
+         * @return The decoded object.
+         */
+        T decode(ResultSet result, int[] columns) throws SQLException;
+    }
+
+    private final String[] columnNames;
+    private final Decoder<T> decoder;
+    private volatile Resolved resolved;
+
+    /**
+     * Creates a mapper.
+     *
+     * @param decoder     Decodes a row with the indexes of the named columns.
+     * @param columnNames Names or labels of the columns read by the decoder, ignoring case.
+     */
+    public RowMapper(Decoder<T> decoder, String... columnNames) {
+        this.decoder = decoder;
+        this.columnNames = columnNames.clone();
+    }
+
+    /**
+     * Maps the current row of the given <code>ResultSet</code>.
+     *
+     * @param result ResultSet positioned on a row.
+     * @return The mapped object.
+     */
+    public T map(ResultSet result) throws SQLException {
+        return this.decoder.decode(result, resolve(result));
+    }
+
+    /**
+     * Maps all remaining rows of the given <code>ResultSet</code>.
+     *
+     * @param result ResultSet before the first row to map.
+     * @return <code>ArrayList</code> with the mapped objects in the order of the rows.
+     */
+    public ArrayList<T> mapAll(ResultSet result) throws SQLException {
+        ArrayList<T> list = new ArrayList<>();
+        int[] columns = resolve(result);
+        while (result.next()) {
+            list.add(this.decoder.decode(result, columns));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the indexes of the named columns in the given <code>ResultSet</code>.
+     *
+     * @throws SQLException If a named column is not part of the result.
+     */
+    private int[] resolve(ResultSet result) throws SQLException {
+        ResultSetMetaData metaData = result.getMetaData();
+        Resolved last = this.resolved;
+        if (last != null && last.metaData == metaData) {
+            return last.columns;
+        }
+        HashMap<String, Integer> indexes = new HashMap<>();
+        for (int index = metaData.getColumnCount(); index >= 1; index--) {
+            // Walking backwards keeps the first of several columns with the same label, like findColumn().
+            indexes.put(metaData.getColumnLabel(index).toLowerCase(Locale.ROOT), index);
+        }
+        int[] columns = new int[this.columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            Integer index = indexes.get(this.columnNames[i].toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new SQLException("Column " + this.columnNames[i] + " is not part of the result.");
+            }
+            columns[i] = index;
+        }
+        this.resolved = new Resolved(metaData, columns);
+        return columns;
+    }
+
+    /**
+     * Column indexes resolved for one <code>ResultSetMetaData</code>.
+     */
+    private static class Resolved {
+        private final ResultSetMetaData metaData;
+        private final int[] columns;
+
+        private Resolved(ResultSetMetaData metaData, int[] columns) {
+            this.metaData = metaData;
+            this.columns = columns;
+        }
+    }
+}
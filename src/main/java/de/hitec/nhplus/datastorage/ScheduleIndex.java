@@ -0,0 +1,306 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.utils.IntervalTree;
+import de.hitec.nhplus.utils.LongObjectMap;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * In-memory schedule of the treatments, to find the treatments, which overlap a planned treatment of the same
+ * caregiver or the same patient. Every caregiver and every patient has an <code>IntervalTree</code> of their
+ * treatments, with the times stored as minutes since 1970-01-01, so one tree covers all days.
+ * <p>
+ * The treatments are read with <code>TreatmentDao.readByDateRange()</code> one month at a time by a <code>Reload</code>
+ * in a background thread: <code>prepareLoad()</code> reads a month, before the first treatment in it is checked, and
+ * <code>prepareReload()</code> reads the loaded months again, to pick up changes made elsewhere, so the index is kept
+ * and the months need not be read again, when a treatment is checked. Changes of treatments must be passed to
+ * <code>put()</code> and <code>remove()</code>. The index is not thread-safe and meant to be used on the JavaFX
+ * Application Thread, which never waits for the database.
+ */
+public class ScheduleIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final TreatmentDao dao;
+    private final LongObjectMap<IntervalTree<Treatment>> byCareGiver = new LongObjectMap<>();
+    private final LongObjectMap<IntervalTree<Treatment>> byPatient = new LongObjectMap<>();
+    private final LongObjectMap<Treatment> byTid = new LongObjectMap<>();
+    // The treatments of every loaded month
+    private final Map<YearMonth, LongObjectMap<Treatment>> months = new HashMap<>();
+
+    // Number of the last put() or remove(), and the number of the last change of every treatment changed while a
+    // reload is pending, so the reload does not overwrite the change with the older state it read
+    private long changes;
+    private final LongObjectMap<Long> changedAt = new LongObjectMap<>();
+    // Treatments put while a reload is pending into a month, which was not loaded yet, so the reload adds them
+    private final LongObjectMap<Treatment> putWhileLoading = new LongObjectMap<>();
+    private int pendingReloads;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param dao DAO to read the treatments with.
+     */
+    public ScheduleIndex(TreatmentDao dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Returns, whether the treatments of a month are read, so treatments in it can be checked.
+     *
+     * @param month The month.
+     * @return True, if a load or reload of the month was applied.
+     */
+    public boolean isLoaded(YearMonth month) {
+        return this.months.containsKey(month);
+    }
+
+    /**
+     * Returns all treatments, which overlap the given treatment and have the same caregiver or the same patient. The
+     * given treatment itself is not returned, so a changed treatment does not conflict with its old state.
+     *
+     * @param treatment The new or changed treatment, with a tid of 0, if it is not persisted yet.
+     * @return The conflicting treatments, ordered by begin, first those of the caregiver, then those of the patient.
+     * @throws IllegalStateException If the month of the treatment is not loaded, see <code>isLoaded()</code>.
+     */
+    public List<Treatment> findConflicts(Treatment treatment) {
+        YearMonth month = YearMonth.from(treatment.getLocalDate());
+        if (!isLoaded(month)) {
+            throw new IllegalStateException("Die Behandlungen im " + month + " sind noch nicht gelesen.");
+        }
+        long begin = beginOf(treatment);
+        long end = endOf(treatment);
+        List<Treatment> conflicts = new ArrayList<>();
+        addOverlapping(conflicts, this.byCareGiver.get(treatment.getCid()), begin, end, treatment.getTid());
+        addOverlapping(conflicts, this.byPatient.get(treatment.getPid()), begin, end, treatment.getTid());
+        return conflicts;
+    }
+
+    private static void addOverlapping(List<Treatment> conflicts, IntervalTree<Treatment> tree, long begin, long end,
+                                       long ignoredTid) {
+        if (tree == null) {
+            return;
+        }
+        for (Treatment overlapping : tree.findOverlapping(begin, end)) {
+            if (overlapping.getTid() != ignoredTid && !conflicts.contains(overlapping)) {
+                conflicts.add(overlapping);
+            }
+        }
+    }
+
+    /**
+     * Adds a created treatment or replaces the old state of a changed treatment. Treatments in months, which are not
+     * loaded yet, are skipped, because they are read with their month, unless the month is being read already.
+     *
+     * @param treatment The persisted treatment.
+     */
+    public void put(Treatment treatment) {
+        remove(treatment.getTid());
+        LongObjectMap<Treatment> month = this.months.get(YearMonth.from(treatment.getLocalDate()));
+        if (month != null) {
+            index(treatment, month);
+        } else if (this.pendingReloads > 0) {
+            this.putWhileLoading.put(treatment.getTid(), treatment);
+        }
+    }
+
+    /**
+     * Removes a deleted treatment.
+     *
+     * @param tid Id of the treatment.
+     */
+    public void remove(long tid) {
+        this.changes++;
+        if (this.pendingReloads > 0) {
+            this.changedAt.put(tid, this.changes);
+            this.putWhileLoading.remove(tid);
+        }
+        unindex(tid);
+    }
+
+    /**
+     * Prepares reading months, which are not loaded yet. The returned load must be read in a background thread and
+     * then passed to <code>apply()</code>, or to <code>discard()</code>, if reading failed.
+     *
+     * @param months Months to read.
+     * @return The load of the months.
+     */
+    public Reload prepareLoad(YearMonth... months) {
+        this.pendingReloads++;
+        return new Reload(this.dao, new LinkedHashSet<>(List.of(months)), this.changes);
+    }
+
+    /**
+     * Prepares reading the loaded months and the given ones again. The returned reload must be read in a background
+     * thread and then passed to <code>apply()</code>, or to <code>discard()</code>, if reading failed.
+     *
+     * @param preloaded Months to read in advance, so the first check of a treatment in them needs no query.
+     * @return The reload of the months.
+     */
+    public Reload prepareReload(YearMonth... preloaded) {
+        Set<YearMonth> reloaded = new LinkedHashSet<>(this.months.keySet());
+        reloaded.addAll(List.of(preloaded));
+        this.pendingReloads++;
+        return new Reload(this.dao, reloaded, this.changes);
+    }
+
+    /**
+     * Brings the read months up to date: treatments, which were read, are added or replaced, and treatments, which
+     * were not read anymore, are removed. Treatments changed by <code>put()</code> or <code>remove()</code> after the
+     * reload was prepared keep their newer state.
+     *
+     * @param reload A reload of this index, which was read.
+     */
+    public void apply(Reload reload) {
+        for (Map.Entry<YearMonth, List<Treatment>> entry : reload.read.entrySet()) {
+            LongObjectMap<Treatment> month = this.months.computeIfAbsent(entry.getKey(), key -> new LongObjectMap<>());
+            LongObjectMap<Treatment> read = new LongObjectMap<>(entry.getValue().size());
+            for (Treatment treatment : entry.getValue()) {
+                read.put(treatment.getTid(), treatment);
+            }
+            List<Treatment> gone = new ArrayList<>();
+            month.forEach((treatment, tid) -> {
+                if (!read.containsKey(tid)) {
+                    gone.add(treatment);
+                }
+            });
+            for (Treatment treatment : gone) {
+                if (!changedSince(treatment.getTid(), reload.changes)) {
+                    unindex(treatment.getTid());
+                }
+            }
+            for (Treatment treatment : entry.getValue()) {
+                Treatment indexed = this.byTid.get(treatment.getTid());
+                if (!changedSince(treatment.getTid(), reload.changes)
+                        && (indexed == null || !sameSchedule(indexed, treatment))) {
+                    unindex(treatment.getTid());
+                    index(treatment, month);
+                }
+            }
+            // The read state of these treatments is older than the put one.
+            List<Treatment> put = new ArrayList<>();
+            this.putWhileLoading.forEach((treatment, tid) -> {
+                if (YearMonth.from(treatment.getLocalDate()).equals(entry.getKey())) {
+                    put.add(treatment);
+                }
+            });
+            for (Treatment treatment : put) {
+                this.putWhileLoading.remove(treatment.getTid());
+                index(treatment, month);
+            }
+        }
+        finish();
+    }
+
+    /**
+     * Drops a reload, which could not be read.
+     *
+     * @param reload A reload of this index.
+     */
+    public void discard(Reload reload) {
+        finish();
+    }
+
+    private void finish() {
+        if (--this.pendingReloads == 0) {
+            this.changedAt.clear();
+            this.putWhileLoading.clear();
+        }
+    }
+
+    private boolean changedSince(long tid, long changes) {
+        Long changed = this.changedAt.get(tid);
+        return changed != null && changed > changes;
+    }
+
+    /**
+     * Returns, whether both states of a treatment are indexed and reported the same way.
+     */
+    private static boolean sameSchedule(Treatment indexed, Treatment read) {
+        return indexed.getCid() == read.getCid() && indexed.getPid() == read.getPid()
+                && indexed.getLocalDate().equals(read.getLocalDate())
+                && indexed.getLocalBegin().equals(read.getLocalBegin())
+                && indexed.getLocalEnd().equals(read.getLocalEnd())
+                && Objects.equals(indexed.getDescription(), read.getDescription());
+    }
+
+    private void index(Treatment treatment, LongObjectMap<Treatment> month) {
+        long begin = beginOf(treatment);
+        long end = endOf(treatment);
+        treeOf(this.byCareGiver, treatment.getCid()).add(begin, end, treatment.getTid(), treatment);
+        treeOf(this.byPatient, treatment.getPid()).add(begin, end, treatment.getTid(), treatment);
+        this.byTid.put(treatment.getTid(), treatment);
+        month.put(treatment.getTid(), treatment);
+    }
+
+    private void unindex(long tid) {
+        Treatment old = this.byTid.remove(tid);
+        if (old == null) {
+            return;
+        }
+        long begin = beginOf(old);
+        this.byCareGiver.get(old.getCid()).remove(begin, tid);
+        this.byPatient.get(old.getPid()).remove(begin, tid);
+        this.months.get(YearMonth.from(old.getLocalDate())).remove(tid);
+    }
+
+    private static IntervalTree<Treatment> treeOf(LongObjectMap<IntervalTree<Treatment>> trees, long key) {
+        IntervalTree<Treatment> tree = trees.get(key);
+        if (tree == null) {
+            tree = new IntervalTree<>();
+            trees.put(key, tree);
+        }
+        return tree;
+    }
+
+    private static long beginOf(Treatment treatment) {
+        return toMinutes(treatment.getLocalDate(), treatment.getLocalBegin());
+    }
+
+    private static long endOf(Treatment treatment) {
+        return toMinutes(treatment.getLocalDate(), treatment.getLocalEnd());
+    }
+
+    private static long toMinutes(LocalDate date, LocalTime time) {
+        return date.toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Months of a <code>ScheduleIndex</code> read for the first time or again, see <code>prepareLoad()</code> and
+     * <code>prepareReload()</code>.
+     */
+    public static final class Reload {
+        private final TreatmentDao dao;
+        private final Set<YearMonth> months;
+        private final long changes;
+        private final Map<YearMonth, List<Treatment>> read = new HashMap<>();
+
+        private Reload(TreatmentDao dao, Set<YearMonth> months, long changes) {
+            this.dao = dao;
+            this.months = months;
+            this.changes = changes;
+        }
+
+        /**
+         * Reads the treatments of the months. Meant to be called in a background thread.
+         *
+         * @throws SQLException If the treatments could not be read.
+         */
+        public void read() throws SQLException {
+            for (YearMonth month : this.months) {
+                this.read.put(month, this.dao.readByDateRange(month.atDay(1), month.atEndOfMonth()));
+            }
+        }
+    }
+}
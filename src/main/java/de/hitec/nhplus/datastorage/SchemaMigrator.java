@@ -0,0 +1,209 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date. The schema version of a database is stored in its header as
+ * <code>PRAGMA user_version</code>. Every migration has a version number and is applied exactly once, in ascending
+ * order and inside its own transaction, so a failed migration leaves the database at the previous version.
+ * <p>
+ * Migrations only add to the schema and never drop data. New migrations are appended to <code>MIGRATIONS</code>
+ * with the next version number, existing migrations must not be changed anymore.
+ */
+public class SchemaMigrator {
+
+    // The integer columns of a written treatment, computed like the backfill of migration 2
+    private static final String NEW_TREATMENT_DAY = "CAST(julianday(new.treatment_date) - 2440587.5 AS INTEGER)";
+    private static final String NEW_BEGIN_MINUTE =
+            "CAST(substr(new.begin, 1, 2) AS INTEGER) * 60 + CAST(substr(new.begin, 4, 2) AS INTEGER)";
+    private static final String NEW_END_MINUTE =
+            "CAST(substr(new.end, 1, 2) AS INTEGER) * 60 + CAST(substr(new.end, 4, 2) AS INTEGER)";
+
+    /**
+     * Condition and body of a trigger on <code>treatment</code>, which sets the integer columns of the written row.
+     */
+    private static final String DERIVE_TREATMENT_TIMES =
+            "WHEN new.treatment_day IS NOT " + NEW_TREATMENT_DAY +
+                    "   OR new.begin_minute IS NOT " + NEW_BEGIN_MINUTE +
+                    "   OR new.end_minute IS NOT " + NEW_END_MINUTE + " BEGIN " +
+                    "   UPDATE treatment SET " +
+                    "       treatment_day = " + NEW_TREATMENT_DAY + ", " +
+                    "       begin_minute = " + NEW_BEGIN_MINUTE + ", " +
+                    "       end_minute = " + NEW_END_MINUTE +
+                    "   WHERE tid = new.tid; " +
+                    "END";
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Basisschema und Indizes",
+                    "CREATE TABLE IF NOT EXISTS patient (" +
+                            "   pid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   firstname TEXT NOT NULL, " +
+                            "   surname TEXT NOT NULL, " +
+                            "   dateOfBirth TEXT NOT NULL, " +
+                            "   carelevel TEXT NOT NULL, " +
+                            "   roomnumber TEXT NOT NULL " +
+                            ")",
+                    "CREATE TABLE IF NOT EXISTS care_giver (" +
+                            "   cid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   firstname TEXT NOT NULL, " +
+                            "   surname TEXT NOT NULL, " +
+                            "   telephone_number TEXT NOT NULL " +
+                            ")",
+                    "CREATE TABLE IF NOT EXISTS treatment (" +
+                            "   tid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   pid INTEGER NOT NULL, " +
+                            "   caregiver_id INTEGER, " +
+                            "   treatment_date TEXT NOT NULL, " +
+                            "   begin TEXT NOT NULL, " +
+                            "   end TEXT NOT NULL, " +
+                            "   description TEXT NOT NULL, " +
+                            "   remark TEXT NOT NULL," +
+                            "   FOREIGN KEY (pid) REFERENCES patient (pid) ON DELETE CASCADE, " +
+                            "   FOREIGN KEY (caregiver_id) REFERENCES care_giver (cid) ON DELETE CASCADE " +
+                            ")",
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                            "   uid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   username TEXT UNIQUE NOT NULL, " +
+                            "   password_hash TEXT NOT NULL, " +
+                            "   first_name TEXT NOT NULL, " +
+                            "   last_name TEXT NOT NULL, " +
+                            "   is_admin INTEGER DEFAULT 0, " +
+                            "   is_active INTEGER DEFAULT 1, " +
+                            "   created_at TEXT DEFAULT CURRENT_TIMESTAMP, " +
+                            "   last_login TEXT " +
+                            ")",
+                    // Treatments of a patient, ordered by date. The tid is part of every index as rowid.
+                    "CREATE INDEX IF NOT EXISTS idx_treatment_pid_date ON treatment (pid, treatment_date)",
+                    // Treatments of a caregiver, also used by the cascading delete of a caregiver.
+                    "CREATE INDEX IF NOT EXISTS idx_treatment_caregiver_date ON treatment (caregiver_id, treatment_date)",
+                    // Active users, ordered by username.
+                    "CREATE INDEX IF NOT EXISTS idx_users_active_username ON users (is_active, username)"),
+            new Migration(2, "Behandlungszeiten als Ganzzahlen",
+                    // Epoch day of the date and minute of the day of begin and end, so they are read without parsing.
+                    "ALTER TABLE treatment ADD COLUMN treatment_day INTEGER",
+                    "ALTER TABLE treatment ADD COLUMN begin_minute INTEGER",
+                    "ALTER TABLE treatment ADD COLUMN end_minute INTEGER",
+                    "UPDATE treatment SET " +
+                            "   treatment_day = CAST(julianday(treatment_date) - 2440587.5 AS INTEGER), " +
+                            "   begin_minute = CAST(substr(begin, 1, 2) AS INTEGER) * 60 + CAST(substr(begin, 4, 2) AS INTEGER), " +
+                            "   end_minute = CAST(substr(end, 1, 2) AS INTEGER) * 60 + CAST(substr(end, 4, 2) AS INTEGER)",
+                    "DROP INDEX IF EXISTS idx_treatment_pid_date",
+                    "DROP INDEX IF EXISTS idx_treatment_caregiver_date",
+                    "CREATE INDEX idx_treatment_pid_day ON treatment (pid, treatment_day)",
+                    "CREATE INDEX idx_treatment_caregiver_day ON treatment (caregiver_id, treatment_day, begin_minute)",
+                    "CREATE INDEX idx_treatment_day ON treatment (treatment_day, begin_minute)"),
+            new Migration(3, "Volltextsuche über Behandlungen",
+                    // External content table: the index refers to the rows of treatment and stores no copy of the text.
+                    "CREATE VIRTUAL TABLE treatment_fts USING fts5(description, remark, " +
+                            "content='treatment', content_rowid='tid', tokenize='unicode61 remove_diacritics 2')",
+                    // The triggers keep the index in sync with every change of a treatment.
+                    "CREATE TRIGGER treatment_fts_insert AFTER INSERT ON treatment BEGIN " +
+                            "   INSERT INTO treatment_fts (rowid, description, remark) " +
+                            "   VALUES (new.tid, new.description, new.remark); " +
+                            "END",
+                    "CREATE TRIGGER treatment_fts_delete AFTER DELETE ON treatment BEGIN " +
+                            "   INSERT INTO treatment_fts (treatment_fts, rowid, description, remark) " +
+                            "   VALUES ('delete', old.tid, old.description, old.remark); " +
+                            "END",
+                    "CREATE TRIGGER treatment_fts_update AFTER UPDATE OF description, remark ON treatment BEGIN " +
+                            "   INSERT INTO treatment_fts (treatment_fts, rowid, description, remark) " +
+                            "   VALUES ('delete', old.tid, old.description, old.remark); " +
+                            "   INSERT INTO treatment_fts (rowid, description, remark) " +
+                            "   VALUES (new.tid, new.description, new.remark); " +
+                            "END",
+                    // Indexes the treatments, which existed before this migration.
+                    "INSERT INTO treatment_fts (treatment_fts) VALUES ('rebuild')"),
+            new Migration(4, "Wortliste der Volltextsuche",
+                    // Lists the words of the index, so the search can look up the words beginning with the last one.
+                    "CREATE VIRTUAL TABLE treatment_fts_terms USING fts5vocab(treatment_fts, instance)"),
+            new Migration(5, "Ranking der Volltextsuche",
+                    // Counts the treatments containing each word, for the inverse document frequency of the ranking.
+                    "CREATE VIRTUAL TABLE treatment_fts_rows USING fts5vocab(treatment_fts, row)",
+                    // Matches in the description weigh twice as much as matches in the remark.
+                    "INSERT INTO treatment_fts (treatment_fts, rank) VALUES ('rank', 'bm25(2.0, 1.0)')"),
+            new Migration(6, "Behandlungszeiten durch Trigger abgeleitet",
+                    // Derive the integer columns like migration 2, when a treatment is written without the DAO, e.g. by
+                    // an older version. Rows written by the DAO already have the right values and are not updated.
+                    "CREATE TRIGGER treatment_days_insert AFTER INSERT ON treatment " + DERIVE_TREATMENT_TIMES,
+                    "CREATE TRIGGER treatment_days_update AFTER UPDATE OF treatment_date, begin, end ON treatment " +
+                            DERIVE_TREATMENT_TIMES)
+    );
+
+    /**
+     * Applies all migrations, which are newer than the schema version of the database.
+     *
+     * @param pool Pool to lease the write connection from.
+     * @throws SQLException If a migration fails. The database stays at the version of the last successful migration.
+     */
+    public void migrate(ConnectionPool pool) throws SQLException {
+        for (Migration migration : MIGRATIONS) {
+            pool.inTransaction(connection -> {
+                // Read inside the transaction, so two processes cannot apply the same migration.
+                if (readVersion(connection) < migration.version) {
+                    try (Statement statement = connection.createStatement()) {
+                        for (String sql : migration.statements) {
+                            statement.execute(sql);
+                        }
+                        statement.execute("PRAGMA user_version = " + migration.version);
+                    }
+                    System.out.println("Datenbankschema auf Version " + migration.version + " aktualisiert: "
+                            + migration.description);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Returns the version of the newest migration.
+     *
+     * @return The schema version, which <code>migrate()</code> brings the database to.
+     */
+    public int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Reads the schema version of the database.
+     *
+     * @param connection The connection to read the version with.
+     * @return The schema version, 0 for a database without any migration.
+     */
+    public static int readVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Resets the schema version of the database to 0, so all migrations are applied again. Only useful after all
+     * tables were dropped.
+     *
+     * @param connection The write connection.
+     */
+    public static void resetVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA user_version = 0");
+        }
+    }
+
+    /**
+     * A numbered list of DDL statements.
+     */
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
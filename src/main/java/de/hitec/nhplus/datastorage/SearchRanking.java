@@ -0,0 +1,286 @@
+package de.hitec.nhplus.datastorage;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Ranks the matches of a full-text search and cuts their snippets, like the FTS5 functions <code>bm25()</code> and
+ * <code>snippet()</code> do, for searches with too many matches to rank them in the index. The inverse document
+ * frequencies of the words are passed in, so a rare word weighs more than a frequent one, like in <code>bm25()</code>.
+ * <p>
+ * Texts are split into words like by the tokenizer <code>unicode61 remove_diacritics 2</code> of the index: letters
+ * and digits form words, case and diacritics are ignored. The last word of the query also matches longer words, as
+ * the search works while typing.
+ */
+final class SearchRanking {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * Number of words in a snippet, like the last argument of <code>snippet()</code>.
+     */
+    private static final int SNIPPET_WORDS = 10;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Smallest inverse document frequency, like in <code>bm25()</code>, so a word in most rows still counts a little.
+     */
+    private static final double MIN_IDF = 1e-6;
+
+    private final String[] words;
+    private final double[] inverseDocumentFrequencies;
+    private final double[] columnWeights;
+
+    /**
+     * Creates the ranking of a query.
+     *
+     * @param words                      Normalized words of the query, see <code>words()</code>. The last one is a
+     *                                   prefix.
+     * @param inverseDocumentFrequencies Inverse document frequency of every word, see
+     *                                   <code>inverseDocumentFrequency()</code>.
+     * @param columnWeights              Weight of a match in each searched column.
+     */
+    SearchRanking(List<String> words, double[] inverseDocumentFrequencies, double... columnWeights) {
+        this.words = words.toArray(new String[0]);
+        this.inverseDocumentFrequencies = inverseDocumentFrequencies.clone();
+        this.columnWeights = columnWeights.clone();
+    }
+
+    /**
+     * Computes the inverse document frequency of a word like <code>bm25()</code>.
+     *
+     * @param rows         Number of rows of the index.
+     * @param matchingRows Number of rows containing the word.
+     * @return The inverse document frequency, at least <code>MIN_IDF</code>.
+     */
+    static double inverseDocumentFrequency(long rows, long matchingRows) {
+        double idf = Math.log((rows - matchingRows + 0.5) / (matchingRows + 0.5));
+        return idf > 0 ? idf : MIN_IDF;
+    }
+
+    /**
+     * Splits a text into normalized words, in lower case and without diacritics.
+     *
+     * @param text Text to split.
+     * @return The words in the order of the text.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (int[] word : findWords(text)) {
+            words.add(normalize(text.substring(word[0], word[1])));
+        }
+        return words;
+    }
+
+    /**
+     * Ranks matches by the frequency of the words of the query, weighted by column, by the inverse document frequency
+     * of the word and relative to the length of the match. Matches with equal scores keep their order.
+     *
+     * @param matches The searched columns of every match, in the order of the column weights.
+     * @param limit   Maximum number of ranked matches.
+     * @return Indexes of at most <code>limit</code> matches, the best match first.
+     */
+    int[] rank(List<String[]> matches, int limit) {
+        int count = matches.size();
+        double[] frequencies = new double[count * this.words.length];
+        int[] lengths = new int[count];
+        long totalLength = 0;
+        for (int i = 0; i < count; i++) {
+            String[] columns = matches.get(i);
+            for (int column = 0; column < columns.length; column++) {
+                List<String> words = words(columns[column] == null ? "" : columns[column]);
+                lengths[i] += words.size();
+                for (String word : words) {
+                    for (int w = 0; w < this.words.length; w++) {
+                        if (matches(word, w)) {
+                            frequencies[i * this.words.length + w] += this.columnWeights[column];
+                        }
+                    }
+                }
+            }
+            totalLength += lengths[i];
+        }
+        double averageLength = count == 0 ? 1 : Math.max(1, (double) totalLength / count);
+        double[] scores = new double[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            double norm = K1 * (1 - B + B * lengths[i] / averageLength);
+            for (int w = 0; w < this.words.length; w++) {
+                double frequency = frequencies[i * this.words.length + w];
+                scores[i] += this.inverseDocumentFrequencies[w] * frequency * (K1 + 1) / (frequency + norm);
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -scores[i]));
+        int[] best = new int[Math.min(limit, count)];
+        for (int i = 0; i < best.length; i++) {
+            best[i] = order[i];
+        }
+        return best;
+    }
+
+    /**
+     * Cuts the snippet of a match: the <code>SNIPPET_WORDS</code> words of a column with the most different words of
+     * the query. The found words are enclosed in square brackets, cut off text is marked by an ellipsis.
+     *
+     * @param columns The searched columns of the match.
+     * @return The snippet, empty if no column contains a word.
+     */
+    String snippet(String[] columns) {
+        String bestText = "";
+        List<int[]> bestWords = List.of();
+        int bestStart = 0;
+        int bestScore = -1;
+        for (String text : columns) {
+            List<int[]> found = text == null ? List.of() : findWords(text);
+            for (int start = 0; start < found.size() && (start == 0 || start + SNIPPET_WORDS <= found.size());
+                 start++) {
+                int score = score(text, found, start);
+                if (score > bestScore) {
+                    bestText = text;
+                    bestWords = found;
+                    bestStart = start;
+                    bestScore = score;
+                }
+            }
+        }
+        if (bestWords.isEmpty()) {
+            return "";
+        }
+        bestStart = center(bestText, bestWords, bestStart);
+        int end = Math.min(bestStart + SNIPPET_WORDS, bestWords.size());
+        StringBuilder snippet = new StringBuilder();
+        if (bestStart > 0) {
+            snippet.append('…');
+        }
+        int position = bestWords.get(bestStart)[0];
+        for (int i = bestStart; i < end; i++) {
+            int[] word = bestWords.get(i);
+            snippet.append(bestText, position, word[0]);
+            String original = bestText.substring(word[0], word[1]);
+            if (matchesAny(normalize(original))) {
+                snippet.append('[').append(original).append(']');
+            } else {
+                snippet.append(original);
+            }
+            position = word[1];
+        }
+        if (end < bestWords.size()) {
+            snippet.append('…');
+        } else {
+            snippet.append(bestText, position, bestText.length());
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Scores a snippet by the number of different words of the query first and then by the number of found words.
+     */
+    private int score(String text, List<int[]> found, int start) {
+        int end = Math.min(start + SNIPPET_WORDS, found.size());
+        boolean[] seen = new boolean[this.words.length];
+        int different = 0;
+        int hits = 0;
+        for (int i = start; i < end; i++) {
+            String word = normalize(text.substring(found.get(i)[0], found.get(i)[1]));
+            for (int w = 0; w < this.words.length; w++) {
+                if (matches(word, w)) {
+                    hits++;
+                    if (!seen[w]) {
+                        seen[w] = true;
+                        different++;
+                    }
+                }
+            }
+        }
+        return different * (SNIPPET_WORDS + 1) + hits;
+    }
+
+    /**
+     * Moves a snippet, so the found words are in its middle, like <code>snippet()</code> does.
+     *
+     * @return The index of the first word of the moved snippet.
+     */
+    private int center(String text, List<int[]> found, int start) {
+        int end = Math.min(start + SNIPPET_WORDS, found.size());
+        int first = -1;
+        int last = -1;
+        for (int i = start; i < end; i++) {
+            if (matchesAny(normalize(text.substring(found.get(i)[0], found.get(i)[1])))) {
+                first = first < 0 ? i : first;
+                last = i;
+            }
+        }
+        if (first < 0) {
+            return start;
+        }
+        int centered = first - (SNIPPET_WORDS - (last - first + 1)) / 2;
+        return Math.max(0, Math.min(centered, found.size() - SNIPPET_WORDS));
+    }
+
+    private boolean matches(String word, int index) {
+        return index == this.words.length - 1 ? word.startsWith(this.words[index]) : word.equals(this.words[index]);
+    }
+
+    private boolean matchesAny(String word) {
+        for (int w = 0; w < this.words.length; w++) {
+            if (matches(word, w)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the words of a text.
+     *
+     * @return Start and end offset of every word.
+     */
+    private static List<int[]> findWords(String text) {
+        List<int[]> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (isWordCharacter(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                words.add(new int[]{start, i});
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            words.add(new int[]{start, text.length()});
+        }
+        return words;
+    }
+
+    private static boolean isWordCharacter(int codePoint) {
+        return switch (Character.getType(codePoint)) {
+            case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+                 Character.MODIFIER_LETTER, Character.OTHER_LETTER, Character.DECIMAL_DIGIT_NUMBER,
+                 Character.LETTER_NUMBER, Character.OTHER_NUMBER, Character.NON_SPACING_MARK,
+                 Character.COMBINING_SPACING_MARK, Character.PRIVATE_USE -> true;
+            default -> false;
+        };
+    }
+
+    private static String normalize(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) > 0x7f) {
+                String decomposed = Normalizer.normalize(word, Normalizer.Form.NFD);
+                return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+            }
+        }
+        return word.toLowerCase(Locale.ROOT);
+    }
+}
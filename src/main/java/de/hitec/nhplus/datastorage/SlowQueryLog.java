@@ -0,0 +1,373 @@
+package de.hitec.nhplus.datastorage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Log of DAO calls, which take longer than a threshold. Every entry holds the time, the DAO method, the elapsed time
+ * and the number of rows of the call, and the SQL, the bound parameters and the query plan of every statement the call
+ * executed, so a frozen terminal can be traced back to its query.
+ * <p>
+ * The log is configured with system properties:
+ * <ul>
+ *     <li><code>nhplus.db.slowQueryMillis</code>: threshold in milliseconds. The log is off by default and when the
+ *     value is negative, because tracing wraps every statement.</li>
+ *     <li><code>nhplus.db.slowQueryLog</code>: path of the log file, <code>logs/slow-queries.log</code> by
+ *     default.</li>
+ *     <li><code>nhplus.db.slowQueryLogSize</code>: size in bytes, at which the file is rotated, 5 MB by default.
+ *     <code>LOG_FILES</code> files are kept.</li>
+ * </ul>
+ * The statements of the <code>StatementCache</code> are wrapped by <code>TimedStatement</code>, which notes every
+ * execution in a small trace per thread. The DAO calls are measured by their <code>OperationMetrics</code>, which hand
+ * slow calls to <code>report()</code>. A SQLite query computes its rows while they are read, so the time of the whole
+ * call, reading the rows included, is the time of its queries.
+ * <p>
+ * Entries are handed to a background thread, which reads the query plans, writes and rotates the file, so neither a
+ * plan nor a slow disk slows down the DAOs and the threads calling them. If the writer cannot keep up, entries are
+ * dropped and counted instead of blocking.
+ */
+public class SlowQueryLog {
+
+    /**
+     * Threshold in nanoseconds, negative if the log is off.
+     */
+    static final long THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("nhplus.db.slowQueryMillis", -1));
+
+    /**
+     * True, if statements are measured and slow ones are logged.
+     */
+    public static final boolean ENABLED = THRESHOLD_NANOS >= 0;
+
+    private static final Path LOG_FILE = Path.of(System.getProperty("nhplus.db.slowQueryLog",
+            "logs/slow-queries.log"));
+    private static final long MAX_FILE_SIZE = Long.getLong("nhplus.db.slowQueryLogSize", 5 * 1024 * 1024);
+
+    /**
+     * Number of log files kept, the current one included.
+     */
+    private static final int LOG_FILES = 4;
+
+    /**
+     * Number of executions remembered per thread. A DAO call executes one to three statements.
+     */
+    private static final int TRACE_SIZE = 16;
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    /**
+     * Matches SQL on the users table, whose parameters hold names and password hashes.
+     */
+    private static final Pattern USERS_TABLE = Pattern.compile("\\busers\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final BlockingQueue<Entry> ENTRIES = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final AtomicLong PENDING = new AtomicLong();
+
+    /**
+     * Query plans by SQL. A plan is explained once per SQL, because the parameters do not change it.
+     */
+    private static final Map<String, List<String>> PLANS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Trace> TRACES = ThreadLocal.withInitial(Trace::new);
+
+    private static Thread writer;
+
+    /**
+     * Ring buffer of the last executions of a thread.
+     */
+    private static final class Trace {
+        private final long[] times = new long[TRACE_SIZE];
+        private final String[] sqls = new String[TRACE_SIZE];
+        private final Object[][] parameters = new Object[TRACE_SIZE][];
+        private final long[] rows = new long[TRACE_SIZE];
+        private int next;
+    }
+
+    /**
+     * A slow call and the executions of its statements, formatted by the writer thread.
+     */
+    private static final class Entry {
+        private final String header;
+        private final List<String> sqls = new ArrayList<>();
+        private final List<Object[]> parameters = new ArrayList<>();
+        private final List<Long> rows = new ArrayList<>();
+
+        private Entry(String header) {
+            this.header = header;
+        }
+    }
+
+    /**
+     * Wraps a prepared statement, so its executions are traced, if the log is enabled or a recording enables the
+     * <code>DaoCallEvent</code>. A statement, which is traced already, is not wrapped again.
+     *
+     * @param sql       The SQL of the statement.
+     * @param statement The prepared statement, or a statement returned by this method before.
+     * @return The traced statement, or the given statement, if it is traced already or nothing needs the trace.
+     */
+    static PreparedStatement wrap(String sql, PreparedStatement statement) {
+        if (!(ENABLED || DaoCallEvent.isRecorded()) || TimedStatement.isTraced(statement)) {
+            return statement;
+        }
+        return TimedStatement.wrap(sql, statement);
+    }
+
+    /**
+     * Notes an execution of a statement in the trace of the current thread.
+     *
+     * @param sql        The SQL of the statement.
+     * @param parameters The bound parameters.
+     * @param rows       The number of changed rows, -1 for a query.
+     */
+    static void trace(String sql, Object[] parameters, long rows) {
+        Trace trace = TRACES.get();
+        int slot = trace.next;
+        trace.times[slot] = System.nanoTime();
+        trace.sqls[slot] = sql;
+        trace.parameters[slot] = parameters;
+        trace.rows[slot] = rows;
+        trace.next = (slot + 1) % TRACE_SIZE;
+    }
+
+    /**
+     * Logs a DAO call, if it took longer than the threshold. Must be called on the thread, which made the call, right
+     * after it ended. The statements the thread executed since the start of the call are logged with it. Their
+     * parameters and query plans are formatted by the writer thread.
+     *
+     * @param operation    Name of the DAO class and method.
+     * @param start        Start time of the call from <code>System.nanoTime()</code>.
+     * @param elapsedNanos Elapsed time of the call.
+     * @param rows         Number of rows read or written by the call, -1 if the call failed.
+     */
+    static void report(String operation, long start, long elapsedNanos, long rows) {
+        if (!ENABLED || elapsedNanos <= THRESHOLD_NANOS) {
+            return;
+        }
+        Entry entry = new Entry(String.format(Locale.ROOT, "%s %s: %.1f ms, %s%n", LocalDateTime.now(), operation,
+                elapsedNanos / 1e6, rows < 0 ? "fehlgeschlagen" : rows + " Zeilen"));
+        Trace trace = TRACES.get();
+        for (int i = 0; i < TRACE_SIZE; i++) {
+            int slot = (trace.next + i) % TRACE_SIZE;
+            if (trace.sqls[slot] != null && trace.times[slot] - start >= 0) {
+                entry.sqls.add(trace.sqls[slot]);
+                entry.parameters.add(trace.parameters[slot]);
+                entry.rows.add(trace.rows[slot]);
+            }
+        }
+        PENDING.incrementAndGet();
+        if (!ENTRIES.offer(entry)) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+        }
+        startWriter();
+    }
+
+    /**
+     * Returns the SQL of the statements, which the current thread executed since the given time, one per line. Used by
+     * <code>DaoCallEvent</code>, while the event is enabled, so the statements are traced.
+     *
+     * @param start Start time of a call from <code>System.nanoTime()</code>.
+     */
+    static String statementsSince(long start) {
+        StringJoiner statements = new StringJoiner(System.lineSeparator());
+        Trace trace = TRACES.get();
+        for (int i = 0; i < TRACE_SIZE; i++) {
+            int slot = (trace.next + i) % TRACE_SIZE;
+            if (trace.sqls[slot] != null && trace.times[slot] - start >= 0) {
+                statements.add(trace.sqls[slot]);
+            }
+        }
+        return statements.toString();
+    }
+
+    /**
+     * Formats an entry on the writer thread, with the query plans of its statements.
+     */
+    private static String format(Entry entry) {
+        StringBuilder text = new StringBuilder(entry.header);
+        for (int i = 0; i < entry.sqls.size(); i++) {
+            String sql = entry.sqls.get(i);
+            StringJoiner parameters = new StringJoiner(", ", "[", "]");
+            for (Object parameter : entry.parameters.get(i)) {
+                parameters.add(formatParameter(sql, parameter));
+            }
+            text.append("  SQL: ").append(sql).append(System.lineSeparator());
+            text.append("    Parameter: ").append(parameters);
+            if (entry.rows.get(i) >= 0) {
+                text.append(", geänderte Zeilen: ").append(entry.rows.get(i));
+            }
+            text.append(System.lineSeparator());
+            text.append("    Plan: ").append(String.join(" | ", planOf(sql))).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Formats a bound parameter for the log. Strings are quoted and shortened, statements of the users table are
+     * logged without parameters, so names and password hashes do not end up in the log.
+     */
+    static String formatParameter(String sql, Object value) {
+        if (USERS_TABLE.matcher(sql).find()) {
+            return "?";
+        }
+        if (value instanceof String string) {
+            if (string.length() > MAX_PARAMETER_LENGTH) {
+                string = string.substring(0, MAX_PARAMETER_LENGTH) + "…";
+            }
+            return "'" + string.replace("\n", "\\n") + "'";
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Returns the number of entries dropped, because the writer could not keep up.
+     */
+    public static long getDroppedEntries() {
+        return DROPPED.get();
+    }
+
+    /**
+     * Waits until the writer thread wrote the entries logged so far, at most the given time.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     */
+    public static void flush(long timeoutMillis) {
+        long end = System.currentTimeMillis() + timeoutMillis;
+        while (PENDING.get() > 0 && System.currentTimeMillis() < end) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forgets the cached query plans, e.g. because the pool switches to another database.
+     */
+    static void clearPlans() {
+        PLANS.clear();
+    }
+
+    /**
+     * Returns the cached query plan of the given SQL or reads it. Plans, which could not be read, are not cached.
+     */
+    private static List<String> planOf(String sql) {
+        List<String> plan = PLANS.get(sql);
+        if (plan == null) {
+            try {
+                plan = explain(sql);
+                PLANS.put(sql, plan);
+            } catch (SQLException | RuntimeException exception) {
+                // E.g. the pool was closed, since the call was logged.
+                plan = List.of("nicht verfügbar: " + exception.getMessage());
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Reads the query plan of a query on a read connection of the open pool.
+     */
+    private static List<String> explain(String sql) throws SQLException {
+        if (!sql.trim().toUpperCase(Locale.ROOT).startsWith("SELECT")) {
+            // Plans of inserts, updates and deletes are rarely the problem.
+            return List.of("-");
+        }
+        ConnectionPool pool = ConnectionBuilder.getOpenPool();
+        if (pool == null) {
+            throw new SQLException("keine Verbindung zur Datenbank");
+        }
+        Connection connection = pool.acquire(false);
+        try {
+            return QueryPlan.explain(connection, sql);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer == null) {
+            writer = new Thread(SlowQueryLog::write, "nhplus-slow-query-log");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Loop of the writer thread. Writes all waiting entries at once and rotates the file, when it grew too large.
+     */
+    private static void write() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = ENTRIES.take();
+            } catch (InterruptedException exception) {
+                return;
+            }
+            int taken = 1;
+            try {
+                Files.createDirectories(LOG_FILE.toAbsolutePath().getParent());
+                try (Writer out = Files.newBufferedWriter(LOG_FILE, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    long dropped = DROPPED.getAndSet(0);
+                    if (dropped > 0) {
+                        out.write(dropped + " Einträge verworfen, weil das Log nicht mitkam." + System.lineSeparator());
+                    }
+                    while (entry != null) {
+                        out.write(format(entry));
+                        entry = ENTRIES.poll();
+                        if (entry != null) {
+                            taken++;
+                        }
+                    }
+                }
+                if (Files.size(LOG_FILE) > MAX_FILE_SIZE) {
+                    rotate();
+                }
+            } catch (IOException exception) {
+                System.out.println("Slow-Query-Log konnte nicht geschrieben werden: " + exception.getMessage());
+            } finally {
+                PENDING.addAndGet(-taken);
+            }
+        }
+    }
+
+    /**
+     * Renames <code>slow-queries.log</code> to <code>slow-queries.log.1</code>, <code>.1</code> to <code>.2</code>
+     * and so on, the oldest file is deleted.
+     */
+    private static void rotate() throws IOException {
+        Files.deleteIfExists(Path.of(LOG_FILE + "." + (LOG_FILES - 1)));
+        for (int i = LOG_FILES - 2; i >= 1; i--) {
+            Path file = Path.of(LOG_FILE + "." + i);
+            if (Files.exists(file)) {
+                Files.move(file, Path.of(LOG_FILE + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(LOG_FILE, Path.of(LOG_FILE + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,133 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the <code>PreparedStatement</code>s of one connection, keyed by their SQL. The cache holds at most
+ * <code>capacity</code> statements and closes the least recently used one, when a new statement does not fit anymore.
+ * <p>
+ * A cache belongs to exactly one connection and is only used by the thread, which leased this connection. Statements
+ * taken from the cache must not be closed by the caller, but every <code>ResultSet</code> must be closed.
+ * <p>
+ * If the <code>SlowQueryLog</code> is enabled, the cached statements note their executions for it.
+ */
+public class StatementCache {
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /**
+     * Creates an empty cache for the given connection.
+     *
+     * @param connection Connection to prepare the statements on.
+     * @param capacity   Maximum number of cached statements.
+     */
+    public StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    StatementCache.close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the given SQL or prepares a new one. Parameters of a reused statement are
+     * cleared. A statement prepared, before tracing was needed, is wrapped for the <code>SlowQueryLog</code> from the
+     * next use on.
+     *
+     * @param sql SQL of the statement.
+     * @return <code>PreparedStatement</code> for the SQL.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = this.statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            statement.clearParameters();
+            PreparedStatement traced = SlowQueryLog.wrap(sql, statement);
+            if (traced != statement) {
+                // A recording of the DaoCallEvent started after the statement was prepared.
+                this.statements.put(sql, traced);
+            }
+            return traced;
+        }
+        if (QueryPlan.CHECK_ENABLED) {
+            QueryPlan.check(this.connection, sql);
+        }
+        statement = SlowQueryLog.wrap(sql, this.connection.prepareStatement(sql));
+        this.statements.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * Removes a statement from the cache without closing it, so the owner can use it exclusively, e.g. while its
+     * <code>ResultSet</code> is still open. Meanwhile, <code>prepare()</code> prepares a new statement for the SQL.
+     *
+     * @param statement A statement returned by <code>prepare()</code>.
+     * @return The SQL of the statement, to give it back with <code>attach()</code>, or <code>null</code>, if the
+     * statement is not in the cache.
+     */
+    public String detach(PreparedStatement statement) {
+        Iterator<Map.Entry<String, PreparedStatement>> iterator = this.statements.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PreparedStatement> entry = iterator.next();
+            if (entry.getValue() == statement) {
+                iterator.remove();
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives back a statement removed by <code>detach()</code>. The statement is closed instead, if another statement
+     * for the same SQL was cached in the meantime.
+     *
+     * @param sql       SQL of the statement, as returned by <code>detach()</code>.
+     * @param statement The detached statement.
+     */
+    public void attach(String sql, PreparedStatement statement) {
+        if (sql == null || this.statements.putIfAbsent(sql, statement) != null) {
+            StatementCache.close(statement);
+        }
+    }
+
+    /**
+     * Returns the SQL of the cached statements, from the least to the most recently used one.
+     *
+     * @return A copy of the SQL of the cached statements.
+     */
+    List<String> getCachedSql() {
+        return new ArrayList<>(this.statements.keySet());
+    }
+
+    /**
+     * Closes all cached statements and empties the cache.
+     */
+    public void close() {
+        for (PreparedStatement statement : this.statements.values()) {
+            StatementCache.close(statement);
+        }
+        this.statements.clear();
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+}
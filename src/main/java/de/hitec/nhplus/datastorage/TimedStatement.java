@@ -0,0 +1,115 @@
+package de.hitec.nhplus.datastorage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+/**
+ * Wraps a <code>PreparedStatement</code> of the <code>StatementCache</code> for the <code>SlowQueryLog</code>. The
+ * bound parameters are remembered, and every execution is noted in the trace of the executing thread, so a slow DAO
+ * call can be logged and a <code>DaoCallEvent</code> recorded with the statements it executed.
+ * <p>
+ * Only the statement is wrapped, not its <code>ResultSet</code>, because a proxy call per column of every row would
+ * cost more than the log is worth. The time of a query is measured by the DAO call around it.
+ */
+final class TimedStatement implements InvocationHandler {
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private final String sql;
+    private final PreparedStatement statement;
+    private Object[] parameters = NO_PARAMETERS;
+    private int parameterCount;
+    private int batchRows;
+
+    private TimedStatement(String sql, PreparedStatement statement) {
+        this.sql = sql;
+        this.statement = statement;
+    }
+
+    /**
+     * Returns a proxy of the given statement, which notes its executions.
+     */
+    static PreparedStatement wrap(String sql, PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(TimedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new TimedStatement(sql, statement));
+    }
+
+    /**
+     * Returns, whether the given statement is a proxy returned by <code>wrap()</code>.
+     */
+    static boolean isTraced(PreparedStatement statement) {
+        return Proxy.isProxyClass(statement.getClass())
+                && Proxy.getInvocationHandler(statement) instanceof TimedStatement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        int argumentCount = args == null ? 0 : args.length;
+        if (argumentCount == 0) {
+            switch (name) {
+                case "executeQuery":
+                    SlowQueryLog.trace(this.sql, boundParameters(), -1);
+                    break;
+                case "executeUpdate":
+                case "execute": {
+                    Object result = delegate(this.statement, method, null);
+                    SlowQueryLog.trace(this.sql, boundParameters(), result instanceof Integer rows ? rows : -1);
+                    return result;
+                }
+                case "executeBatch": {
+                    int rows = this.batchRows;
+                    this.batchRows = 0;
+                    Object result = delegate(this.statement, method, null);
+                    SlowQueryLog.trace(this.sql, boundParameters(), rows);
+                    return result;
+                }
+                case "addBatch":
+                    this.batchRows++;
+                    break;
+                case "clearBatch":
+                    this.batchRows = 0;
+                    break;
+                case "clearParameters":
+                    Arrays.fill(this.parameters, 0, this.parameterCount, null);
+                    this.parameterCount = 0;
+                    break;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return this.statement.toString();
+                default:
+                    break;
+            }
+        } else if (name.equals("equals") && argumentCount == 1) {
+            return proxy == args[0];
+        } else if (name.startsWith("set") && argumentCount >= 2 && args[0] instanceof Integer index) {
+            bind(index, name.equals("setNull") ? null : args[1]);
+        }
+        return delegate(this.statement, method, args);
+    }
+
+    private void bind(int index, Object value) {
+        if (index > this.parameters.length) {
+            this.parameters = Arrays.copyOf(this.parameters, Math.max(index, 2 * this.parameters.length));
+        }
+        this.parameters[index - 1] = value;
+        this.parameterCount = Math.max(this.parameterCount, index);
+    }
+
+    private Object[] boundParameters() {
+        return this.parameterCount == 0 ? NO_PARAMETERS : Arrays.copyOf(this.parameters, this.parameterCount);
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+        }
+    }
+}
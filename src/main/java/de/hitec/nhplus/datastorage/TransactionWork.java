@@ -0,0 +1,22 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.SQLException;
+
+/**
+ * Work, which runs inside a transaction opened by <code>DaoFactory.inTransaction()</code>. All DAOs created with the
+ * given factory, and all other DAO calls of the same thread, share the connection of the transaction.
+ *
+ * @param <R> Type of the result of the work.
+ */
+@FunctionalInterface
+public interface TransactionWork<R> {
+
+    /**
+     * Runs the work.
+     *
+     * @param daoFactory Factory to create the DAOs taking part in the transaction.
+     * @return Result of the work, returned by <code>inTransaction()</code>.
+     * @throws SQLException If the work fails. The transaction is rolled back in that case.
+     */
+    R execute(DaoFactory daoFactory) throws SQLException;
+}
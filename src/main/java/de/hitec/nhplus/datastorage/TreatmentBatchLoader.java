@@ -0,0 +1,135 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentLoader;
+import de.hitec.nhplus.utils.LongObjectMap;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the treatments of patients or caregivers, which were read together, in batches. When the treatments of one
+ * owner are accessed, the treatments of up to <code>BATCH_SIZE</code> owners registered with this loader are read in
+ * one statement, so walking through the treatments of all read patients costs one query per batch instead of one per
+ * patient. The treatments of the other owners of the batch are kept until they are accessed, but only as long as no
+ * treatment, patient or caregiver was written since: otherwise they are read again with the next batch.
+ * <p>
+ * The DAOs create one loader for the objects of every <code>read()</code>, <code>readAll()</code> and
+ * <code>stream()</code>, so the kept treatments belong to one result and are dropped with it.
+ */
+public class TreatmentBatchLoader implements TreatmentLoader {
+
+    /**
+     * Maximum number of owners, whose treatments are read in one statement.
+     */
+    public static final int BATCH_SIZE = 64;
+
+    /**
+     * Counts the writes, which can change the treatments of an owner.
+     */
+    private static final AtomicLong WRITES = new AtomicLong();
+
+    private final TreatmentDao dao;
+    private final boolean byPatient;
+    private final LinkedHashSet<Long> pending = new LinkedHashSet<>();
+    private final LongObjectMap<List<Treatment>> loaded = new LongObjectMap<>();
+    private long loadedWrites;
+
+    private TreatmentBatchLoader(TreatmentDao dao, boolean byPatient) {
+        this.dao = dao;
+        this.byPatient = byPatient;
+    }
+
+    /**
+     * Creates a loader for the treatments of patients.
+     *
+     * @param dao DAO to read the treatments with.
+     * @return A loader without registered patients.
+     */
+    public static TreatmentBatchLoader forPatients(TreatmentDao dao) {
+        return new TreatmentBatchLoader(dao, true);
+    }
+
+    /**
+     * Creates a loader for the treatments of caregivers.
+     *
+     * @param dao DAO to read the treatments with.
+     * @return A loader without registered caregivers.
+     */
+    public static TreatmentBatchLoader forCareGivers(TreatmentDao dao) {
+        return new TreatmentBatchLoader(dao, false);
+    }
+
+    /**
+     * Marks the treatments kept by all loaders as outdated, after treatments were written or deleted with their
+     * patient or caregiver. Inside a transaction, they are marked again, when it ended, as concurrent reads could
+     * have seen the state before the commit.
+     *
+     * @param pool Pool of the written connection.
+     */
+    static void treatmentsChanged(ConnectionPool pool) {
+        WRITES.incrementAndGet();
+        pool.afterTransaction(WRITES::incrementAndGet);
+    }
+
+    /**
+     * Registers an owner, whose treatments are read together with those of the other registered owners.
+     *
+     * @param ownerId Id of the patient (pid) or of the caregiver (cid).
+     */
+    public synchronized void register(long ownerId) {
+        this.pending.add(ownerId);
+    }
+
+    /**
+     * Returns the treatments of the given owner. If they were not read with an earlier batch, they are read together
+     * with those of the next registered owners.
+     *
+     * @param ownerId Id of the patient (pid) or of the caregiver (cid).
+     * @return The treatments of the owner, ordered by date and begin.
+     * @throws UncheckedSQLException If the treatments could not be read.
+     */
+    @Override
+    public synchronized List<Treatment> loadTreatments(long ownerId) {
+        long writes = WRITES.get();
+        if (writes != this.loadedWrites) {
+            this.loaded.forEach((outdated, id) -> this.pending.add(id));
+            this.loaded.clear();
+            this.loadedWrites = writes;
+        }
+        List<Treatment> treatments = this.loaded.remove(ownerId);
+        if (treatments != null) {
+            return treatments;
+        }
+        List<Long> batch = new ArrayList<>(BATCH_SIZE);
+        batch.add(ownerId);
+        this.pending.remove(ownerId);
+        Iterator<Long> iterator = this.pending.iterator();
+        while (iterator.hasNext() && batch.size() < BATCH_SIZE) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        Map<Long, List<Treatment>> read;
+        try {
+            read = this.byPatient ? this.dao.readByPids(batch) : this.dao.readByCaregiverIds(batch);
+        } catch (SQLException exception) {
+            // The owners of the batch can be read again with the next access.
+            this.pending.addAll(batch.subList(1, batch.size()));
+            throw new UncheckedSQLException(exception);
+        }
+        if (WRITES.get() != writes) {
+            // Written while reading, so the treatments of the other owners could be outdated already.
+            this.pending.addAll(batch.subList(1, batch.size()));
+            return read.get(ownerId);
+        }
+        for (int i = 1; i < batch.size(); i++) {
+            this.loaded.put(batch.get(i), read.get(batch.get(i)));
+        }
+        return read.get(ownerId);
+    }
+}
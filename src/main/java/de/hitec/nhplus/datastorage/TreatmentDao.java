@@ -1,13 +1,23 @@
 package de.hitec.nhplus.datastorage;
 
 import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentRow;
+import de.hitec.nhplus.model.TreatmentSearchResult;
+import de.hitec.nhplus.model.TreatmentSearchResults;
 import de.hitec.nhplus.utils.DateConverter;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 /**
  * Implements the Interface <code>DaoImp</code>. Overrides methods to generate specific <code>PreparedStatements</code>,
@@ -16,27 +26,146 @@ import java.util.List;
 public class TreatmentDao extends DaoImp<Treatment> {
 
     /**
-     * The constructor initiates an object of <code>TreatmentDao</code> and passes the connection to its super class.
+     * Columns of a treatment read by <code>MAPPER</code>. Date and times are read from their integer columns, the
+     * epoch day and the minutes of the day, so they are decoded without parsing. Their TEXT columns are only parsed,
+     * if an integer column is NULL, see <code>readDate()</code>.
+     */
+    private static final String COLUMNS = "tid, pid, caregiver_id, treatment_day, begin_minute, end_minute, " +
+            "description, remark, treatment_date, begin, end";
+
+    /**
+     * Maps the <code>COLUMNS</code> of a treatment to an object of <code>Treatment</code>.
+     */
+    private static final RowMapper<Treatment> MAPPER = new RowMapper<>((result, columns) -> new Treatment(
+            result.getLong(columns[0]),
+            result.getLong(columns[1]),
+            result.getLong(columns[2]),
+            readDate(result, columns[3], columns[8]),
+            readTime(result, columns[4], columns[9]),
+            readTime(result, columns[5], columns[10]),
+            result.getString(columns[6]),
+            result.getString(columns[7])),
+            "tid", "pid", "caregiver_id", "treatment_day", "begin_minute", "end_minute", "description", "remark",
+            "treatment_date", "begin", "end");
+
+    /**
+     * Columns of a row of the treatment table, see <code>TreatmentRow</code>. The treatment is aliased as
+     * <code>t</code> and the caregiver as <code>c</code>.
+     */
+    private static final String ROW_COLUMNS = "t.tid, t.pid, t.treatment_day, t.begin_minute, t.end_minute, " +
+            "t.description, c.firstname, t.treatment_date, t.begin, t.end";
+
+    /**
+     * Maps the <code>ROW_COLUMNS</code> to an object of <code>TreatmentRow</code>. Treatments without a caregiver get
+     * an empty first name.
+     */
+    private static final RowMapper<TreatmentRow> ROW_MAPPER = new RowMapper<>((result, columns) -> new TreatmentRow(
+            result.getLong(columns[0]),
+            result.getLong(columns[1]),
+            readDate(result, columns[2], columns[7]),
+            readTime(result, columns[3], columns[8]),
+            readTime(result, columns[4], columns[9]),
+            result.getString(columns[5]),
+            Objects.requireNonNullElse(result.getString(columns[6]), "")),
+            "tid", "pid", "treatment_day", "begin_minute", "end_minute", "description", "firstname",
+            "treatment_date", "begin", "end");
+
+    /**
+     * Maps the <code>ROW_COLUMNS</code> and the remark of a match of <code>search()</code>.
+     */
+    private static final RowMapper<SearchMatch> SEARCH_MATCH_MAPPER = new RowMapper<>(
+            (result, columns) -> new SearchMatch(
+                    result.getLong(columns[0]),
+                    result.getLong(columns[1]),
+                    readDate(result, columns[2], columns[8]),
+                    readTime(result, columns[3], columns[9]),
+                    readTime(result, columns[4], columns[10]),
+                    result.getString(columns[5]),
+                    Objects.requireNonNullElse(result.getString(columns[6]), ""),
+                    result.getString(columns[7])),
+            "tid", "pid", "treatment_day", "begin_minute", "end_minute", "description", "firstname", "remark",
+            "treatment_date", "begin", "end");
+
+    /**
+     * Maps the <code>ROW_COLUMNS</code> and the snippet of a match ranked by the index to an object of
+     * <code>TreatmentSearchResult</code>.
+     */
+    private static final RowMapper<TreatmentSearchResult> SEARCH_RESULT_MAPPER = new RowMapper<>(
+            (result, columns) -> new TreatmentSearchResult(
+                    result.getLong(columns[0]),
+                    result.getLong(columns[1]),
+                    readDate(result, columns[2], columns[8]),
+                    readTime(result, columns[3], columns[9]),
+                    readTime(result, columns[4], columns[10]),
+                    result.getString(columns[5]),
+                    Objects.requireNonNullElse(result.getString(columns[6]), ""),
+                    result.getString(columns[7])),
+            "tid", "pid", "treatment_day", "begin_minute", "end_minute", "description", "firstname", "snippet",
+            "treatment_date", "begin", "end");
+
+    /**
+     * Maximum number of matches, which <code>search()</code> lets the index rank. <code>bm25()</code> reads the
+     * complete lists of matches of all words, about 1 s for a word occurring in every second treatment of a history of
+     * 1,000,000 treatments, so queries with more matches rank only the newest of them.
+     */
+    private static final int SEARCH_WINDOW = 2_000;
+
+    /**
+     * Numbers of treatments containing a word of the index, for the inverse document frequencies of
+     * <code>search()</code>. <code>treatment_fts_rows</code> counts them by reading the list of matches of the word,
+     * about 30 ms for a word in every second treatment, so they are kept until treatments are written. The number of
+     * all treatments is kept with the empty word.
+     */
+    private static final Map<String, Long> DOCUMENT_COUNTS = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of words of the index, which the last word of a query is expanded to. A shorter beginning is
+     * searched as prefix query, which reads the complete lists of matches of all the words beginning with it.
+     */
+    private static final int MAX_PREFIX_WORDS = 16;
+
+    /**
+     * Weights of a match in the description and in the remark for the ranking of <code>search()</code>.
+     */
+    private static final double[] SEARCH_WEIGHTS = {2.0, 1.0};
+
+    private final OperationMetrics streamByPidMetrics;
+
+    /**
+     * The constructor initiates an object of <code>TreatmentDao</code> and passes the connection pool to its super class.
      *
-     * @param connection Object of <code>Connection</code> to execute the SQL-statements.
+     * @param pool Pool of <code>Connection</code>s to execute the SQL-statements.
      */
-    public TreatmentDao(Connection connection) {
-        super(connection);
+    public TreatmentDao(ConnectionPool pool) {
+        super(pool);
+        this.streamByPidMetrics = this.metrics.operation("streamByPid");
+    }
+
+    /**
+     * Returns the treatment id (tid) of the given treatment.
+     *
+     * @param treatment The treatment.
+     * @return The treatment id (tid).
+     */
+    @Override
+    protected long getKey(Treatment treatment) {
+        return treatment.getTid();
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to persist the given object of <code>Treatment</code>.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param treatment Object of <code>Treatment</code> to persist.
      * @return <code>PreparedStatement</code> to insert the given patient.
      */
     @Override
-    protected PreparedStatement getCreateStatement(Treatment treatment) {
+    protected PreparedStatement getCreateStatement(Connection connection, Treatment treatment) {
         PreparedStatement preparedStatement = null;
         try {
-            final String SQL = "INSERT INTO treatment (pid, caregiver_id, treatment_date, begin, end, description, remark) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            final String SQL = "INSERT INTO treatment (pid, caregiver_id, treatment_date, begin, end, description, remark, " +
+                    "treatment_day, begin_minute, end_minute) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, treatment.getPid());
             preparedStatement.setLong(2, treatment.getCid());
             preparedStatement.setString(3, treatment.getDate());
@@ -44,24 +173,68 @@ public class TreatmentDao extends DaoImp<Treatment> {
             preparedStatement.setString(5, treatment.getEnd());
             preparedStatement.setString(6, treatment.getDescription());
             preparedStatement.setString(7, treatment.getRemarks());
+            preparedStatement.setLong(8, treatment.getLocalDate().toEpochDay());
+            preparedStatement.setInt(9, toMinuteOfDay(treatment.getLocalBegin()));
+            preparedStatement.setInt(10, toMinuteOfDay(treatment.getLocalEnd()));
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
         return preparedStatement;
     }
 
+    /**
+     * Marks the kept treatments of all <code>TreatmentBatchLoader</code>s and the word counts of the search as outdated.
+     */
+    @Override
+    protected void afterWrite() {
+        treatmentsChanged(this.pool);
+    }
+
+    /**
+     * Marks everything kept about the treatments as outdated, after treatments were written or deleted with their
+     * patient or caregiver.
+     *
+     * @param pool Pool of the written connection.
+     */
+    static void treatmentsChanged(ConnectionPool pool) {
+        TreatmentBatchLoader.treatmentsChanged(pool);
+        DOCUMENT_COUNTS.clear();
+        pool.afterTransaction(DOCUMENT_COUNTS::clear);
+    }
+
+    /**
+     * Forgets the word counts of the search, e.g. because the pool switches to another database.
+     */
+    static void clearSearchStatistics() {
+        DOCUMENT_COUNTS.clear();
+    }
+
+    /**
+     * Copies the given treatment with its generated treatment id (tid).
+     *
+     * @param treatment The created treatment.
+     * @param tid       The generated treatment id.
+     * @return The persisted treatment.
+     */
+    @Override
+    protected Treatment getPersistedInstance(Treatment treatment, long tid) {
+        return new Treatment(tid, treatment.getPid(), treatment.getCid(), treatment.getLocalDate(),
+                treatment.getLocalBegin(), treatment.getLocalEnd(), treatment.getDescription(), treatment.getRemarks());
+    }
+
     /**
      * Generates a <code>PreparedStatement</code> to query a treatment by a given treatment id (tid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param tid Treatment id to query.
      * @return <code>PreparedStatement</code> to query the treatment.
      */
     @Override
-    protected PreparedStatement getReadByIDStatement(long tid) {
+    protected PreparedStatement getReadByIDStatement(Connection connection, long tid) {
         PreparedStatement preparedStatement = null;
         try {
-            final String SQL = "SELECT * FROM treatment WHERE tid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE tid = ?";
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, tid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -77,24 +250,21 @@ public class TreatmentDao extends DaoImp<Treatment> {
      */
     @Override
     protected Treatment getInstanceFromResultSet(ResultSet result) throws SQLException {
-        LocalDate date = DateConverter.convertStringToLocalDate(result.getString(4));
-        LocalTime begin = DateConverter.convertStringToLocalTime(result.getString(5));
-        LocalTime end = DateConverter.convertStringToLocalTime(result.getString(6));
-        return new Treatment(result.getLong(1), result.getLong(2), result.getLong(3),
-                date, begin, end, result.getString(7), result.getString(8));
+        return MAPPER.map(result);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to query all treatments.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @return <code>PreparedStatement</code> to query all treatments.
      */
     @Override
-    protected PreparedStatement getReadAllStatement() {
+    protected PreparedStatement getReadAllStatement(Connection connection) {
         PreparedStatement statement = null;
         try {
-            final String SQL = "SELECT * FROM treatment";
-            statement = this.connection.prepareStatement(SQL);
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment";
+            statement = prepareStatement(connection, SQL);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -111,29 +281,21 @@ public class TreatmentDao extends DaoImp<Treatment> {
      */
     @Override
     protected ArrayList<Treatment> getListFromResultSet(ResultSet result) throws SQLException {
-        ArrayList<Treatment> list = new ArrayList<Treatment>();
-        while (result.next()) {
-            LocalDate date = DateConverter.convertStringToLocalDate(result.getString(4));
-            LocalTime begin = DateConverter.convertStringToLocalTime(result.getString(5));
-            LocalTime end = DateConverter.convertStringToLocalTime(result.getString(6));
-            Treatment treatment = new Treatment(result.getLong(1), result.getLong(2), result.getLong(3),
-                    date, begin, end, result.getString(7), result.getString(8));
-            list.add(treatment);
-        }
-        return list;
+        return MAPPER.mapAll(result);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to query all treatments of a patient with a given patient id (pid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param pid Patient id to query all treatments referencing this id.
      * @return <code>PreparedStatement</code> to query all treatments of the given patient id (pid).
      */
-    private PreparedStatement getReadAllTreatmentsOfOnePatientByPid(long pid) {
+    private PreparedStatement getReadAllTreatmentsOfOnePatientByPid(Connection connection, long pid) {
         PreparedStatement preparedStatement = null;
         try {
-            final String SQL = "SELECT * FROM treatment WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE pid = ?";
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, pid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -150,19 +312,456 @@ public class TreatmentDao extends DaoImp<Treatment> {
      * <code>ResultSet</code>.
      */
     public List<Treatment> readTreatmentsByPid(long pid) throws SQLException {
-        ResultSet result = getReadAllTreatmentsOfOnePatientByPid(pid).executeQuery();
-        return getListFromResultSet(result);
+        return measure("readTreatmentsByPid", false, connection -> {
+            try (ResultSet result = getReadAllTreatmentsOfOnePatientByPid(connection, pid).executeQuery()) {
+                return getListFromResultSet(result);
+            }
+        }, List::size);
+    }
+
+    /**
+     * Streams all treatments of a given patient id (pid) lazily from an open cursor. The stream must be closed on the
+     * thread, which opened it.
+     *
+     * @param pid Patient id to query all treatments referencing this id.
+     * @return A lazily populated <code>Stream</code> of the treatments of the patient.
+     */
+    public Stream<Treatment> streamByPid(long pid) throws SQLException {
+        return streamQuery(connection -> getReadAllTreatmentsOfOnePatientByPid(connection, pid), this.streamByPidMetrics);
+    }
+
+    /**
+     * Queries the next page of all treatments, ordered by the treatment id (tid). The page starts right after the
+     * given tid, so the database seeks into the primary key instead of skipping rows like with an
+     * <code>OFFSET</code>, and every page costs the same however deep the user scrolls.
+     *
+     * @param afterTid Treatment id of the last row of the previous page, 0 for the first page.
+     * @param limit    Maximum number of treatments in the page.
+     * @return <code>List</code> with at most <code>limit</code> objects of class <code>Treatment</code>.
+     */
+    public List<Treatment> readPage(long afterTid, int limit) throws SQLException {
+        return measure("readPage", false, connection -> {
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE tid > ? ORDER BY tid LIMIT ?";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, afterTid);
+            preparedStatement.setInt(2, limit);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return getListFromResultSet(result);
+            }
+        }, List::size);
+    }
+
+    /**
+     * Queries the next page of the treatments of a patient, ordered by date and treatment id (tid). The page starts
+     * right after the given date and tid, which is a seek into the index <code>idx_treatment_pid_day</code>.
+     *
+     * @param pid       Patient id to query the treatments of.
+     * @param afterDate Date of the last row of the previous page, <code>null</code> for the first page.
+     * @param afterTid  Treatment id of the last row of the previous page, 0 for the first page.
+     * @param limit     Maximum number of treatments in the page.
+     * @return <code>List</code> with at most <code>limit</code> objects of class <code>Treatment</code>.
+     */
+    public List<Treatment> readPageByPid(long pid, LocalDate afterDate, long afterTid, int limit) throws SQLException {
+        return measure("readPageByPid", false, connection -> {
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE pid = ? AND (treatment_day, tid) > (?, ?) " +
+                    "ORDER BY treatment_day, tid LIMIT ?";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, pid);
+            preparedStatement.setLong(2, afterDate == null ? Long.MIN_VALUE : afterDate.toEpochDay());
+            preparedStatement.setLong(3, afterTid);
+            preparedStatement.setInt(4, limit);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return getListFromResultSet(result);
+            }
+        }, List::size);
+    }
+
+    /**
+     * Queries the next page of rows of the treatment table, ordered by the treatment id (tid), like
+     * <code>readPage()</code>. The first name of the caregiver is joined in the same query.
+     *
+     * @param afterTid Treatment id of the last row of the previous page, 0 for the first page.
+     * @param limit    Maximum number of rows in the page.
+     * @return <code>List</code> with at most <code>limit</code> objects of class <code>TreatmentRow</code>.
+     */
+    public List<TreatmentRow> readRowPage(long afterTid, int limit) throws SQLException {
+        return measure("readRowPage", false, connection -> {
+            final String SQL = "SELECT " + ROW_COLUMNS + " FROM treatment t " +
+                    "LEFT JOIN care_giver c ON c.cid = t.caregiver_id " +
+                    "WHERE t.tid > ? ORDER BY t.tid LIMIT ?";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, afterTid);
+            preparedStatement.setInt(2, limit);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return ROW_MAPPER.mapAll(result);
+            }
+        }, List::size);
+    }
+
+    /**
+     * Queries the next page of rows of the treatment table of a patient, ordered by date and treatment id (tid), like
+     * <code>readPageByPid()</code>. The first name of the caregiver is joined in the same query.
+     *
+     * @param pid       Patient id to query the rows of.
+     * @param afterDate Date of the last row of the previous page, <code>null</code> for the first page.
+     * @param afterTid  Treatment id of the last row of the previous page, 0 for the first page.
+     * @param limit     Maximum number of rows in the page.
+     * @return <code>List</code> with at most <code>limit</code> objects of class <code>TreatmentRow</code>.
+     */
+    public List<TreatmentRow> readRowPageByPid(long pid, LocalDate afterDate, long afterTid, int limit)
+            throws SQLException {
+        return measure("readRowPageByPid", false, connection -> {
+            final String SQL = "SELECT " + ROW_COLUMNS + " FROM treatment t " +
+                    "LEFT JOIN care_giver c ON c.cid = t.caregiver_id " +
+                    "WHERE t.pid = ? AND (t.treatment_day, t.tid) > (?, ?) ORDER BY t.treatment_day, t.tid LIMIT ?";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, pid);
+            preparedStatement.setLong(2, afterDate == null ? Long.MIN_VALUE : afterDate.toEpochDay());
+            preparedStatement.setLong(3, afterTid);
+            preparedStatement.setInt(4, limit);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return ROW_MAPPER.mapAll(result);
+            }
+        }, List::size);
+    }
+
+
+    /**
+     * Searches the descriptions and remarks of all treatments with the full-text index <code>treatment_fts</code>.
+     * Every word of the query must occur, the last word may also be the beginning of a longer word, so the search
+     * works while typing. Case and diacritics are ignored. Matches in the description weigh twice as much as matches
+     * in the remark.
+     * <p>
+     * Up to <code>SEARCH_WINDOW</code> matches are ranked by the index with <code>bm25()</code>, which also cuts the
+     * snippets. If there are more, the newest <code>SEARCH_WINDOW</code> matches are ranked the same way by
+     * <code>SearchRanking</code>, with the inverse document frequencies read from <code>treatment_fts_rows</code>, and
+     * the results tell, that older matches were left out.
+     *
+     * @param query The words to search for, as entered by the user.
+     * @param limit Maximum number of results.
+     * @return At most <code>limit</code> objects of class <code>TreatmentSearchResult</code>, the best match first.
+     * Empty, if the query contains no words.
+     */
+    public TreatmentSearchResults search(String query, int limit) throws SQLException {
+        List<String> words = query == null ? List.of() : SearchRanking.words(query);
+        if (words.isEmpty()) {
+            return new TreatmentSearchResults(new ArrayList<>(), 0, false);
+        }
+        return measure("search", false, connection -> {
+            String prefix = words.get(words.size() - 1);
+            List<String> prefixWords = expandPrefix(connection, prefix);
+            if (prefixWords != null && prefixWords.isEmpty()) {
+                return new TreatmentSearchResults(new ArrayList<>(), 0, false);
+            }
+            String matchExpression = toMatchExpression(words, prefixWords);
+            int matches = countMatches(connection, matchExpression);
+            if (matches <= SEARCH_WINDOW) {
+                return new TreatmentSearchResults(rankInIndex(connection, matchExpression, limit), matches, false);
+            }
+            double[] inverseDocumentFrequencies = new double[words.size()];
+            long rows = countDocuments(connection, "");
+            for (int i = 0; i < words.size() - 1; i++) {
+                inverseDocumentFrequencies[i] = SearchRanking.inverseDocumentFrequency(rows,
+                        countDocuments(connection, words.get(i)));
+            }
+            long prefixRows = 0;
+            for (String word : prefixWords != null ? prefixWords : List.of(prefix + "*")) {
+                prefixRows += countDocuments(connection, word);
+            }
+            // A treatment can contain several words beginning with the prefix, so their sum can exceed all rows.
+            inverseDocumentFrequencies[words.size() - 1] =
+                    SearchRanking.inverseDocumentFrequency(rows, Math.min(prefixRows, rows));
+            SearchRanking ranking = new SearchRanking(words, inverseDocumentFrequencies, SEARCH_WEIGHTS);
+            return new TreatmentSearchResults(rankNewest(connection, matchExpression, ranking, limit), SEARCH_WINDOW,
+                    true);
+        }, results -> results.getResults().size());
+    }
+
+    /**
+     * Counts the matches of an FTS5 query up to one more than <code>SEARCH_WINDOW</code>. Only the rowids are read from
+     * the index.
+     */
+    private int countMatches(Connection connection, String matchExpression) throws SQLException {
+        final String SQL = "SELECT count(*) FROM " +
+                "(SELECT rowid FROM treatment_fts WHERE treatment_fts MATCH ? ORDER BY rowid DESC LIMIT ?)";
+        PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+        preparedStatement.setString(1, matchExpression);
+        preparedStatement.setInt(2, SEARCH_WINDOW + 1);
+        try (ResultSet result = preparedStatement.executeQuery()) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    /**
+     * Ranks all matches of an FTS5 query in the index by the rank configured for <code>treatment_fts</code>,
+     * <code>bm25(2.0, 1.0)</code>, and cuts their snippets with <code>snippet()</code>.
+     */
+    private List<TreatmentSearchResult> rankInIndex(Connection connection, String matchExpression, int limit)
+            throws SQLException {
+        // Ranks inside the index first and joins only the best rows.
+        final String SQL = "SELECT " + ROW_COLUMNS + ", f.snippet FROM " +
+                "(SELECT rowid, snippet(treatment_fts, -1, '[', ']', '…', 10) AS snippet, rank FROM treatment_fts " +
+                "WHERE treatment_fts MATCH ? ORDER BY rank LIMIT ?) f " +
+                "JOIN treatment t ON t.tid = f.rowid " +
+                "LEFT JOIN care_giver c ON c.cid = t.caregiver_id " +
+                "ORDER BY f.rank";
+        PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+        preparedStatement.setString(1, matchExpression);
+        preparedStatement.setInt(2, limit);
+        try (ResultSet result = preparedStatement.executeQuery()) {
+            return SEARCH_RESULT_MAPPER.mapAll(result);
+        }
+    }
+
+    /**
+     * Ranks the newest <code>SEARCH_WINDOW</code> matches of an FTS5 query with the given ranking.
+     */
+    private List<TreatmentSearchResult> rankNewest(Connection connection, String matchExpression,
+                                                   SearchRanking ranking, int limit) throws SQLException {
+        // Only the rowids are read from the index, newest first, the rows are joined for the window only.
+        final String SQL = "SELECT " + ROW_COLUMNS + ", t.remark FROM " +
+                "(SELECT rowid FROM treatment_fts WHERE treatment_fts MATCH ? ORDER BY rowid DESC LIMIT ?) f " +
+                "JOIN treatment t ON t.tid = f.rowid " +
+                "LEFT JOIN care_giver c ON c.cid = t.caregiver_id " +
+                "ORDER BY t.tid DESC";
+        PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+        preparedStatement.setString(1, matchExpression);
+        preparedStatement.setInt(2, SEARCH_WINDOW);
+        List<SearchMatch> matches;
+        try (ResultSet result = preparedStatement.executeQuery()) {
+            matches = SEARCH_MATCH_MAPPER.mapAll(result);
+        }
+        List<String[]> columns = new ArrayList<>(matches.size());
+        for (SearchMatch match : matches) {
+            columns.add(new String[]{match.description, match.remark});
+        }
+        List<TreatmentSearchResult> results = new ArrayList<>();
+        for (int index : ranking.rank(columns, limit)) {
+            results.add(matches.get(index).toResult(ranking.snippet(columns.get(index))));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the number of treatments containing a word from <code>DOCUMENT_COUNTS</code> or reads it from
+     * <code>treatment_fts_rows</code>.
+     *
+     * @param connection Connection to read the number with.
+     * @param word       A word of the index, a beginning followed by <code>*</code> for all words beginning with it,
+     *                   or the empty word for the number of all treatments.
+     */
+    private long countDocuments(Connection connection, String word) throws SQLException {
+        Long cached = DOCUMENT_COUNTS.get(word);
+        if (cached != null) {
+            return cached;
+        }
+        PreparedStatement preparedStatement;
+        if (word.isEmpty()) {
+            preparedStatement = prepareStatement(connection, "SELECT count(*) FROM treatment");
+        } else if (word.endsWith("*")) {
+            String prefix = word.substring(0, word.length() - 1);
+            preparedStatement = prepareStatement(connection,
+                    "SELECT total(doc) FROM treatment_fts_rows WHERE term >= ? AND term < ?");
+            preparedStatement.setString(1, prefix);
+            // Words never contain this character, so the range holds exactly the words beginning with the prefix.
+            preparedStatement.setString(2, prefix + '\uffff');
+        } else {
+            preparedStatement = prepareStatement(connection, "SELECT doc FROM treatment_fts_rows WHERE term = ?");
+            preparedStatement.setString(1, word);
+        }
+        long count = 0;
+        try (ResultSet result = preparedStatement.executeQuery()) {
+            if (result.next()) {
+                count = result.getLong(1);
+            }
+        }
+        DOCUMENT_COUNTS.put(word, count);
+        return count;
+    }
+
+    /**
+     * Turns the normalized words of a query into an FTS5 query, which requires all of them. The last word matches the
+     * given words of the index beginning with it, or is searched as prefix query.
+     *
+     * @param words       Normalized words of the query, not empty.
+     * @param prefixWords Words of the index beginning with the last word, see <code>expandPrefix()</code>, or
+     *                    <code>null</code> for a prefix query.
+     * @return The FTS5 query.
+     */
+    private static String toMatchExpression(List<String> words, List<String> prefixWords) {
+        StringBuilder expression = new StringBuilder();
+        for (String word : words.subList(0, words.size() - 1)) {
+            // Normalized words consist of letters and digits only, so they need no escaping.
+            expression.append('"').append(word).append("\" AND ");
+        }
+        if (prefixWords == null) {
+            return expression.append('"').append(words.get(words.size() - 1)).append("\"*").toString();
+        }
+        expression.append('(');
+        for (int i = 0; i < prefixWords.size(); i++) {
+            if (i > 0) {
+                expression.append(" OR ");
+            }
+            expression.append('"').append(prefixWords.get(i)).append('"');
+        }
+        return expression.append(')').toString();
+    }
+
+    /**
+     * Looks up the words of the index beginning with the given one in <code>treatment_fts_terms</code>. Each lookup
+     * seeks to the next word, so the lists of matches are not read. The FTS5 prefix query <code>"word"*</code>
+     * would merge the complete lists of matches of these words, about 40 ms on a history of 1,000,000 treatments
+     * for the beginning of "Patient".
+     *
+     * @param connection Connection to read the words with.
+     * @param prefix     The normalized last word of a query.
+     * @return The found words, empty if there is none, or <code>null</code> if there are more than
+     * <code>MAX_PREFIX_WORDS</code> of them.
+     */
+    private List<String> expandPrefix(Connection connection, String prefix) throws SQLException {
+        final String SQL = "SELECT term FROM treatment_fts_terms WHERE term >= ? LIMIT 1";
+        PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+        List<String> found = new ArrayList<>();
+        String next = prefix;
+        while (found.size() <= MAX_PREFIX_WORDS) {
+            preparedStatement.setString(1, next);
+            String term = null;
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                if (result.next()) {
+                    term = result.getString(1);
+                }
+            }
+            if (term == null || !term.startsWith(prefix)) {
+                return found;
+            }
+            found.add(term);
+            // Words never contain control characters, so this is the smallest word after the found one.
+            next = term + '\u0001';
+        }
+        return null;
+    }
+
+    /**
+     * Queries all treatments between two dates, ordered by date and begin. Uses the index
+     * <code>idx_treatment_day</code>.
+     *
+     * @param from First day of the range.
+     * @param to   Last day of the range, inclusive.
+     * @return <code>List</code> with objects of class <code>Treatment</code> in the range.
+     */
+    public List<Treatment> readByDateRange(LocalDate from, LocalDate to) throws SQLException {
+        return measure("readByDateRange", false, connection -> {
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE treatment_day BETWEEN ? AND ? " +
+                    "ORDER BY treatment_day, begin_minute";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, from.toEpochDay());
+            preparedStatement.setLong(2, to.toEpochDay());
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return getListFromResultSet(result);
+            }
+        }, List::size);
+    }
+
+    /**
+     * Queries the treatments of a caregiver between two dates, ordered by date and begin. Uses the index
+     * <code>idx_treatment_caregiver_day</code>.
+     *
+     * @param cid  Caregiver id to query the treatments of.
+     * @param from First day of the range.
+     * @param to   Last day of the range, inclusive.
+     * @return <code>List</code> with objects of class <code>Treatment</code> of the caregiver in the range.
+     */
+    public List<Treatment> readByCaregiverAndRange(long cid, LocalDate from, LocalDate to) throws SQLException {
+        return measure("readByCaregiverAndRange", false, connection -> {
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE caregiver_id = ? " +
+                    "AND treatment_day BETWEEN ? AND ? ORDER BY treatment_day, begin_minute";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, cid);
+            preparedStatement.setLong(2, from.toEpochDay());
+            preparedStatement.setLong(3, to.toEpochDay());
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return getListFromResultSet(result);
+            }
+        }, List::size);
+    }
+
+    /**
+     * Queries the treatments of several patients in one statement, ordered by date and begin. Uses the index
+     * <code>idx_treatment_pid_day</code>.
+     *
+     * @param pids Patient ids to query the treatments of.
+     * @return The treatments of every given patient id, an empty list for patients without treatments.
+     */
+    public Map<Long, List<Treatment>> readByPids(Collection<Long> pids) throws SQLException {
+        return readByOwners("pid", pids);
+    }
+
+    /**
+     * Queries the treatments of several caregivers in one statement, ordered by date and begin. Uses the index
+     * <code>idx_treatment_caregiver_day</code>.
+     *
+     * @param cids Caregiver ids to query the treatments of.
+     * @return The treatments of every given caregiver id, an empty list for caregivers without treatments.
+     */
+    public Map<Long, List<Treatment>> readByCaregiverIds(Collection<Long> cids) throws SQLException {
+        return readByOwners("caregiver_id", cids);
+    }
+
+    /**
+     * Queries the treatments, whose owner column holds one of the given ids. Ordering by the owner first lets the
+     * index deliver the rows in order. The number of placeholders is rounded up to a power of two and the remaining
+     * ones repeat the last id, so the statement cache only holds a few variants of the statement, however many ids are
+     * queried.
+     */
+    private Map<Long, List<Treatment>> readByOwners(String column, Collection<Long> ids) throws SQLException {
+        Map<Long, List<Treatment>> treatments = new HashMap<>();
+        for (Long id : ids) {
+            treatments.put(id, new ArrayList<>());
+        }
+        if (ids.isEmpty()) {
+            return treatments;
+        }
+        // The next power of two, which is not smaller than the number of ids.
+        int placeholders = ids.size() == 1 ? 1 : Integer.highestOneBit(ids.size() - 1) << 1;
+        boolean byPatient = column.equals("pid");
+        String method = byPatient ? "readByPids" : "readByCaregiverIds";
+        measure(method, false, connection -> {
+            final String SQL = "SELECT " + COLUMNS + " FROM treatment WHERE " + column + " IN (" +
+                    String.join(", ", Collections.nCopies(placeholders, "?")) + ") " +
+                    "ORDER BY " + column + ", treatment_day, begin_minute";
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
+            int index = 1;
+            long last = 0;
+            for (Long id : ids) {
+                last = id;
+                preparedStatement.setLong(index++, last);
+            }
+            while (index <= placeholders) {
+                preparedStatement.setLong(index++, last);
+            }
+            int rows = 0;
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                for (Treatment treatment : MAPPER.mapAll(result)) {
+                    treatments.get(byPatient ? treatment.getPid() : treatment.getCid()).add(treatment);
+                    rows++;
+                }
+            }
+            return rows;
+        }, rows -> rows);
+        return treatments;
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to update the given treatment, identified
      * by the id of the treatment (tid).
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param treatment Treatment object to update.
      * @return <code>PreparedStatement</code> to update the given treatment.
      */
     @Override
-    protected PreparedStatement getUpdateStatement(Treatment treatment) {
+    protected PreparedStatement getUpdateStatement(Connection connection, Treatment treatment) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
@@ -173,9 +772,12 @@ public class TreatmentDao extends DaoImp<Treatment> {
                             "begin = ?, " +
                             "end = ?, " +
                             "description = ?, " +
-                            "remark = ? " +
+                            "remark = ?, " +
+                            "treatment_day = ?, " +
+                            "begin_minute = ?, " +
+                            "end_minute = ? " +
                             "WHERE tid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, treatment.getPid());
             preparedStatement.setLong(2, treatment.getCid());
             preparedStatement.setString(3, treatment.getDate());
@@ -183,7 +785,10 @@ public class TreatmentDao extends DaoImp<Treatment> {
             preparedStatement.setString(5, treatment.getEnd());
             preparedStatement.setString(6, treatment.getDescription());
             preparedStatement.setString(7, treatment.getRemarks());
-            preparedStatement.setLong(8, treatment.getTid());
+            preparedStatement.setLong(8, treatment.getLocalDate().toEpochDay());
+            preparedStatement.setInt(9, toMinuteOfDay(treatment.getLocalBegin()));
+            preparedStatement.setInt(10, toMinuteOfDay(treatment.getLocalEnd()));
+            preparedStatement.setLong(11, treatment.getTid());
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -193,20 +798,98 @@ public class TreatmentDao extends DaoImp<Treatment> {
     /**
      * Generates a <code>PreparedStatement</code> to delete a treatment with the given id.
      *
+     * @param connection Leased connection to prepare the statement on.
      * @param tid Id of the Treatment to delete.
      * @return <code>PreparedStatement</code> to delete treatment with the given id.
      */
     @Override
-    protected PreparedStatement getDeleteStatement(long tid) {
+    protected PreparedStatement getDeleteStatement(Connection connection, long tid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
                     "DELETE FROM treatment WHERE tid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, tid);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
         return preparedStatement;
     }
-}
\ No newline at end of file
+
+    /**
+     * Encodes a time as the minutes since midnight, as stored in <code>begin_minute</code> and
+     * <code>end_minute</code>.
+     */
+    private static int toMinuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Decodes the minutes since midnight to a time.
+     */
+    private static LocalTime toLocalTime(int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * Reads the date of a treatment from its epoch day. A row written without it, e.g. by an older version or another
+     * program before the triggers of schema version 6 existed, has NULL there, so its TEXT column is parsed instead.
+     *
+     * @param result     The result positioned on the row.
+     * @param dayColumn  Index of <code>treatment_day</code>.
+     * @param textColumn Index of <code>treatment_date</code>.
+     */
+    private static LocalDate readDate(ResultSet result, int dayColumn, int textColumn) throws SQLException {
+        long day = result.getLong(dayColumn);
+        return result.wasNull()
+                ? DateConverter.convertStringToLocalDate(result.getString(textColumn))
+                : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Reads a time of a treatment from its minutes of the day, or parses its TEXT column, if they are NULL, see
+     * <code>readDate()</code>.
+     *
+     * @param result       The result positioned on the row.
+     * @param minuteColumn Index of <code>begin_minute</code> or <code>end_minute</code>.
+     * @param textColumn   Index of <code>begin</code> or <code>end</code>.
+     */
+    private static LocalTime readTime(ResultSet result, int minuteColumn, int textColumn) throws SQLException {
+        int minuteOfDay = result.getInt(minuteColumn);
+        return result.wasNull()
+                ? DateConverter.convertStringToLocalTime(result.getString(textColumn))
+                : toLocalTime(minuteOfDay);
+    }
+
+    /**
+     * Match of <code>search()</code> before ranking: the shown columns and the remark, which is searched and used for
+     * the snippet.
+     */
+    private static class SearchMatch {
+        private final long tid;
+        private final long pid;
+        private final LocalDate date;
+        private final LocalTime begin;
+        private final LocalTime end;
+        private final String description;
+        private final String careGiverFirstName;
+        private final String remark;
+
+        SearchMatch(long tid, long pid, LocalDate date, LocalTime begin, LocalTime end, String description,
+                    String careGiverFirstName, String remark) {
+            this.tid = tid;
+            this.pid = pid;
+            this.date = date;
+            this.begin = begin;
+            this.end = end;
+            this.description = description;
+            this.careGiverFirstName = careGiverFirstName;
+            this.remark = remark;
+        }
+
+        TreatmentSearchResult toResult(String snippet) {
+            return new TreatmentSearchResult(this.tid, this.pid, this.date, this.begin, this.end, this.description,
+                    this.careGiverFirstName, snippet);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps an <code>SQLException</code>, which occurs where no checked exception can be thrown, for example while a
+ * <code>Stream</code> of a DAO is consumed.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Wraps the given exception.
+     *
+     * @param cause The <code>SQLException</code> to wrap.
+     */
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Returns the wrapped exception.
+     *
+     * @return The <code>SQLException</code> wrapped by this exception.
+     */
+    @Override
+    public SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
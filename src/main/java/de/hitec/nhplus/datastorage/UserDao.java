@@ -10,17 +10,38 @@ import java.util.ArrayList;
  */
 public class UserDao extends DaoImp<User> {
 
-    public UserDao(Connection connection) {
-        super(connection);
+    /**
+     * Maps a row of the users table to an object of <code>User</code>.
+     */
+    private static final RowMapper<User> MAPPER = new RowMapper<>((result, columns) -> new User(
+            result.getLong(columns[0]),
+            result.getString(columns[1]),
+            result.getString(columns[2]),
+            result.getString(columns[3]),
+            result.getString(columns[4]),
+            result.getInt(columns[5]) == 1,
+            result.getInt(columns[6]) == 1,
+            result.getString(columns[7]),
+            result.getString(columns[8])),
+            "uid", "username", "password_hash", "first_name", "last_name", "is_admin", "is_active", "created_at",
+            "last_login");
+
+    public UserDao(ConnectionPool pool) {
+        super(pool);
+    }
+
+    @Override
+    protected long getKey(User user) {
+        return user.getUid();
     }
 
     @Override
-    protected PreparedStatement getCreateStatement(User user) {
+    protected PreparedStatement getCreateStatement(Connection connection, User user) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "INSERT INTO users (username, password_hash, first_name, last_name, is_admin, is_active) " +
                     "VALUES (?, ?, ?, ?, ?, ?)";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, user.getUsername());
             preparedStatement.setString(2, user.getPasswordHash());
             preparedStatement.setString(3, user.getFirstName());
@@ -34,11 +55,11 @@ public class UserDao extends DaoImp<User> {
     }
 
     @Override
-    protected PreparedStatement getReadByIDStatement(long uid) {
+    protected PreparedStatement getReadByIDStatement(Connection connection, long uid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "SELECT * FROM users WHERE uid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, uid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -48,25 +69,15 @@ public class UserDao extends DaoImp<User> {
 
     @Override
     protected User getInstanceFromResultSet(ResultSet result) throws SQLException {
-        return new User(
-                result.getLong("uid"),
-                result.getString("username"),
-                result.getString("password_hash"),
-                result.getString("first_name"),
-                result.getString("last_name"),
-                result.getInt("is_admin") == 1,
-                result.getInt("is_active") == 1,
-                result.getString("created_at"),
-                result.getString("last_login")
-        );
+        return MAPPER.map(result);
     }
 
     @Override
-    protected PreparedStatement getReadAllStatement() {
+    protected PreparedStatement getReadAllStatement(Connection connection) {
         PreparedStatement statement = null;
         try {
             final String SQL = "SELECT * FROM users ORDER BY username";
-            statement = this.connection.prepareStatement(SQL);
+            statement = prepareStatement(connection, SQL);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -75,26 +86,11 @@ public class UserDao extends DaoImp<User> {
 
     @Override
     protected ArrayList<User> getListFromResultSet(ResultSet result) throws SQLException {
-        ArrayList<User> list = new ArrayList<>();
-        while (result.next()) {
-            User user = new User(
-                    result.getLong("uid"),
-                    result.getString("username"),
-                    result.getString("password_hash"),
-                    result.getString("first_name"),
-                    result.getString("last_name"),
-                    result.getInt("is_admin") == 1,
-                    result.getInt("is_active") == 1,
-                    result.getString("created_at"),
-                    result.getString("last_login")
-            );
-            list.add(user);
-        }
-        return list;
+        return MAPPER.mapAll(result);
     }
 
     @Override
-    protected PreparedStatement getUpdateStatement(User user) {
+    protected PreparedStatement getUpdateStatement(Connection connection, User user) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "UPDATE users SET " +
@@ -105,7 +101,7 @@ public class UserDao extends DaoImp<User> {
                     "is_admin = ?, " +
                     "is_active = ? " +
                     "WHERE uid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, user.getUsername());
             preparedStatement.setString(2, user.getPasswordHash());
             preparedStatement.setString(3, user.getFirstName());
@@ -120,11 +116,11 @@ public class UserDao extends DaoImp<User> {
     }
 
     @Override
-    protected PreparedStatement getDeleteStatement(long uid) {
+    protected PreparedStatement getDeleteStatement(Connection connection, long uid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "DELETE FROM users WHERE uid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setLong(1, uid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -136,92 +132,53 @@ public class UserDao extends DaoImp<User> {
      * Finds a user by username
      */
     public User findByUsername(String username) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        User user = null;
-        try {
+        return measure("findByUsername", false, connection -> {
             final String SQL = "SELECT * FROM users WHERE username = ? AND is_active = 1";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, username);
-            ResultSet result = preparedStatement.executeQuery();
-            if (result.next()) {
-                user = getInstanceFromResultSet(result);
-            }
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-            throw exception;
-        } finally {
-            if (preparedStatement != null) {
-                preparedStatement.close();
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return result.next() ? getInstanceFromResultSet(result) : null;
             }
-        }
-        return user;
+        }, user -> user != null ? 1 : 0);
     }
 
     /**
      * Updates the last login timestamp for a user
      */
     public void updateLastLogin(long uid, String timestamp) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        try {
+        measure("updateLastLogin", true, connection -> {
             final String SQL = "UPDATE users SET last_login = ? WHERE uid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, timestamp);
             preparedStatement.setLong(2, uid);
-            preparedStatement.executeUpdate();
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-            throw exception;
-        } finally {
-            if (preparedStatement != null) {
-                preparedStatement.close();
-            }
-        }
+            return preparedStatement.executeUpdate();
+        }, rows -> rows);
     }
 
     /**
      * Checks if a username already exists
      */
     public boolean usernameExists(String username) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        boolean exists = false;
-        try {
+        return measure("usernameExists", false, connection -> {
             final String SQL = "SELECT COUNT(*) FROM users WHERE username = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            PreparedStatement preparedStatement = prepareStatement(connection, SQL);
             preparedStatement.setString(1, username);
-            ResultSet result = preparedStatement.executeQuery();
-            if (result.next()) {
-                exists = result.getInt(1) > 0;
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return result.next() && result.getInt(1) > 0;
             }
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-            throw exception;
-        } finally {
-            if (preparedStatement != null) {
-                preparedStatement.close();
-            }
-        }
-        return exists;
+        }, exists -> 1);
     }
 
     /**
      * Gets all active users
      */
     public ArrayList<User> readAllActive() throws SQLException {
-        PreparedStatement statement = null;
-        ArrayList<User> users = new ArrayList<>();
-        try {
+        return measure("readAllActive", false, connection -> {
             final String SQL = "SELECT * FROM users WHERE is_active = 1 ORDER BY username";
-            statement = this.connection.prepareStatement(SQL);
-            ResultSet result = statement.executeQuery();
-            users = getListFromResultSet(result);
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-            throw exception;
-        } finally {
-            if (statement != null) {
-                statement.close();
+            PreparedStatement statement = prepareStatement(connection, SQL);
+            try (ResultSet result = statement.executeQuery()) {
+                return getListFromResultSet(result);
             }
-        }
-        return users;
+        }, ArrayList::size);
     }
-}
\ No newline at end of file
+}
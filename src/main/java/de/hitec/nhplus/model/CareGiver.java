@@ -3,16 +3,13 @@ package de.hitec.nhplus.model;
 import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleStringProperty;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * CareGivers care for Patients
  */
 public class CareGiver extends Person {
     private SimpleLongProperty cid;
     private final SimpleStringProperty telephoneNumber;
-    private final List<Treatment> allTreatments = new ArrayList<>();
+    private final TreatmentSet allTreatments;
 
     /**
      * Constructor to initiate an object of class <code>CareGiver</code> with the given parameter. Use this constructor
@@ -25,6 +22,7 @@ public class CareGiver extends Person {
     public CareGiver(String firstName, String surname, String telephoneNumber) {
         super(firstName, surname);
         this.telephoneNumber = new SimpleStringProperty(telephoneNumber);
+        this.allTreatments = new TreatmentSet();
     }
 
     /**
@@ -40,6 +38,7 @@ public class CareGiver extends Person {
         super(firstName, surname);
         this.cid = new SimpleLongProperty(cid);
         this.telephoneNumber = new SimpleStringProperty(telephoneNumber);
+        this.allTreatments = new TreatmentSet();
     }
     public long getCid() {
         return cid.get();
@@ -63,17 +62,22 @@ public class CareGiver extends Person {
     }
 
     /**
-     * Adds a CareGiver to the list of treatments, if the list does not already contain the treatment.
+     * Returns the treatments of the caregiver. They are read from the database on first access.
+     *
+     * @return The treatments of the caregiver, keyed by their treatment id (tid).
+     */
+    public TreatmentSet getTreatments() {
+        return this.allTreatments;
+    }
+
+    /**
+     * Adds a treatment to the treatments of the caregiver, if they do not already contain the treatment.
      *
      * @param treatment Treatment to add.
-     * @return False, if the Caregiver was already part of the list, else true.
+     * @return False, if the treatment was already part of the treatments, else true.
      */
     public boolean add(Treatment treatment) {
-        if (this.allTreatments.contains(treatment)) {
-            return false;
-        }
-        this.allTreatments.add(treatment);
-        return true;
+        return this.allTreatments.add(treatment);
     }
 
     public String toString() {
@@ -5,8 +5,6 @@ import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleStringProperty;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Patients live in a NURSING home and are treated by nurses.
@@ -16,7 +14,7 @@ public class Patient extends Person {
     private final SimpleStringProperty dateOfBirth;
     private final SimpleStringProperty careLevel;
     private final SimpleStringProperty roomNumber;
-    private final List<Treatment> allTreatments = new ArrayList<>();
+    private final TreatmentSet allTreatments;
 
     /**
      * Constructor to initiate an object of class <code>Patient</code> with the given parameter. Use this constructor
@@ -33,6 +31,7 @@ public class Patient extends Person {
         this.dateOfBirth = new SimpleStringProperty(DateConverter.convertLocalDateToString(dateOfBirth));
         this.careLevel = new SimpleStringProperty(careLevel);
         this.roomNumber = new SimpleStringProperty(roomNumber);
+        this.allTreatments = new TreatmentSet();
     }
 
     /**
@@ -52,6 +51,7 @@ public class Patient extends Person {
         this.dateOfBirth = new SimpleStringProperty(DateConverter.convertLocalDateToString(dateOfBirth));
         this.careLevel = new SimpleStringProperty(careLevel);
         this.roomNumber = new SimpleStringProperty(roomNumber);
+        this.allTreatments = new TreatmentSet();
     }
 
     public long getPid() {
@@ -105,17 +105,22 @@ public class Patient extends Person {
     }
 
     /**
-     * Adds a treatment to the list of treatments, if the list does not already contain the treatment.
+     * Returns the treatments of the patient. They are read from the database on first access.
+     *
+     * @return The treatments of the patient, keyed by their treatment id (tid).
+     */
+    public TreatmentSet getTreatments() {
+        return this.allTreatments;
+    }
+
+    /**
+     * Adds a treatment to the treatments of the patient, if they do not already contain the treatment.
      *
      * @param treatment Treatment to add.
-     * @return False, if the treatment was already part of the list, else true.
+     * @return False, if the treatment was already part of the treatments, else true.
      */
     public boolean add(Treatment treatment) {
-        if (this.allTreatments.contains(treatment)) {
-            return false;
-        }
-        this.allTreatments.add(treatment);
-        return true;
+        return this.allTreatments.add(treatment);
     }
 
     public String toString() {
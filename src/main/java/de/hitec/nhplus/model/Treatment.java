@@ -116,6 +116,33 @@ public class Treatment {
         return end.toString();
     }
 
+    /**
+     * Returns the treatment date.
+     *
+     * @return the date of the treatment
+     */
+    public LocalDate getLocalDate() {
+        return this.date;
+    }
+
+    /**
+     * Returns the treatment start time.
+     *
+     * @return the start time of the treatment
+     */
+    public LocalTime getLocalBegin() {
+        return this.begin;
+    }
+
+    /**
+     * Returns the treatment end time.
+     *
+     * @return the end time of the treatment
+     */
+    public LocalTime getLocalEnd() {
+        return this.end;
+    }
+
     /**
      * Sets the treatment date by converting the given string to a LocalDate.
      *
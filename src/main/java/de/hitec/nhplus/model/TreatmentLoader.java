@@ -0,0 +1,19 @@
+package de.hitec.nhplus.model;
+
+import java.util.List;
+
+/**
+ * Loads the treatments of a patient or a caregiver for their <code>TreatmentSet</code>, when it is accessed the first
+ * time.
+ */
+@FunctionalInterface
+public interface TreatmentLoader {
+
+    /**
+     * Reads the treatments of the given patient or caregiver.
+     *
+     * @param ownerId Id of the patient (pid) or of the caregiver (cid).
+     * @return The treatments of the owner, in the order to keep them in.
+     */
+    List<Treatment> loadTreatments(long ownerId);
+}
@@ -0,0 +1,89 @@
+package de.hitec.nhplus.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Read-only row of the treatment table. Holds only the columns shown in the table, including the first name of the
+ * assigned caregiver, so the table can be rendered without looking up other objects.
+ */
+public class TreatmentRow {
+    private final long tid;
+    private final long pid;
+    private final LocalDate date;
+    private final LocalTime begin;
+    private final LocalTime end;
+    private final String description;
+    private final String careGiverFirstName;
+
+    /**
+     * Constructor to initiate an object of class <code>TreatmentRow</code> with the given parameter.
+     *
+     * @param tid Id of the treatment.
+     * @param pid Id of the treated patient.
+     * @param date Date of the Treatment.
+     * @param begin Time of the start of the treatment.
+     * @param end Time of the end of the treatment.
+     * @param description Description of the treatment.
+     * @param careGiverFirstName First name of the assigned caregiver, empty if there is none.
+     */
+    public TreatmentRow(long tid, long pid, LocalDate date, LocalTime begin, LocalTime end, String description,
+                        String careGiverFirstName) {
+        this.tid = tid;
+        this.pid = pid;
+        this.date = date;
+        this.begin = begin;
+        this.end = end;
+        this.description = description;
+        this.careGiverFirstName = careGiverFirstName;
+    }
+
+    /**
+     * Creates the row of the given treatment.
+     *
+     * @param treatment the persisted treatment
+     * @param careGiverFirstName first name of the assigned caregiver, empty if there is none
+     * @return the row of the treatment
+     */
+    public static TreatmentRow of(Treatment treatment, String careGiverFirstName) {
+        return new TreatmentRow(treatment.getTid(), treatment.getPid(), treatment.getLocalDate(),
+                treatment.getLocalBegin(), treatment.getLocalEnd(), treatment.getDescription(), careGiverFirstName);
+    }
+
+    public long getTid() {
+        return this.tid;
+    }
+
+    public long getPid() {
+        return this.pid;
+    }
+
+    /**
+     * Returns the treatment date as a string in ISO-8601 format.
+     *
+     * @return the date of the treatment
+     */
+    public String getDate() {
+        return this.date.toString();
+    }
+
+    public LocalDate getLocalDate() {
+        return this.date;
+    }
+
+    public String getBegin() {
+        return this.begin.toString();
+    }
+
+    public String getEnd() {
+        return this.end.toString();
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    public String getCareGiverFirstName() {
+        return this.careGiverFirstName;
+    }
+}
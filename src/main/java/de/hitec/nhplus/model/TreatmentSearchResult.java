@@ -0,0 +1,34 @@
+package de.hitec.nhplus.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Row of the treatment table found by a full-text search. In addition to the shown columns, it holds a snippet of
+ * the description or the remark around the matched words.
+ */
+public class TreatmentSearchResult extends TreatmentRow {
+    private final String snippet;
+
+    /**
+     * Constructor to initiate an object of class <code>TreatmentSearchResult</code> with the given parameter.
+     *
+     * @param tid Id of the treatment.
+     * @param pid Id of the treated patient.
+     * @param date Date of the Treatment.
+     * @param begin Time of the start of the treatment.
+     * @param end Time of the end of the treatment.
+     * @param description Description of the treatment.
+     * @param careGiverFirstName First name of the assigned caregiver, empty if there is none.
+     * @param snippet Text around the matched words, which are enclosed in square brackets.
+     */
+    public TreatmentSearchResult(long tid, long pid, LocalDate date, LocalTime begin, LocalTime end,
+                                 String description, String careGiverFirstName, String snippet) {
+        super(tid, pid, date, begin, end, description, careGiverFirstName);
+        this.snippet = snippet;
+    }
+
+    public String getSnippet() {
+        return this.snippet;
+    }
+}
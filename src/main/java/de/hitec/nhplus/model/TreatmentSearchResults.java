@@ -0,0 +1,38 @@
+package de.hitec.nhplus.model;
+
+import java.util.List;
+
+/**
+ * Results of a full-text search over the treatments. If a query matches more treatments than can be ranked in time,
+ * only the newest matches are ranked, which the view has to tell the user.
+ */
+public class TreatmentSearchResults {
+    private final List<TreatmentSearchResult> results;
+    private final int rankedMatches;
+    private final boolean limitedToNewest;
+
+    /**
+     * Constructor to initiate an object of class <code>TreatmentSearchResults</code> with the given parameter.
+     *
+     * @param results The best results, the best first.
+     * @param rankedMatches Number of matches, which were ranked.
+     * @param limitedToNewest True, if there are older matches, which were not ranked.
+     */
+    public TreatmentSearchResults(List<TreatmentSearchResult> results, int rankedMatches, boolean limitedToNewest) {
+        this.results = results;
+        this.rankedMatches = rankedMatches;
+        this.limitedToNewest = limitedToNewest;
+    }
+
+    public List<TreatmentSearchResult> getResults() {
+        return this.results;
+    }
+
+    public int getRankedMatches() {
+        return this.rankedMatches;
+    }
+
+    public boolean isLimitedToNewest() {
+        return this.limitedToNewest;
+    }
+}
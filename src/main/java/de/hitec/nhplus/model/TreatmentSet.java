@@ -0,0 +1,113 @@
+package de.hitec.nhplus.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+/**
+ * Treatments of a patient or a caregiver, keyed by their treatment id (tid) and kept in the order, in which they were
+ * added. Looking up, adding and removing a treatment takes constant time.
+ * <p>
+ * The treatments are read through a <code>TreatmentLoader</code>, when the set is accessed the first time, so reading
+ * patients or caregivers does not read their treatments. Without a loader, e.g. for objects, which are not persisted
+ * yet, the set starts empty. After loading, the set is not read again, so later changes of treatments must be applied
+ * with <code>add()</code>, <code>put()</code> and <code>remove()</code>. The set is not thread-safe.
+ */
+public class TreatmentSet {
+    private TreatmentLoader loader;
+    private long ownerId;
+    private LinkedHashMap<Long, Treatment> treatments;
+
+    /**
+     * Creates an empty set, which is not loaded yet.
+     */
+    TreatmentSet() {
+    }
+
+    /**
+     * Sets the loader to read the treatments with on first access. Has no effect, if the set is already loaded.
+     *
+     * @param loader  The loader, or null to start with an empty set.
+     * @param ownerId Id of the patient or caregiver to load the treatments of.
+     */
+    public void setLoader(TreatmentLoader loader, long ownerId) {
+        this.loader = loader;
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * Returns, whether the treatments were loaded already, so accessing them does not read from the database.
+     *
+     * @return True, if the treatments are loaded.
+     */
+    public boolean isLoaded() {
+        return this.treatments != null;
+    }
+
+    /**
+     * Returns all treatments in the order, in which they were added.
+     *
+     * @return Unmodifiable view of the treatments.
+     */
+    public Collection<Treatment> getAll() {
+        return Collections.unmodifiableCollection(load().values());
+    }
+
+    /**
+     * Returns the treatment with the given treatment id (tid).
+     *
+     * @param tid Id of the treatment.
+     * @return The treatment, or null, if it is not part of the set.
+     */
+    public Treatment get(long tid) {
+        return load().get(tid);
+    }
+
+    /**
+     * Adds a treatment, if the set does not already contain a treatment with the same treatment id (tid).
+     *
+     * @param treatment Persisted treatment to add.
+     * @return False, if the treatment was already part of the set, else true.
+     */
+    public boolean add(Treatment treatment) {
+        return load().putIfAbsent(treatment.getTid(), treatment) == null;
+    }
+
+    /**
+     * Adds a treatment or replaces the treatment with the same treatment id (tid), e.g. after it was changed. A
+     * replaced treatment keeps its position.
+     *
+     * @param treatment Persisted treatment to add.
+     */
+    public void put(Treatment treatment) {
+        load().put(treatment.getTid(), treatment);
+    }
+
+    /**
+     * Removes the treatment with the given treatment id (tid).
+     *
+     * @param tid Id of the treatment.
+     * @return False, if the treatment was not part of the set, else true.
+     */
+    public boolean remove(long tid) {
+        return load().remove(tid) != null;
+    }
+
+    public int size() {
+        return load().size();
+    }
+
+    private LinkedHashMap<Long, Treatment> load() {
+        if (this.treatments == null) {
+            LinkedHashMap<Long, Treatment> loaded = new LinkedHashMap<>();
+            if (this.loader != null) {
+                for (Treatment treatment : this.loader.loadTreatments(this.ownerId)) {
+                    loaded.putIfAbsent(treatment.getTid(), treatment);
+                }
+            }
+            this.treatments = loaded;
+            this.loader = null;
+        }
+        return this.treatments;
+    }
+}
@@ -0,0 +1,78 @@
+package de.hitec.nhplus.utils;
+
+import javafx.concurrent.Task;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Java Flight Recorder event of a <code>Task</code>, which a controller runs on a background thread. The event spans
+ * <code>call()</code> of the task, the handlers <code>succeeded()</code> and <code>failed()</code> run later on the FX
+ * thread and are not part of it. The event is off by default and switched on by the settings of a recording, e.g.
+ * <code>doc/nhplus.jfc</code>.
+ */
+@Name("de.hitec.nhplus.BackgroundTask")
+@Label("Hintergrundaufgabe")
+@Category({"NHPlus", "Oberfläche"})
+@Description("Ausführung eines Task eines Controllers im Hintergrund")
+@Enabled(false)
+@StackTrace(false)
+public final class BackgroundTaskEvent extends Event {
+
+    @Label("Aufgabe")
+    String task;
+
+    @Label("Ergebnis")
+    @Description("erfolgreich, fehlgeschlagen oder abgebrochen")
+    String outcome;
+
+    /**
+     * Returns a runnable for the background thread, which runs the given task and records it as event, if the event is
+     * enabled.
+     *
+     * @param name Name of the task in the recording, e.g. <code>LoginController.login</code>.
+     * @param task The task.
+     * @return The runnable, which runs the task.
+     */
+    public static Runnable wrap(String name, Task<?> task) {
+        return () -> {
+            BackgroundTaskEvent event = new BackgroundTaskEvent();
+            event.begin();
+            try {
+                task.run();
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.task = name;
+                    event.outcome = outcomeOf(task);
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the outcome of a task, which has run. The state of a <code>Task</code> is only updated on the FX thread,
+     * so the outcome is read from the underlying <code>FutureTask</code>, which is done at this point.
+     */
+    private static String outcomeOf(Task<?> task) {
+        try {
+            task.get();
+            return "erfolgreich";
+        } catch (ExecutionException exception) {
+            return "fehlgeschlagen";
+        } catch (CancellationException exception) {
+            return "abgebrochen";
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return "unbekannt";
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package de.hitec.nhplus.utils;
+
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic patients, caregivers and treatments for load tests and benchmarks. The same seed and last day
+ * always give the same objects in the same order, so datasets of any size can be reproduced.
+ * <p>
+ * The values follow the distributions of a nursing home: most patients have care level 3 or 4, two patients share a
+ * room, patients with a higher care level get more treatments, and every kind of treatment has its own frequency,
+ * duration and time of day.
+ */
+public class DataGenerator {
+
+    /**
+     * Seed, which <code>SetUpDB</code> and the benchmarks use, if no other seed is given.
+     */
+    public static final long DEFAULT_SEED = 42;
+
+    /**
+     * Last day of generated treatments, if no other day is given. It is fixed, so a dataset does not depend on the day
+     * it is generated.
+     */
+    public static final LocalDate DEFAULT_LAST_DAY = LocalDate.of(2025, 12, 31);
+
+    /**
+     * Number of years, over which the treatments are spread.
+     */
+    public static final int YEARS = 5;
+
+    private static final String[] FIRST_NAMES = {"Anna", "Maria", "Ursula", "Monika", "Renate", "Helga", "Gertrud",
+            "Elisabeth", "Ingrid", "Erika", "Christa", "Brigitte", "Karin", "Hannelore", "Hans", "Peter", "Klaus",
+            "Wolfgang", "Jürgen", "Dieter", "Manfred", "Horst", "Günter", "Heinz", "Werner", "Gerhard", "Ahmet",
+            "Seppl", "Martina", "Jannik", "Ibrahim", "Christian", "Sabine", "Thomas", "Julia", "Lukas"};
+    private static final String[] SURNAMES = {"Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer",
+            "Wagner", "Becker", "Schulz", "Hoffmann", "Koch", "Bauer", "Richter", "Klein", "Wolf", "Neumann",
+            "Schwarz", "Zimmermann", "Braun", "Krüger", "Hofmann", "Hartmann", "Lange", "Schmitt", "Werner", "Krause",
+            "Yilmaz", "Kaya", "Nowak", "Herberger", "Gerdsen", "Franzen", "Vogler", "Qedirli", "Tonn"};
+
+    /**
+     * Share of the care levels 1 to 5 in percent.
+     */
+    private static final int[] CARE_LEVEL_WEIGHTS = {2, 20, 35, 28, 15};
+
+    private static final int ROOMS_PER_FLOOR = 30;
+    private static final int PATIENTS_PER_ROOM = 2;
+
+    private static final TreatmentKind[] KINDS = {
+            new TreatmentKind("Waschen", 20, 15, 45, 6, 10,
+                    "Patient mit Waschlappen gewaschen und frisch angezogen.",
+                    "Waschen per Dusche auf einem Stuhl.", "Patient gewendet.", "Haut eingecremt, keine Rötungen."),
+            new TreatmentKind("Medikamentengabe", 18, 5, 15, 7, 20,
+                    "Medikamente nach Plan gegeben.", "Patient hat Tabletten ohne Probleme genommen.",
+                    "Blutdruck vor der Gabe gemessen.", "Gabe von Iberogast."),
+            new TreatmentKind("Essen anreichen", 14, 20, 45, 7, 18,
+                    "Essen angereicht, Patient hat gut gegessen.", "Wenig Appetit, nur die Hälfte gegessen.",
+                    "Getränke angereicht, Trinkprotokoll geführt."),
+            new TreatmentKind("Toilettengang", 12, 10, 20, 6, 21,
+                    "Hilfe beim Toilettengang.", "Patientin klagt über Schmerzen beim Stuhlgang.",
+                    "Inkontinenzmaterial gewechselt."),
+            new TreatmentKind("Mobilisation", 10, 15, 30, 8, 18,
+                    "Patient in den Rollstuhl mobilisiert.", "Gehübungen mit dem Rollator auf dem Flur.",
+                    "Patient gewendet, Lagerung zur Dekubitusprophylaxe."),
+            new TreatmentKind("Gespräch", 8, 30, 90, 9, 19,
+                    "Der Patient hat Angstgefühle und wurde beruhigt.", "Patient ist heute lebhafter und hat klare Momente.",
+                    "Erzählt von seiner Tochter.", "Patient irrt auf der Suche nach Wertsachen durch die Etage."),
+            new TreatmentKind("Spaziergang", 7, 30, 60, 10, 17,
+                    "Spaziergang im Park.", "Patient döst im Rollstuhl ein.", "Parkspaziergang bei gutem Wetter."),
+            new TreatmentKind("Verbandswechsel", 5, 15, 30, 8, 16,
+                    "Wunde gereinigt und neu verbunden.", "Wundheilung gut, keine Entzündung.",
+                    "Wunde nässt, Arzt informiert."),
+            new TreatmentKind("Physiotherapie", 4, 30, 60, 9, 16,
+                    "Übungen zur Stabilisation und Mobilisierung der Rückenmuskulatur.",
+                    "Gleichgewichtstraining im Stand.", "Atemübungen durchgeführt."),
+            new TreatmentKind("KG", 2, 30, 45, 9, 16,
+                    "Lymphdrainage.", "Massage der Extremitäten zur Verbesserung der Durchblutung.",
+                    "Passive Bewegungsübungen im Bett.")
+    };
+    private static final int KIND_WEIGHT_TOTAL = Arrays.stream(KINDS).mapToInt(kind -> kind.weight).sum();
+
+    private final SplittableRandom random;
+    private final LocalDate lastDay;
+    private int nextPatientNumber;
+    private int nextCareGiverNumber;
+
+    /**
+     * Creates a generator with the default seed and last day.
+     */
+    public DataGenerator() {
+        this(DEFAULT_SEED, DEFAULT_LAST_DAY);
+    }
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed    Seed of the random values.
+     * @param lastDay Last day of the generated treatments, they are spread over the <code>YEARS</code> before.
+     */
+    public DataGenerator(long seed, LocalDate lastDay) {
+        this.random = new SplittableRandom(seed);
+        this.lastDay = lastDay;
+    }
+
+    /**
+     * Kind of treatment with its share of all treatments, its duration, the hours it begins in and typical remarks.
+     */
+    private static final class TreatmentKind {
+        private final String description;
+        private final int weight;
+        private final int minMinutes;
+        private final int maxMinutes;
+        private final int earliestHour;
+        private final int latestHour;
+        private final String[] remarks;
+
+        private TreatmentKind(String description, int weight, int minMinutes, int maxMinutes, int earliestHour,
+                              int latestHour, String... remarks) {
+            this.description = description;
+            this.weight = weight;
+            this.minMinutes = minMinutes;
+            this.maxMinutes = maxMinutes;
+            this.earliestHour = earliestHour;
+            this.latestHour = latestHour;
+            this.remarks = remarks;
+        }
+    }
+
+    /**
+     * Patients and caregivers, which generated treatments refer to. Patients are picked in proportion to their care
+     * level, caregivers uniformly.
+     */
+    public static final class Owners {
+        private final long[] pids;
+        private final long[] cumulativeWeights;
+        private final long[] cids;
+
+        private Owners(long[] pids, long[] cumulativeWeights, long[] cids) {
+            this.pids = pids;
+            this.cumulativeWeights = cumulativeWeights;
+            this.cids = cids;
+        }
+
+        private long pickPid(SplittableRandom random) {
+            long target = random.nextLong(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+            int index = Arrays.binarySearch(this.cumulativeWeights, target + 1);
+            return this.pids[index >= 0 ? index : -index - 1];
+        }
+
+        private long pickCid(SplittableRandom random) {
+            return this.cids[random.nextInt(this.cids.length)];
+        }
+    }
+
+    /**
+     * Collects the persisted patients and caregivers, which generated treatments refer to.
+     *
+     * @param patients The patients, e.g. as generated by <code>generatePatients()</code>.
+     * @param pids     The IDs of the patients in the same order, e.g. as returned by <code>createAll()</code>.
+     * @param cids     The IDs of the caregivers.
+     * @return The owners for <code>generateTreatment()</code>.
+     */
+    public static Owners owners(List<Patient> patients, long[] pids, long[] cids) {
+        if (patients.size() != pids.length || pids.length == 0 || cids.length == 0) {
+            throw new IllegalArgumentException("Treatments need at least one patient and one caregiver.");
+        }
+        long[] cumulativeWeights = new long[pids.length];
+        long total = 0;
+        for (int i = 0; i < pids.length; i++) {
+            total += Integer.parseInt(patients.get(i).getCareLevel());
+            cumulativeWeights[i] = total;
+        }
+        return new Owners(pids.clone(), cumulativeWeights, cids.clone());
+    }
+
+    /**
+     * Generates the given number of patients.
+     *
+     * @param count Number of patients.
+     * @return The patients, which are not persisted yet.
+     */
+    public List<Patient> generatePatients(int count) {
+        List<Patient> patients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            patients.add(generatePatient());
+        }
+        return patients;
+    }
+
+    /**
+     * Generates a patient between 65 and 100 years old, most of them in their eighties. Rooms are filled in order,
+     * with <code>PATIENTS_PER_ROOM</code> patients each, starting on the ground floor.
+     *
+     * @return The patient, which is not persisted yet.
+     */
+    public Patient generatePatient() {
+        int age = (int) Math.round(Math.max(65, Math.min(100, 84 + 7 * this.random.nextGaussian())));
+        LocalDate dateOfBirth = this.lastDay.minusYears(age).minusDays(this.random.nextInt(365));
+        int room = this.nextPatientNumber++ / PATIENTS_PER_ROOM;
+        String roomNumber = String.format("%d%02d", room / ROOMS_PER_FLOOR, 1 + room % ROOMS_PER_FLOOR);
+        return new Patient(pick(FIRST_NAMES), pick(SURNAMES), dateOfBirth,
+                String.valueOf(1 + pickWeighted(CARE_LEVEL_WEIGHTS)), roomNumber);
+    }
+
+    /**
+     * Generates the given number of caregivers.
+     *
+     * @param count Number of caregivers.
+     * @return The caregivers, which are not persisted yet.
+     */
+    public List<CareGiver> generateCareGivers(int count) {
+        List<CareGiver> careGivers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            careGivers.add(generateCareGiver());
+        }
+        return careGivers;
+    }
+
+    /**
+     * Generates a caregiver. Caregivers get consecutive telephone extensions starting at 500.
+     *
+     * @return The caregiver, which is not persisted yet.
+     */
+    public CareGiver generateCareGiver() {
+        return new CareGiver(pick(FIRST_NAMES), pick(SURNAMES), String.valueOf(500 + this.nextCareGiverNumber++));
+    }
+
+    /**
+     * Generates the given number of treatments.
+     *
+     * @param count  Number of treatments.
+     * @param owners The patients and caregivers to refer to.
+     * @return The treatments, which are not persisted yet.
+     */
+    public List<Treatment> generateTreatments(int count, Owners owners) {
+        List<Treatment> treatments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            treatments.add(generateTreatment(owners));
+        }
+        return treatments;
+    }
+
+    /**
+     * Generates a treatment on one of the days of the last <code>YEARS</code> years. Its kind determines the
+     * duration, the hour it begins in and the remarks.
+     *
+     * @param owners The patients and caregivers to refer to.
+     * @return The treatment, which is not persisted yet.
+     */
+    public Treatment generateTreatment(Owners owners) {
+        TreatmentKind kind = KINDS[pickWeighted(KINDS)];
+        LocalDate date = this.lastDay.minusDays(this.random.nextInt(YEARS * 365));
+        LocalTime begin = LocalTime.of(kind.earliestHour + this.random.nextInt(kind.latestHour - kind.earliestHour + 1),
+                5 * this.random.nextInt(12));
+        int minutes = kind.minMinutes + 5 * this.random.nextInt((kind.maxMinutes - kind.minMinutes) / 5 + 1);
+        LocalTime end = begin.plusMinutes(minutes);
+        StringBuilder remarks = new StringBuilder(pick(kind.remarks));
+        for (int i = this.random.nextInt(3); i > 0; i--) {
+            remarks.append(' ').append(pick(kind.remarks));
+        }
+        return new Treatment(owners.pickPid(this.random), owners.pickCid(this.random), date, begin, end,
+                kind.description, remarks.toString());
+    }
+
+    /**
+     * Returns the last day of the generated treatments.
+     */
+    public LocalDate getLastDay() {
+        return this.lastDay;
+    }
+
+    private String pick(String[] values) {
+        return values[this.random.nextInt(values.length)];
+    }
+
+    private int pickWeighted(int[] weights) {
+        int target = this.random.nextInt(100);
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private int pickWeighted(TreatmentKind[] kinds) {
+        int target = this.random.nextInt(KIND_WEIGHT_TOTAL);
+        for (int i = 0; i < kinds.length; i++) {
+            target -= kinds[i].weight;
+            if (target < 0) {
+                return i;
+            }
+        }
+        return kinds.length - 1;
+    }
+}
@@ -2,28 +2,92 @@ package de.hitec.nhplus.utils;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 /**
  * Helper class to convert dates.
+ * Dates and times in the usual form, e.g. <code>2024-05-17</code> and <code>08:30</code>, are parsed and formatted
+ * character by character. Everything else, e.g. the 30th of February or a malformed text, is passed to the shared
+ * formatters, so the results and exceptions are the same as with <code>DateTimeFormatter</code>.
  * */
 public class DateConverter {
 
     private static final String DATE_FORMAT = "yyyy-MM-dd";
     private static final String TIME_FORMAT = "HH:mm";
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_FORMAT);
+
     public static LocalDate convertStringToLocalDate(String date) {
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern(DATE_FORMAT));
+        if (date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-') {
+            int year = parseDigits(date, 0, 4);
+            int month = parseDigits(date, 5, 7);
+            int day = parseDigits(date, 8, 10);
+            if (year >= 1 && month >= 1 && month <= 12 && day >= 1
+                    && day <= Month.of(month).length(Year.isLeap(year))) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(date, DATE_FORMATTER);
     }
 
     public static LocalTime convertStringToLocalTime(String time) {
-        return LocalTime.parse(time, DateTimeFormatter.ofPattern(TIME_FORMAT));
+        if (time.length() == 5 && time.charAt(2) == ':') {
+            int hour = parseDigits(time, 0, 2);
+            int minute = parseDigits(time, 3, 5);
+            if (hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59) {
+                return LocalTime.of(hour, minute);
+            }
+        }
+        return LocalTime.parse(time, TIME_FORMATTER);
     }
 
     public static String convertLocalDateToString(LocalDate date) {
-        return date.format(DateTimeFormatter.ofPattern(DATE_FORMAT));
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            return date.format(DATE_FORMATTER);
+        }
+        char[] chars = new char[10];
+        writeDigits(chars, 0, 4, year);
+        chars[4] = '-';
+        writeDigits(chars, 5, 7, date.getMonthValue());
+        chars[7] = '-';
+        writeDigits(chars, 8, 10, date.getDayOfMonth());
+        return new String(chars);
     }
 
     public static String convertLocalTimeToString(LocalTime time) {
-        return time.format(DateTimeFormatter.ofPattern(TIME_FORMAT));
+        char[] chars = new char[5];
+        writeDigits(chars, 0, 2, time.getHour());
+        chars[2] = ':';
+        writeDigits(chars, 3, 5, time.getMinute());
+        return new String(chars);
+    }
+
+    /**
+     * Reads the decimal number between the given indices.
+     * @return The number, or -1, if one of the characters is not a digit.
+     * */
+    private static int parseDigits(String text, int begin, int end) {
+        int value = 0;
+        for (int i = begin; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Writes the given number with leading zeros between the given indices.
+     * */
+    private static void writeDigits(char[] chars, int begin, int end, int value) {
+        for (int i = end - 1; i >= begin; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
     }
 }
@@ -0,0 +1,118 @@
+package de.hitec.nhplus.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory index of loaded objects by their ID and by a display name, so a view can look up an object selected by
+ * ID or by the text shown in a combo box without scanning a list. The index is filled once per load and must be kept
+ * in sync by calling <code>add()</code> and <code>remove()</code>, when the view creates or deletes objects.
+ * <p>
+ * Several objects may share a name. <code>getByName()</code> returns the one added first, like a scan over the list
+ * would.
+ *
+ * @param <T> Type of the indexed objects.
+ */
+public class EntityIndex<T> {
+
+    private final ToLongFunction<T> idOf;
+    private final Function<T, String> nameOf;
+    private final LongObjectMap<T> byId = new LongObjectMap<>();
+    private final HashMap<String, List<T>> byName = new HashMap<>();
+
+    /**
+     * Creates an empty index.
+     *
+     * @param idOf   Returns the ID of an object.
+     * @param nameOf Returns the name of an object, by which it is looked up.
+     */
+    public EntityIndex(ToLongFunction<T> idOf, Function<T, String> nameOf) {
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+    }
+
+    /**
+     * Adds all given objects in their order.
+     *
+     * @param entities The objects to add.
+     */
+    public void addAll(Collection<? extends T> entities) {
+        for (T entity : entities) {
+            add(entity);
+        }
+    }
+
+    /**
+     * Adds the given object. An object with the same ID is replaced.
+     *
+     * @param entity The object to add.
+     */
+    public void add(T entity) {
+        T previous = this.byId.put(this.idOf.applyAsLong(entity), entity);
+        if (previous != null) {
+            removeName(previous);
+        }
+        this.byName.computeIfAbsent(this.nameOf.apply(entity), name -> new ArrayList<>(1)).add(entity);
+    }
+
+    /**
+     * Removes the object with the ID of the given object.
+     *
+     * @param entity The object to remove.
+     */
+    public void remove(T entity) {
+        T removed = this.byId.remove(this.idOf.applyAsLong(entity));
+        if (removed != null) {
+            removeName(removed);
+        }
+    }
+
+    private void removeName(T entity) {
+        List<T> named = this.byName.get(this.nameOf.apply(entity));
+        if (named != null && named.remove(entity)) {
+            if (named.isEmpty()) {
+                this.byName.remove(this.nameOf.apply(entity));
+            }
+            return;
+        }
+        // The object was renamed after it was added, so its old name has to be searched.
+        this.byName.values().removeIf(list -> list.remove(entity) && list.isEmpty());
+    }
+
+    /**
+     * Returns the object with the given ID.
+     *
+     * @param id ID of the object.
+     * @return The object or <code>null</code>, if the index does not contain it.
+     */
+    public T getById(long id) {
+        return this.byId.get(id);
+    }
+
+    /**
+     * Returns the first added object with the given name.
+     *
+     * @param name Name of the object.
+     * @return The object or <code>null</code>, if the index does not contain an object with this name.
+     */
+    public T getByName(String name) {
+        List<T> named = this.byName.get(name);
+        return named == null ? null : named.get(0);
+    }
+
+    /**
+     * Removes all objects.
+     */
+    public void clear() {
+        this.byId.clear();
+        this.byName.clear();
+    }
+
+    public int size() {
+        return this.byId.size();
+    }
+}
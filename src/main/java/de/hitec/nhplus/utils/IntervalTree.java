@@ -0,0 +1,197 @@
+package de.hitec.nhplus.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Index of half-open intervals <code>[begin, end)</code>, which finds all intervals overlapping a given interval in
+ * <i>O((k + 1) log n)</i> for <i>k</i> overlapping intervals, i.e. in <i>O(log n)</i>, if there is no conflict.
+ * Intervals can be added and removed in <i>O(log n)</i> at any time.
+ * <p>
+ * The intervals are kept in a treap, a binary search tree ordered by begin and balanced by random priorities. Every
+ * node also stores the largest end in its subtree, so the search skips every subtree, which ends before the searched
+ * interval begins. Every interval has an ID, which makes intervals with the same begin distinguishable. The tree is
+ * not thread-safe.
+ *
+ * @param <T> Type of the objects stored with the intervals.
+ */
+public class IntervalTree<T> {
+
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private Node<T> root;
+    private int size;
+
+    /**
+     * Adds an interval. An interval with the same begin and ID must not be contained already.
+     *
+     * @param begin Begin of the interval, inclusive.
+     * @param end   End of the interval, exclusive.
+     * @param id    ID of the interval, e.g. the ID of the stored object.
+     * @param value Object stored with the interval.
+     */
+    public void add(long begin, long end, long id, T value) {
+        this.root = insert(this.root, new Node<>(begin, end, id, value, this.random.nextInt()));
+        this.size++;
+    }
+
+    /**
+     * Removes the interval with the given begin and ID.
+     *
+     * @param begin Begin of the interval.
+     * @param id    ID of the interval.
+     * @return True, if the interval was found and removed.
+     */
+    public boolean remove(long begin, long id) {
+        int before = this.size;
+        this.root = delete(this.root, begin, id);
+        return this.size < before;
+    }
+
+    /**
+     * Returns the objects of all intervals, which overlap the given interval, ordered by their begin. Intervals, which
+     * only touch it, e.g. one ending at 10:00 and one beginning at 10:00, do not overlap.
+     *
+     * @param begin Begin of the searched interval, inclusive.
+     * @param end   End of the searched interval, exclusive.
+     * @return The objects of the overlapping intervals.
+     */
+    public List<T> findOverlapping(long begin, long end) {
+        List<T> result = new ArrayList<>();
+        collect(this.root, begin, end, result);
+        return result;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    private static <T> void collect(Node<T> node, long begin, long end, List<T> result) {
+        // No interval in this subtree ends after the searched interval begins.
+        if (node == null || node.maxEnd <= begin) {
+            return;
+        }
+        collect(node.left, begin, end, result);
+        // This node and its right subtree begin too late.
+        if (node.begin >= end) {
+            return;
+        }
+        if (node.end > begin) {
+            result.add(node.value);
+        }
+        collect(node.right, begin, end, result);
+    }
+
+    private static <T> Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.compareTo(node.begin, node.id) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<T> delete(Node<T> node, long begin, long id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = node.compareTo(begin, id);
+        if (comparison > 0) {
+            node.left = delete(node.left, begin, id);
+        } else if (comparison < 0) {
+            node.right = delete(node.right, begin, id);
+        } else {
+            this.size--;
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Joins two subtrees, all intervals of the left one sorted before those of the right one.
+     */
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    /**
+     * A node of the treap with the largest end of its subtree.
+     */
+    private static class Node<T> {
+        private final long begin;
+        private final long end;
+        private final long id;
+        private final T value;
+        private final int priority;
+        private long maxEnd;
+        private Node<T> left;
+        private Node<T> right;
+
+        private Node(long begin, long end, long id, T value, int priority) {
+            this.begin = begin;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        private int compareTo(long begin, long id) {
+            int comparison = Long.compare(this.begin, begin);
+            return comparison != 0 ? comparison : Long.compare(this.id, id);
+        }
+
+        private void update() {
+            long max = this.end;
+            if (this.left != null && this.left.maxEnd > max) {
+                max = this.left.maxEnd;
+            }
+            if (this.right != null && this.right.maxEnd > max) {
+                max = this.right.maxEnd;
+            }
+            this.maxEnd = max;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package de.hitec.nhplus.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Every power of two is split into <code>SUB_BUCKETS</code> buckets
+ * of equal width, so a recorded value costs a few bit operations and one atomic increment, and a percentile is off by
+ * at most 1/<code>SUB_BUCKETS</code> of its value. Durations up to about 18 minutes are told apart, longer ones fall
+ * into the last bucket.
+ * <p>
+ * The histogram can be recorded into and read from several threads at once. A read during concurrent recording sees
+ * each bucket at some point of time, which is precise enough for monitoring.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        this.counts.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = this.max.get()) && !this.max.compareAndSet(currentMax, value)) {
+            // Another thread raised the maximum in between, compare again.
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the longest recorded duration in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations in nanoseconds, 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : (double) this.sum.get() / count;
+    }
+
+    /**
+     * Returns the duration, which the given share of the recorded durations does not exceed.
+     *
+     * @param fraction The share between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return The upper bound of the bucket of the percentile in nanoseconds, at most the maximum. 0 if nothing was
+     * recorded.
+     */
+    public long getPercentile(double fraction) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Clears the histogram. Durations recorded during the reset may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) * width + width - 1;
+    }
+}
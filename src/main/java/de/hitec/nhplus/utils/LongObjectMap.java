@@ -0,0 +1,203 @@
+package de.hitec.nhplus.utils;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Hash map from primitive <code>long</code> keys to objects. The keys are stored in a plain <code>long</code> array
+ * with open addressing and linear probing, so neither a lookup nor an insert of an existing key boxes the key or
+ * allocates an entry object.
+ * <p>
+ * <code>null</code> values are not allowed, because an empty slot is marked by a <code>null</code> value. The map is
+ * not thread-safe.
+ *
+ * @param <V> Type of the values.
+ */
+public class LongObjectMap<V> {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongObjectMap() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map, which holds the given number of entries without growing.
+     *
+     * @param expectedSize Expected number of entries.
+     */
+    public LongObjectMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns the value of the given key.
+     *
+     * @param key The key to look up.
+     * @return The value or <code>null</code>, if the map does not contain the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = indexOf(key);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                return (V) this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     *
+     * @param key   The key.
+     * @param value The value, must not be <code>null</code>.
+     * @return The previous value of the key or <code>null</code>, if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("The map does not allow null values.");
+        }
+        int slot = indexOf(key);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                V previous = (V) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > threshold(this.values.length)) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given key from the map. The entries following it in its probe sequence are shifted back, so the map
+     * needs no tombstones.
+     *
+     * @param key The key to remove.
+     * @return The removed value or <code>null</code>, if the map did not contain the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = indexOf(key);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                V previous = (V) this.values[slot];
+                shiftBack(slot);
+                this.size--;
+                return previous;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Passes every value with its key to the given action, in no particular order. The action must not change the
+     * map.
+     *
+     * @param action Receives the value and the key of every entry.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super V> action) {
+        for (int slot = 0; slot < this.values.length; slot++) {
+            if (this.values[slot] != null) {
+                action.accept((V) this.values[slot], this.keys[slot]);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries. The map keeps its capacity.
+     */
+    public void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            if (this.values[slot] == null) {
+                break;
+            }
+            int home = indexOf(this.keys[slot]);
+            // The entry may move to the free slot, if the free slot lies between its home and its current slot.
+            if (((slot - home) & this.mask) >= ((slot - free) & this.mask)) {
+                this.keys[free] = this.keys[slot];
+                this.values[free] = this.values[slot];
+                free = slot;
+            }
+        }
+        this.values[free] = null;
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = indexOf(oldKeys[i]);
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int indexOf(long key) {
+        // Fibonacci hashing spreads consecutive IDs over the whole table.
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (threshold(capacity) < expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static int threshold(int capacity) {
+        return capacity / 4 * 3;
+    }
+}
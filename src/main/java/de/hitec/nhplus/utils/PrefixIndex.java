@@ -0,0 +1,195 @@
+package de.hitec.nhplus.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index over the words of names, e.g. the surnames and first names of patients. The words are
+ * stored in a trie, so all objects with a word starting with a typed prefix are found by walking down the typed
+ * characters, without comparing the prefix to every name.
+ * <p>
+ * Words are compared without case and diacritics, so "mu" finds "Müller". A query with several words finds the
+ * objects, which have a word starting with each of them.
+ * <p>
+ * The index is built once per load and not thread-safe.
+ *
+ * @param <T> Type of the indexed objects.
+ */
+public class PrefixIndex<T> {
+
+    /**
+     * Score added for a query word, which equals an indexed word, instead of being only its beginning.
+     */
+    private static final int EXACT_MATCH_SCORE = 100;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("[\\s,]+");
+
+    private final Node root = new Node();
+    private final List<T> values = new ArrayList<>();
+    private final HashMap<T, Integer> ids = new HashMap<>();
+
+    /**
+     * Indexes the words of the given text for the given object. An object can be added with several texts, e.g. once
+     * with its surname and once with its first name.
+     *
+     * @param value  The object to find by the text.
+     * @param text   Text with one or more words.
+     * @param weight Score of a match in this text, at least 1. Matches in texts with a higher weight are ranked first.
+     */
+    public void add(T value, String text, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight must be at least 1.");
+        }
+        Integer id = this.ids.get(value);
+        if (id == null) {
+            id = this.values.size();
+            this.values.add(value);
+            this.ids.put(value, id);
+        }
+        for (String word : splitWords(text)) {
+            Node node = this.root;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.child(word.charAt(i), true);
+            }
+            node.addPosting(id, weight);
+        }
+    }
+
+    /**
+     * Returns the best matching objects for the given query. Each word of the query must be the beginning of a word
+     * of the object. Objects are ranked by the sum of the weights of their matched texts, with a bonus for every
+     * completely typed word. Objects with the same score keep the order, in which they were added.
+     *
+     * @param query The typed words.
+     * @param limit Maximum number of results.
+     * @return At most <code>limit</code> objects, the best match first. The first objects in order of adding, if the
+     * query contains no words.
+     */
+    public List<T> search(String query, int limit) {
+        List<String> words = splitWords(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>(this.values.subList(0, Math.min(limit, this.values.size())));
+        }
+        int[] scores = null;
+        int[] wordScores = new int[this.values.size()];
+        for (String word : words) {
+            Arrays.fill(wordScores, 0);
+            Node node = this.root;
+            for (int i = 0; i < word.length() && node != null; i++) {
+                node = node.child(word.charAt(i), false);
+            }
+            if (node == null) {
+                return new ArrayList<>();
+            }
+            // A word ending in the reached node equals the query word, all others below it only start with it.
+            node.collect(wordScores, EXACT_MATCH_SCORE);
+            if (scores == null) {
+                scores = wordScores.clone();
+            } else {
+                for (int id = 0; id < scores.length; id++) {
+                    scores[id] = scores[id] > 0 && wordScores[id] > 0 ? scores[id] + wordScores[id] : 0;
+                }
+            }
+        }
+        List<Integer> matches = new ArrayList<>();
+        for (int id = 0; id < scores.length; id++) {
+            if (scores[id] > 0) {
+                matches.add(id);
+            }
+        }
+        final int[] finalScores = scores;
+        matches.sort((a, b) -> finalScores[a] != finalScores[b]
+                ? Integer.compare(finalScores[b], finalScores[a]) : Integer.compare(a, b));
+        List<T> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(this.values.get(matches.get(i)));
+        }
+        return result;
+    }
+
+    public int size() {
+        return this.values.size();
+    }
+
+    /**
+     * Splits a text into lower case words without diacritics.
+     */
+    private static List<String> splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.GERMAN).replace("ß", "ss");
+        for (String word : WHITESPACE.split(normalized)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * A node of the trie. The children are kept in a sorted array, because most nodes only have a few of them. The
+     * postings are the objects with a word ending in this node, together with the weight of the word.
+     */
+    private static class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private int[] postingIds = new int[0];
+        private int[] postingWeights = new int[0];
+
+        private Node child(char label, boolean create) {
+            int index = Arrays.binarySearch(this.labels, label);
+            if (index >= 0) {
+                return this.children[index];
+            }
+            if (!create) {
+                return null;
+            }
+            index = -index - 1;
+            Node child = new Node();
+            this.labels = insert(this.labels, index, label);
+            Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.children, 0, children, 0, index);
+            System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+            children[index] = child;
+            this.children = children;
+            return child;
+        }
+
+        private void addPosting(int id, int weight) {
+            this.postingIds = Arrays.copyOf(this.postingIds, this.postingIds.length + 1);
+            this.postingWeights = Arrays.copyOf(this.postingWeights, this.postingWeights.length + 1);
+            this.postingIds[this.postingIds.length - 1] = id;
+            this.postingWeights[this.postingWeights.length - 1] = weight;
+        }
+
+        /**
+         * Keeps the best score of every object with a word in this subtree.
+         */
+        private void collect(int[] scores, int bonus) {
+            for (int i = 0; i < this.postingIds.length; i++) {
+                int id = this.postingIds[i];
+                scores[id] = Math.max(scores[id], this.postingWeights[i] + bonus);
+            }
+            for (Node child : this.children) {
+                child.collect(scores, 0);
+            }
+        }
+
+        private static char[] insert(char[] array, int index, char value) {
+            char[] result = new char[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            result[index] = value;
+            return result;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package de.hitec.nhplus.utils;
 import de.hitec.nhplus.datastorage.ConnectionBuilder;
 import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.SchemaMigrator;
 import de.hitec.nhplus.datastorage.TreatmentDao;
 import de.hitec.nhplus.datastorage.CareGiverDao;
 import de.hitec.nhplus.model.Patient;
@@ -15,6 +16,8 @@ import java.sql.Statement;
 import java.sql.PreparedStatement;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
 
 import static de.hitec.nhplus.utils.DateConverter.convertStringToLocalDate;
 import static de.hitec.nhplus.utils.DateConverter.convertStringToLocalTime;
@@ -24,124 +27,101 @@ import static de.hitec.nhplus.utils.DateConverter.convertStringToLocalTime;
  * and its path to build up the connection to the database. The class is executable. Executing the class will build
  * up a connection to the database and calls setUpDb() to wipe the database, build up a clean database and fill the
  * database with some test data.
+ * <p>
+ * Executed with the arguments <code>patients caregivers treatments [seed]</code>, the class fills the database with
+ * generated data of that size instead, see <code>generateDb()</code>.
  */
 public class SetUpDB {
 
     /**
-     * This method wipes the database by dropping the tables. Then the method calls DDL statements to build it up from
-     * scratch and DML statements to fill the database with hard coded test data.
+     * Number of generated treatments, which are held in memory and inserted with one call of <code>createAll()</code>.
      */
-    public static void setUpDb() {
-        Connection connection = ConnectionBuilder.getConnection();
-        SetUpDB.wipeDb(connection);
-        SetUpDB.setUpTablePatient(connection);
-        SetUpDB.setUpTableCareGiver(connection);
-        SetUpDB.setUpTableTreatment(connection);
-        SetUpDB.setUpTableUsers(connection); // NEU: Users Tabelle
-        SetUpDB.setUpPatients();
-        SetUpDB.setUpCareGivers();
-        SetUpDB.setUpTreatments();
-        SetUpDB.setUpUsers(); // NEU: Standard Users erstellen
-    }
+    private static final int GENERATOR_CHUNK_SIZE = 10_000;
 
     /**
-     * This method wipes the database by dropping the tables.
-     * @param connection The DB connection to use.
+     * This method wipes the database by dropping the tables. Then the method applies the schema migrations to build
+     * it up from scratch and calls DML statements to fill the database with hard coded test data.
      */
-    public static void wipeDb(Connection connection) {
-        try (Statement statement = connection.createStatement()) {
-            statement.execute("DROP TABLE IF EXISTS patient");
-            statement.execute("DROP TABLE IF EXISTS treatment");
-            statement.execute("DROP TABLE IF EXISTS care_giver");
-            statement.execute("DROP TABLE IF EXISTS users"); // NEU: Users Tabelle auch löschen
-        } catch (SQLException exception) {
-            System.out.println(exception.getMessage());
-        }
-    }
-
-    /**
-     * Sets up the patient table
-     * @param connection The DB connection to use.
-     * */
-    private static void setUpTablePatient(Connection connection) {
-        final String SQL = "CREATE TABLE IF NOT EXISTS patient (" +
-                "   pid INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "   firstname TEXT NOT NULL, " +
-                "   surname TEXT NOT NULL, " +
-                "   dateOfBirth TEXT NOT NULL, " +
-                "   carelevel TEXT NOT NULL, " +
-                "   roomnumber TEXT NOT NULL " +
-                ");";
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(SQL);
+    public static void setUpDb() {
+        try {
+            // Wiping and seeding run as one transaction, the DAOs below join it on this thread.
+            ConnectionBuilder.getPool().inTransaction(connection -> {
+                SetUpDB.wipeDb(connection);
+                DaoFactory.getDaoFactory().clearCaches();
+                new SchemaMigrator().migrate(ConnectionBuilder.getPool());
+                SetUpDB.setUpPatients();
+                SetUpDB.setUpCareGivers();
+                SetUpDB.setUpTreatments();
+                SetUpDB.setUpUsers(connection); // NEU: Standard Users erstellen
+                return null;
+            });
         } catch (SQLException exception) {
-            System.out.println(exception.getMessage());
+            exception.printStackTrace();
         }
     }
 
     /**
-     * Sets up the CareGiver table.
-     * @param connection The DB connection to use.
-     * */
-    private static void setUpTableCareGiver(Connection connection) {
-        final String SQL = "CREATE TABLE IF NOT EXISTS care_giver (" +
-                "   cid INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "   firstname TEXT NOT NULL, " +
-                "   surname TEXT NOT NULL, " +
-                "   telephone_number TEXT NOT NULL " +
-                ");";
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(SQL);
+     * This method wipes the database like <code>setUpDb()</code>, but fills it with generated patients, caregivers
+     * and treatments instead of the hard coded test data. All rows are inserted in batches in one transaction. The
+     * same arguments always give the same data, see <code>DataGenerator</code>.
+     * @param patientCount Number of patients, at least 1.
+     * @param careGiverCount Number of caregivers, at least 1.
+     * @param treatmentCount Number of treatments.
+     * @param seed Seed of the generator.
+     */
+    public static void generateDb(int patientCount, int careGiverCount, int treatmentCount, long seed) {
+        DataGenerator generator = new DataGenerator(seed, DataGenerator.DEFAULT_LAST_DAY);
+        long start = System.nanoTime();
+        try {
+            ConnectionBuilder.getPool().inTransaction(connection -> {
+                SetUpDB.wipeDb(connection);
+                DaoFactory.getDaoFactory().clearCaches();
+                new SchemaMigrator().migrate(ConnectionBuilder.getPool());
+                SetUpDB.generateData(generator, patientCount, careGiverCount, treatmentCount);
+                SetUpDB.setUpUsers(connection);
+                return null;
+            });
+            System.out.printf(Locale.ROOT, "%,d Patienten, %,d Pfleger und %,d Behandlungen in %.1f s angelegt%n",
+                    patientCount, careGiverCount, treatmentCount, (System.nanoTime() - start) / 1e9);
         } catch (SQLException exception) {
-            System.out.println(exception.getMessage());
+            exception.printStackTrace();
         }
     }
 
     /**
-     * Sets up the Treatment Table
-     * @param connection The DB connection to use.
-     * */
-    private static void setUpTableTreatment(Connection connection) {
-        final String SQL = "CREATE TABLE IF NOT EXISTS treatment (" +
-                "   tid INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "   pid INTEGER NOT NULL, " +
-                "   caregiver_id INTEGER, " +
-                "   treatment_date TEXT NOT NULL, " +
-                "   begin TEXT NOT NULL, " +
-                "   end TEXT NOT NULL, " +
-                "   description TEXT NOT NULL, " +
-                "   remark TEXT NOT NULL," +
-                "   FOREIGN KEY (pid) REFERENCES patient (pid) ON DELETE CASCADE, " +
-                "   FOREIGN KEY (caregiver_id) REFERENCES care_giver (cid) ON DELETE CASCADE " +
-                ");";
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(SQL);
-        } catch (SQLException exception) {
-            System.out.println(exception.getMessage());
+     * Inserts the generated data. Treatments are generated and inserted in chunks, so a large number of treatments
+     * does not have to fit into memory at once.
+     */
+    private static void generateData(DataGenerator generator, int patientCount, int careGiverCount, int treatmentCount)
+            throws SQLException {
+        DaoFactory factory = DaoFactory.getDaoFactory();
+        List<Patient> patients = generator.generatePatients(patientCount);
+        long[] pids = factory.createPatientDAO().createAll(patients);
+        long[] cids = factory.createCareGiverDAO().createAll(generator.generateCareGivers(careGiverCount));
+        DataGenerator.Owners owners = DataGenerator.owners(patients, pids, cids);
+        TreatmentDao treatmentDao = factory.createTreatmentDao();
+        for (int created = 0; created < treatmentCount; created += GENERATOR_CHUNK_SIZE) {
+            int count = Math.min(GENERATOR_CHUNK_SIZE, treatmentCount - created);
+            treatmentDao.createAll(generator.generateTreatments(count, owners));
         }
     }
 
     /**
-     * NEU: Sets up the Users Table for Login System
+     * This method wipes the database by dropping the tables and resets the schema version.
      * @param connection The DB connection to use.
      */
-    private static void setUpTableUsers(Connection connection) {
-        final String SQL = "CREATE TABLE IF NOT EXISTS users (" +
-                "   uid INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "   username TEXT UNIQUE NOT NULL, " +
-                "   password_hash TEXT NOT NULL, " +
-                "   first_name TEXT NOT NULL, " +
-                "   last_name TEXT NOT NULL, " +
-                "   is_admin INTEGER DEFAULT 0, " +
-                "   is_active INTEGER DEFAULT 1, " +
-                "   created_at TEXT DEFAULT CURRENT_TIMESTAMP, " +
-                "   last_login TEXT " +
-                ");";
+    public static void wipeDb(Connection connection) {
         try (Statement statement = connection.createStatement()) {
-            statement.execute(SQL);
-            System.out.println("Users Tabelle erfolgreich erstellt!");
+            statement.execute("DROP TABLE IF EXISTS patient");
+            statement.execute("DROP TABLE IF EXISTS treatment_fts_rows");
+            statement.execute("DROP TABLE IF EXISTS treatment_fts_terms");
+            statement.execute("DROP TABLE IF EXISTS treatment_fts");
+            statement.execute("DROP TABLE IF EXISTS treatment");
+            statement.execute("DROP TABLE IF EXISTS care_giver");
+            statement.execute("DROP TABLE IF EXISTS users"); // NEU: Users Tabelle auch löschen
+            SchemaMigrator.resetVersion(connection);
         } catch (SQLException exception) {
-            System.out.println("Fehler beim Erstellen der Users Tabelle: " + exception.getMessage());
+            System.out.println(exception.getMessage());
         }
     }
 
@@ -151,12 +131,14 @@ public class SetUpDB {
     private static void setUpPatients() {
         try {
             PatientDao dao = DaoFactory.getDaoFactory().createPatientDAO();
-            dao.create(new Patient("Seppl", "Herberger", convertStringToLocalDate("1945-12-01"), "4", "202"));
-            dao.create(new Patient("Martina", "Gerdsen", convertStringToLocalDate("1954-08-12"), "5", "010"));
-            dao.create(new Patient("Gertrud", "Franzen", convertStringToLocalDate("1949-04-16"), "3", "002"));
-            dao.create(new Patient("Ahmet", "Yilmaz", convertStringToLocalDate("1941-02-22"), "3", "013"));
-            dao.create(new Patient("Hans", "Neumann", convertStringToLocalDate("1955-12-12"), "2", "001"));
-            dao.create(new Patient("Elisabeth", "Müller", convertStringToLocalDate("1958-03-07"), "5", "110"));
+            dao.createAll(List.of(
+                    new Patient("Seppl", "Herberger", convertStringToLocalDate("1945-12-01"), "4", "202"),
+                    new Patient("Martina", "Gerdsen", convertStringToLocalDate("1954-08-12"), "5", "010"),
+                    new Patient("Gertrud", "Franzen", convertStringToLocalDate("1949-04-16"), "3", "002"),
+                    new Patient("Ahmet", "Yilmaz", convertStringToLocalDate("1941-02-22"), "3", "013"),
+                    new Patient("Hans", "Neumann", convertStringToLocalDate("1955-12-12"), "2", "001"),
+                    new Patient("Elisabeth", "Müller", convertStringToLocalDate("1958-03-07"), "5", "110")
+            ));
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -168,31 +150,35 @@ public class SetUpDB {
     private static void setUpCareGivers() {
         try {
             CareGiverDao dao = DaoFactory.getDaoFactory().createCareGiverDAO();
-            dao.create(new CareGiver("Max","Musterman","503"));
-            dao.create(new CareGiver("Jannik","Vogler","504"));
-            dao.create(new CareGiver("Ibrahim","Qedirli","505"));
-            dao.create(new CareGiver("Christian","Tonn","506"));
+            dao.createAll(List.of(
+                    new CareGiver("Max","Musterman","503"),
+                    new CareGiver("Jannik","Vogler","504"),
+                    new CareGiver("Ibrahim","Qedirli","505"),
+                    new CareGiver("Christian","Tonn","506")
+            ));
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
     }
 
     /**
-     * Creates dummy data for the treatments table
+     * Creates dummy data for the treatments table in one batched transaction
      * */
     private static void setUpTreatments() {
         try {
             TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
-            dao.create(new Treatment(1, 1, convertStringToLocalDate("2023-06-03"), convertStringToLocalTime("11:00"), convertStringToLocalTime("15:00"), "Gespräch", "Der Patient hat enorme Angstgefühle und glaubt, er sei überfallen worden. Ihm seien alle Wertsachen gestohlen worden.\nPatient beruhigt sich erst, als alle Wertsachen im Zimmer gefunden worden sind."));
-            dao.create(new Treatment(1, 1, convertStringToLocalDate("2023-06-05"), convertStringToLocalTime("11:00"), convertStringToLocalTime("12:30"), "Gespräch", "Patient irrt auf der Suche nach gestohlenen Wertsachen durch die Etage und bezichtigt andere Bewohner des Diebstahls.\nPatient wird in seinen Raum zurückbegleitet und erhält Beruhigungsmittel."));
-            dao.create(new Treatment(2, 1, convertStringToLocalDate("2023-06-04"), convertStringToLocalTime("07:30"), convertStringToLocalTime("08:00"), "Waschen", "Patient mit Waschlappen gewaschen und frisch angezogen. Patient gewendet."));
-            dao.create(new Treatment(1, 1, convertStringToLocalDate("2023-06-06"), convertStringToLocalTime("15:10"), convertStringToLocalTime("16:00"), "Spaziergang", "Spaziergang im Park, Patient döst  im Rollstuhl ein"));
-            dao.create(new Treatment(1, 2, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("16:00"), "Spaziergang", "Parkspaziergang; Patient ist heute lebhafter und hat klare Momente; erzählt von seiner Tochter"));
-            dao.create(new Treatment(2, 2, convertStringToLocalDate("2023-06-07"), convertStringToLocalTime("11:00"), convertStringToLocalTime("11:30"), "Waschen", "Waschen per Dusche auf einem Stuhl; Patientin gewendet;"));
-            dao.create(new Treatment(5, 3, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("15:30"), "Physiotherapie", "Übungen zur Stabilisation und Mobilisierung der Rückenmuskulatur"));
-            dao.create(new Treatment(4, 3, convertStringToLocalDate("2023-08-24"), convertStringToLocalTime("09:30"), convertStringToLocalTime("10:15"), "KG", "Lympfdrainage"));
-            dao.create(new Treatment(6, 4, convertStringToLocalDate("2023-08-31"), convertStringToLocalTime("13:30"), convertStringToLocalTime("13:45"), "Toilettengang", "Hilfe beim Toilettengang; Patientin klagt über Schmerzen beim Stuhlgang. Gabe von Iberogast"));
-            dao.create(new Treatment(6, 4, convertStringToLocalDate("2023-09-01"), convertStringToLocalTime("16:00"), convertStringToLocalTime("17:00"), "KG", "Massage der Extremitäten zur Verbesserung der Durchblutung"));
+            dao.createAll(List.of(
+                    new Treatment(1, 1, convertStringToLocalDate("2023-06-03"), convertStringToLocalTime("11:00"), convertStringToLocalTime("15:00"), "Gespräch", "Der Patient hat enorme Angstgefühle und glaubt, er sei überfallen worden. Ihm seien alle Wertsachen gestohlen worden.\nPatient beruhigt sich erst, als alle Wertsachen im Zimmer gefunden worden sind."),
+                    new Treatment(1, 1, convertStringToLocalDate("2023-06-05"), convertStringToLocalTime("11:00"), convertStringToLocalTime("12:30"), "Gespräch", "Patient irrt auf der Suche nach gestohlenen Wertsachen durch die Etage und bezichtigt andere Bewohner des Diebstahls.\nPatient wird in seinen Raum zurückbegleitet und erhält Beruhigungsmittel."),
+                    new Treatment(2, 1, convertStringToLocalDate("2023-06-04"), convertStringToLocalTime("07:30"), convertStringToLocalTime("08:00"), "Waschen", "Patient mit Waschlappen gewaschen und frisch angezogen. Patient gewendet."),
+                    new Treatment(1, 1, convertStringToLocalDate("2023-06-06"), convertStringToLocalTime("15:10"), convertStringToLocalTime("16:00"), "Spaziergang", "Spaziergang im Park, Patient döst  im Rollstuhl ein"),
+                    new Treatment(1, 2, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("16:00"), "Spaziergang", "Parkspaziergang; Patient ist heute lebhafter und hat klare Momente; erzählt von seiner Tochter"),
+                    new Treatment(2, 2, convertStringToLocalDate("2023-06-07"), convertStringToLocalTime("11:00"), convertStringToLocalTime("11:30"), "Waschen", "Waschen per Dusche auf einem Stuhl; Patientin gewendet;"),
+                    new Treatment(5, 3, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("15:30"), "Physiotherapie", "Übungen zur Stabilisation und Mobilisierung der Rückenmuskulatur"),
+                    new Treatment(4, 3, convertStringToLocalDate("2023-08-24"), convertStringToLocalTime("09:30"), convertStringToLocalTime("10:15"), "KG", "Lympfdrainage"),
+                    new Treatment(6, 4, convertStringToLocalDate("2023-08-31"), convertStringToLocalTime("13:30"), convertStringToLocalTime("13:45"), "Toilettengang", "Hilfe beim Toilettengang; Patientin klagt über Schmerzen beim Stuhlgang. Gabe von Iberogast"),
+                    new Treatment(6, 4, convertStringToLocalDate("2023-09-01"), convertStringToLocalTime("16:00"), convertStringToLocalTime("17:00"), "KG", "Massage der Extremitäten zur Verbesserung der Durchblutung")
+            ));
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -200,9 +186,9 @@ public class SetUpDB {
 
     /**
      * NEU: Creates initial users for the login system
+     * @param connection The DB connection to use.
      */
-    private static void setUpUsers() {
-        Connection connection = ConnectionBuilder.getConnection();
+    private static void setUpUsers(Connection connection) {
         try {
             // Standard Admin-Benutzer erstellen
             String adminUsername = "admin";
@@ -269,8 +255,20 @@ public class SetUpDB {
 
     /**
      * main method to start db setup
+     * @param args Empty for the hard coded test data, or <code>patients caregivers treatments [seed]</code> for
+     *             generated data.
      * */
     public static void main(String[] args) {
-        SetUpDB.setUpDb();
+        if (args.length >= 3) {
+            SetUpDB.generateDb(parseCount(args[0]), parseCount(args[1]), parseCount(args[2]),
+                    args.length > 3 ? Long.parseLong(args[3]) : DataGenerator.DEFAULT_SEED);
+        } else {
+            SetUpDB.setUpDb();
+        }
+        ConnectionBuilder.closeConnection();
+    }
+
+    private static int parseCount(String count) {
+        return Integer.parseInt(count.replace("_", ""));
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package de.hitec.nhplus.utils;
+
+import javafx.fxml.FXMLLoader;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Java Flight Recorder event of loading a view with <code>FXMLLoader.load()</code>, which parses the FXML and runs the
+ * <code>initialize()</code> method of the controller, queries of the database included. The event is off by default
+ * and switched on by the settings of a recording, e.g. <code>doc/nhplus.jfc</code>.
+ */
+@Name("de.hitec.nhplus.ViewLoad")
+@Label("Ansicht laden")
+@Category({"NHPlus", "Oberfläche"})
+@Description("Laden einer FXML-Ansicht samt initialize() ihres Controllers")
+@Enabled(false)
+@StackTrace(false)
+public final class ViewLoadEvent extends Event {
+
+    @Label("Ansicht")
+    @Description("Dateiname der FXML-Datei")
+    String view;
+
+    @Label("Fehlgeschlagen")
+    boolean failed;
+
+    /**
+     * Loads the view of the given loader and records it as event, if the event is enabled.
+     *
+     * @param loader The loader with the location of the view.
+     * @return The root of the loaded view.
+     * @throws IOException If the view could not be loaded.
+     */
+    public static <T> T load(FXMLLoader loader) throws IOException {
+        ViewLoadEvent event = new ViewLoadEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            T root = loader.load();
+            failed = false;
+            return root;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                URL location = loader.getLocation();
+                String path = location == null ? "" : location.getPath();
+                event.view = path.substring(path.lastIndexOf('/') + 1);
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ module de.hitec.nhplus {
 
     requires org.controlsfx.controls;
     requires java.sql;
+    requires java.management;
+    requires jdk.jfr;
     requires org.xerial.sqlitejdbc;
 
     opens de.hitec.nhplus to javafx.fxml;
@@ -13,4 +15,6 @@ module de.hitec.nhplus {
     exports de.hitec.nhplus;
     exports de.hitec.nhplus.controller;
     exports de.hitec.nhplus.model;
+    // The metrics of the DAOs are published as standard MBeans, which JMX reads by reflection.
+    exports de.hitec.nhplus.datastorage to java.management;
 }
\ No newline at end of file
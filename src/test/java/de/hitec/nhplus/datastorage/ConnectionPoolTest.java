@@ -0,0 +1,225 @@
+package de.hitec.nhplus.datastorage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the <code>ConnectionPool</code> on a temporary database: parallel readers, readers during a write
+ * transaction, nested transactions and the closed pool. The throughput of parallel readers depends on the machine, so
+ * it is only measured with the tests tagged <code>large</code>.
+ */
+class ConnectionPoolTest {
+
+    private static final int READERS = 4;
+    private static final int ROWS = 10_000;
+    private static final int QUERIES = 4_000;
+
+    @TempDir
+    Path directory;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void openPool() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("pool.db").toString());
+        this.pool = new ConnectionPool(READERS, 8);
+        this.pool.inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, value TEXT)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO item (value) VALUES (?)")) {
+                for (int i = 0; i < ROWS; i++) {
+                    insert.setString(1, "item " + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void closePool() {
+        this.pool.close();
+    }
+
+    @Test
+    void readersHoldConnectionsAtTheSameTime() throws Exception {
+        CyclicBarrier allLeased = new CyclicBarrier(READERS);
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                counts.add(executor.submit(() -> {
+                    Connection connection = this.pool.acquire(false);
+                    try {
+                        // Only passes, if every reader got its own connection, the old shared connection blocked here.
+                        allLeased.await(5, TimeUnit.SECONDS);
+                        return count(connection);
+                    } finally {
+                        this.pool.release(connection);
+                    }
+                }));
+            }
+            for (Future<Long> count : counts) {
+                assertEquals(ROWS, count.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Tag("large")
+    void concurrentReadersIncreaseThroughput() throws Exception {
+        assumeTrue(Runtime.getRuntime().availableProcessors() > 1, "Parallele Leser brauchen mehrere Prozessoren.");
+        double single = queriesPerSecond(1);
+        double parallel = queriesPerSecond(READERS);
+        System.out.printf("ConnectionPool: 1 Leser %.0f Abfragen/s, %d Leser %.0f Abfragen/s, Faktor %.2f%n",
+                single, READERS, parallel, parallel / single);
+        assertTrue(parallel > single, String.format("%d Leser schaffen %.0f Abfragen/s, einer %.0f Abfragen/s.",
+                READERS, parallel, single));
+    }
+
+    @Test
+    void readersAreNotBlockedByWriteTransaction() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch read = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> this.pool.inTransaction(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("INSERT INTO item (value) VALUES ('neu')");
+                }
+                written.countDown();
+                try {
+                    read.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    throw new SQLException(exception);
+                }
+                return null;
+            }));
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            Connection connection = this.pool.acquire(false);
+            try {
+                // The reader sees the last commit, not the open transaction of the writer.
+                assertEquals(ROWS, count(connection));
+            } finally {
+                this.pool.release(connection);
+                read.countDown();
+            }
+            writer.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(ROWS + 1, readCount());
+    }
+
+    @Test
+    void nestedTransactionRollsBackOnlyItsOwnWork() throws SQLException {
+        this.pool.inTransaction(connection -> {
+            insert(connection, "außen");
+            assertThrows(SQLException.class, () -> this.pool.inTransaction(inner -> {
+                insert(inner, "innen");
+                throw new SQLException("innen fehlgeschlagen");
+            }));
+            assertTrue(this.pool.isInTransaction());
+            return null;
+        });
+        assertFalse(this.pool.isInTransaction());
+        assertEquals(ROWS + 1, readCount());
+    }
+
+    @Test
+    void failedTransactionKeepsItsException() {
+        SQLException exception = assertThrows(SQLException.class, () -> this.pool.inTransaction(connection -> {
+            insert(connection, "verworfen");
+            throw new SQLException("Arbeit fehlgeschlagen");
+        }));
+        assertEquals("Arbeit fehlgeschlagen", exception.getMessage());
+        assertFalse(this.pool.isInTransaction());
+    }
+
+    @Test
+    void acquireFailsAfterClose() throws SQLException {
+        Connection connection = this.pool.acquire(false);
+        this.pool.close();
+        assertThrows(SQLException.class, () -> this.pool.acquire(false));
+        this.pool.release(connection);
+    }
+
+    private double queriesPerSecond(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < threads; i++) {
+                readers.add(executor.submit(() -> {
+                    for (int query = 0; query < QUERIES / threads; query++) {
+                        Connection connection = this.pool.acquire(false);
+                        try {
+                            count(connection);
+                        } finally {
+                            this.pool.release(connection);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            return QUERIES / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long readCount() throws SQLException {
+        Connection connection = this.pool.acquire(false);
+        try {
+            return count(connection);
+        } finally {
+            this.pool.release(connection);
+        }
+    }
+
+    private static long count(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM item")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static void insert(Connection connection, String value) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO item (value) VALUES (?)")) {
+            insert.setString(1, value);
+            insert.executeUpdate();
+        }
+    }
+}
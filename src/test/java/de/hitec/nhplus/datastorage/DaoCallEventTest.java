@@ -0,0 +1,71 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests, that a recording of the <code>DaoCallEvent</code> gets the SQL of the calls, although the slow-query log is
+ * off, also for statements prepared before the recording started.
+ */
+class DaoCallEventTest {
+
+    @TempDir
+    Path directory;
+
+    private PatientDao dao;
+    private long pid;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("events.db").toString());
+        DaoFactory factory = DaoFactory.getDaoFactory();
+        factory.clearCaches();
+        this.dao = factory.createPatientDAO();
+        this.pid = this.dao.create(new Patient("Erika", "Mustermann", LocalDate.of(1940, 3, 12), "3", "101")).getPid();
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void recordedCallsContainTheirSql() throws IOException, SQLException {
+        assertFalse(SlowQueryLog.ENABLED);
+        // Prepares the statement, before the recording starts.
+        DaoFactory.getDaoFactory().clearCaches();
+        this.dao.read(this.pid);
+
+        Path file = this.directory.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("de.hitec.nhplus.DaoCall");
+            recording.start();
+            DaoFactory.getDaoFactory().clearCaches();
+            this.dao.read(this.pid);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> reads = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> "PatientDao.read".equals(event.getString("operation")))
+                .toList();
+        assertEquals(1, reads.size());
+        assertTrue(reads.get(0).getString("sql").contains("FROM patient"), reads.get(0).getString("sql"));
+    }
+}
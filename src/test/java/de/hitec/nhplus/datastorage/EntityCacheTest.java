@@ -0,0 +1,113 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.utils.DataGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the cache of the patients: the hits and misses of repeated reads, the latency of reads with and without the
+ * cache, and that edits of read patients do not change the cached ones. The latency depends on the machine, so it is
+ * only measured with the tests tagged <code>large</code>.
+ */
+class EntityCacheTest {
+
+    private static final int PATIENTS = 200;
+    private static final int LOOKUPS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    private long[] pids;
+    private EntityCache<Patient> cache;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("cache.db").toString());
+        DataGenerator generator = new DataGenerator(DataGenerator.DEFAULT_SEED, DataGenerator.DEFAULT_LAST_DAY);
+        this.pids = DaoFactory.getDaoFactory().createPatientDAO().createAll(generator.generatePatients(PATIENTS));
+        this.cache = new EntityCache<>(PATIENTS, PatientDao::copyOf);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void repeatedReadsAreHits() throws SQLException {
+        PatientDao dao = new PatientDao(ConnectionBuilder.getPool(), this.cache);
+        for (int round = 0; round < 3; round++) {
+            for (long pid : this.pids) {
+                dao.read(pid);
+            }
+        }
+        assertEquals(PATIENTS, this.cache.getMisses());
+        assertEquals(2 * PATIENTS, this.cache.getHits());
+        dao.update(dao.read(this.pids[0]));
+        dao.read(this.pids[0]);
+        assertEquals(PATIENTS + 1, this.cache.getMisses());
+    }
+
+    @Test
+    @Tag("large")
+    void cachedReadsAreFaster() throws SQLException {
+        long[] uncached = lookUp(new PatientDao(ConnectionBuilder.getPool(), null));
+        long[] cached = lookUp(new PatientDao(ConnectionBuilder.getPool(), this.cache));
+        System.out.printf("PatientDao.read(): ohne Cache p50 %.1f µs, p99 %.1f µs; mit Cache p50 %.1f µs, "
+                        + "p99 %.1f µs; %s%n", percentile(uncached, 0.50), percentile(uncached, 0.99),
+                percentile(cached, 0.50), percentile(cached, 0.99), this.cache);
+        assertTrue(percentile(cached, 0.50) < percentile(uncached, 0.50));
+        assertEquals(PATIENTS, this.cache.getMisses());
+    }
+
+    @Test
+    void editsOfReadPatientsDoNotChangeTheCache() throws SQLException {
+        PatientDao dao = new PatientDao(ConnectionBuilder.getPool(), this.cache);
+        Patient first = dao.read(this.pids[0]);
+        String roomNumber = first.getRoomNumber();
+        first.setRoomNumber("geändert");
+        Patient second = dao.read(this.pids[0]);
+        assertNotSame(first, second);
+        assertEquals(roomNumber, second.getRoomNumber());
+
+        for (Patient patient : dao.readAll()) {
+            patient.setSurname("geändert");
+        }
+        assertEquals(1, this.cache.getHits());
+        assertNotEquals("geändert", dao.read(this.pids[1]).getSurname());
+    }
+
+    /**
+     * Reads random patients and returns the sorted latencies of the reads.
+     */
+    private long[] lookUp(PatientDao dao) throws SQLException {
+        SplittableRandom random = new SplittableRandom(DataGenerator.DEFAULT_SEED);
+        long[] latencies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long pid = this.pids[random.nextInt(PATIENTS)];
+            long start = System.nanoTime();
+            dao.read(pid);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)] / 1e3;
+    }
+}
@@ -0,0 +1,62 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.utils.DataGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Temporary database with a treatment history of 1,000,000 rows for the tests, which check the behaviour on a large
+ * database. It is seeded by <code>DataGenerator</code> on first use and shared by all tests of the run, because seeding
+ * takes several seconds. The file is deleted, when the JVM exits.
+ */
+final class LargeDatabase {
+
+    static final int TREATMENTS = 1_000_000;
+
+    private static Path file;
+
+    private LargeDatabase() {
+    }
+
+    /**
+     * Switches the <code>ConnectionBuilder</code> to the large database and seeds it, if this is the first use.
+     *
+     * @return The factory of the DAOs on the large database.
+     */
+    static synchronized DaoFactory open() throws IOException, SQLException {
+        boolean seeded = file != null;
+        if (!seeded) {
+            file = Files.createTempFile("nhplus-large-", ".db");
+            file.toFile().deleteOnExit();
+            Path.of(file + "-wal").toFile().deleteOnExit();
+            Path.of(file + "-shm").toFile().deleteOnExit();
+        }
+        ConnectionBuilder.setDatabasePath(file.toString());
+        DaoFactory factory = DaoFactory.getDaoFactory();
+        factory.clearCaches();
+        if (!seeded) {
+            factory.inTransaction(daos -> {
+                DataGenerator generator = new DataGenerator(DataGenerator.DEFAULT_SEED, DataGenerator.DEFAULT_LAST_DAY);
+                List<Patient> patients = generator.generatePatients(TREATMENTS / 100);
+                long[] pids = daos.createPatientDAO().createAll(patients);
+                long[] cids = daos.createCareGiverDAO().createAll(generator.generateCareGivers(TREATMENTS / 1000));
+                daos.createTreatmentDao().createAll(
+                        generator.generateTreatments(TREATMENTS, DataGenerator.owners(patients, pids, cids)));
+                return null;
+            });
+        }
+        return factory;
+    }
+
+    /**
+     * Closes the pool of the large database, so the next test can switch to its own database.
+     */
+    static void close() {
+        ConnectionBuilder.closeConnection();
+    }
+}
@@ -0,0 +1,125 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the <code>MutationQueue</code>: how long the calling thread, in the application the JavaFX Application Thread,
+ * is stalled by quick edits with and without the queue, and that a failing mutation does not stop the writer.
+ */
+class MutationQueueTest {
+
+    private static final int PATIENTS = 20;
+    private static final int EDITS = 500;
+
+    @TempDir
+    Path directory;
+
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    private MutationQueue queue;
+    private PatientDao dao;
+    private List<Patient> patients;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("mutations.db").toString());
+        DaoFactory.getDaoFactory().clearCaches();
+        this.dao = DaoFactory.getDaoFactory().createPatientDAO();
+        for (int i = 0; i < PATIENTS; i++) {
+            this.dao.create(new Patient("Erika", "Muster" + i, LocalDate.of(1940, 1, 1), "2", "10" + i));
+        }
+        this.patients = this.dao.readAll();
+        this.queue = new MutationQueue(Runnable::run, this.failures::add);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        this.queue.shutdown(10_000);
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void queuedEditsStallTheCallerLessThanDirectUpdates() throws Exception {
+        long[] direct = new long[EDITS];
+        for (int i = 0; i < EDITS; i++) {
+            Patient patient = edit(i);
+            long start = System.nanoTime();
+            this.dao.update(patient);
+            direct[i] = System.nanoTime() - start;
+        }
+        long[] queued = new long[EDITS];
+        CompletableFuture<?> last = null;
+        for (int i = 0; i < EDITS; i++) {
+            Patient patient = edit(i);
+            long start = System.nanoTime();
+            last = this.queue.update(this.dao, patient, patient.getPid());
+            queued[i] = System.nanoTime() - start;
+        }
+        last.get(10, TimeUnit.SECONDS);
+        DaoFactory.getDaoFactory().clearCaches();
+        assertEquals(String.valueOf(EDITS - 1), this.dao.read(this.patients.get((EDITS - 1) % PATIENTS).getPid())
+                .getRoomNumber());
+        Arrays.sort(direct);
+        Arrays.sort(queued);
+        System.out.printf("Bearbeitung einer Zelle: direkt Median %.1f µs, höchstens %.1f µs; "
+                        + "Warteschlange Median %.1f µs, höchstens %.1f µs%n",
+                direct[EDITS / 2] / 1e3, direct[EDITS - 1] / 1e3, queued[EDITS / 2] / 1e3, queued[EDITS - 1] / 1e3);
+        assertTrue(queued[EDITS / 2] < direct[EDITS / 2]);
+        assertTrue(this.failures.isEmpty());
+    }
+
+    @Test
+    void writerKeepsRunningAfterAnError() throws Exception {
+        CompletableFuture<Object> failed = this.queue.inTransaction(daos -> {
+            throw new StackOverflowError("Test");
+        });
+        Patient patient = edit(0);
+        CompletableFuture<Void> next = this.queue.update(this.dao, patient, patient.getPid());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, exception.getCause());
+        next.get(10, TimeUnit.SECONDS);
+        assertEquals(1, this.failures.size());
+        DaoFactory.getDaoFactory().clearCaches();
+        assertEquals(patient.getRoomNumber(), this.dao.read(patient.getPid()).getRoomNumber());
+    }
+
+    @Test
+    void failedMutationFailsOnlyItsFuture() throws Exception {
+        CompletableFuture<Void> failed = this.queue.inTransaction(daos -> {
+            throw new SQLException("Test");
+        });
+        CompletableFuture<Void> next = this.queue.deleteById(this.dao, this.patients.get(0).getPid());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, exception.getCause());
+        next.get(10, TimeUnit.SECONDS);
+        assertEquals(PATIENTS - 1, this.dao.readAll().size());
+    }
+
+    /**
+     * Edits the room number of a patient, like a cell edit in the table of patients, and returns the copy, which the
+     * table queues, so later edits of the shown patient do not change an update still waiting in the queue.
+     */
+    private Patient edit(int i) {
+        Patient patient = this.patients.get(i % PATIENTS);
+        patient.setRoomNumber(String.valueOf(i));
+        return PatientDao.copyOf(patient);
+    }
+}
@@ -0,0 +1,119 @@
+package de.hitec.nhplus.datastorage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every filtered query of the DAOs on a migrated database and checks with <code>EXPLAIN QUERY PLAN</code>, that
+ * none of them scans a whole table. The pool has a single reader and caches enough statements to keep the SQL of
+ * every query run.
+ */
+class QueryPlanTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+
+    @TempDir
+    Path directory;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void migrate() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("plan.db").toString());
+        this.pool = new ConnectionPool(1, 64);
+        new SchemaMigrator().migrate(this.pool);
+    }
+
+    @AfterEach
+    void closePool() {
+        this.pool.close();
+    }
+
+    @Test
+    void daoQueriesSearchIndexes() throws SQLException {
+        runDaoQueries();
+        Set<String> queries = new LinkedHashSet<>();
+        queries.addAll(cachedSql(false));
+        queries.addAll(cachedSql(true));
+        List<String> scans = new ArrayList<>();
+        int filtered = 0;
+        Connection connection = this.pool.acquire(false);
+        try {
+            for (String sql : queries) {
+                if (sql.contains(" WHERE ")) {
+                    filtered++;
+                }
+                for (String scan : QueryPlan.findScans(connection, sql)) {
+                    scans.add(scan + ": " + sql);
+                }
+            }
+        } finally {
+            this.pool.release(connection);
+        }
+        System.out.printf("EXPLAIN QUERY PLAN: %d Abfragen geprüft, %d durchsuchen die ganze Tabelle%n",
+                filtered, scans.size());
+        assertTrue(filtered >= 15, "Es wurden nur " + filtered + " Abfragen geprüft.");
+        assertEquals(List.of(), scans);
+    }
+
+    @Test
+    void scanOfUnindexedColumnIsFound() throws SQLException {
+        Connection connection = this.pool.acquire(false);
+        try {
+            assertFalse(QueryPlan.findScans(connection, "SELECT * FROM patient WHERE surname = ?").isEmpty());
+            assertTrue(QueryPlan.findScans(connection, "SELECT * FROM patient").isEmpty());
+        } finally {
+            this.pool.release(connection);
+        }
+    }
+
+    private void runDaoQueries() throws SQLException {
+        TreatmentDao treatments = new TreatmentDao(this.pool);
+        treatments.read(1);
+        treatments.readTreatmentsByPid(1);
+        try (Stream<?> stream = treatments.streamByPid(1)) {
+            stream.count();
+        }
+        treatments.readPage(0, 100);
+        treatments.readPageByPid(1, DAY, 0, 100);
+        treatments.readRowPage(0, 100);
+        treatments.readRowPageByPid(1, DAY, 0, 100);
+        treatments.search("Iberogast", 100);
+        treatments.readByDateRange(DAY, DAY.plusDays(30));
+        treatments.readByCaregiverAndRange(1, DAY, DAY.plusDays(30));
+        treatments.readByPids(List.of(1L, 2L));
+        treatments.readByCaregiverIds(List.of(1L, 2L));
+        new PatientDao(this.pool, null).read(1);
+        new CareGiverDao(this.pool, null).read(1);
+        UserDao users = new UserDao(this.pool);
+        users.read(1);
+        users.findByUsername("admin");
+        users.usernameExists("admin");
+        users.readAllActive();
+    }
+
+    private List<String> cachedSql(boolean write) throws SQLException {
+        Connection connection = this.pool.acquire(write);
+        try {
+            return this.pool.getStatementCache(connection).getCachedSql();
+        } finally {
+            this.pool.release(connection);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the loads and reloads of the <code>ScheduleIndex</code>: a reload picks up treatments changed elsewhere, both
+ * keep changes made while they were read, and months are read before a treatment in them is checked.
+ */
+class ScheduleIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    @TempDir
+    Path directory;
+
+    private TreatmentDao dao;
+    private ScheduleIndex index;
+    private long pid;
+    private long cid;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("schedule.db").toString());
+        DaoFactory factory = DaoFactory.getDaoFactory();
+        factory.clearCaches();
+        this.pid = factory.createPatientDAO().create(
+                new Patient("Erika", "Mustermann", LocalDate.of(1940, 3, 12), "3", "101")).getPid();
+        this.cid = factory.createCareGiverDAO().create(new CareGiver("Berta", "Brandt", "0171 123456")).getCid();
+        this.dao = factory.createTreatmentDao();
+        this.index = new ScheduleIndex(this.dao);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void reloadPicksUpChangesMadeElsewhere() throws SQLException {
+        Treatment deleted = create(9);
+        load();
+        assertEquals(List.of(deleted.getTid()), conflictsAt(9));
+        this.dao.deleteById(deleted.getTid());
+        Treatment added = create(14);
+
+        ScheduleIndex.Reload reload = this.index.prepareReload();
+        reload.read();
+        this.index.apply(reload);
+        assertEquals(List.of(), conflictsAt(9));
+        assertEquals(List.of(added.getTid()), conflictsAt(14));
+    }
+
+    @Test
+    void changeWhileReadingIsKept() throws SQLException {
+        Treatment treatment = create(9);
+        load();
+        ScheduleIndex.Reload reload = this.index.prepareReload();
+        reload.read();
+        Treatment moved = new Treatment(treatment.getTid(), this.pid, this.cid, DAY, LocalTime.of(15, 0),
+                LocalTime.of(15, 30), "Waschen", "");
+        this.dao.update(moved);
+        this.index.put(moved);
+
+        this.index.apply(reload);
+        assertEquals(List.of(), conflictsAt(9));
+        assertEquals(List.of(treatment.getTid()), conflictsAt(15));
+    }
+
+    @Test
+    void preloadedMonthNeedsNoQuery() throws SQLException {
+        Treatment treatment = create(9);
+        ScheduleIndex.Reload reload = this.index.prepareReload(YearMonth.from(DAY));
+        reload.read();
+        this.index.apply(reload);
+        // Deleted directly, so only the preloaded index still knows the treatment.
+        this.dao.deleteById(treatment.getTid());
+        assertEquals(List.of(treatment.getTid()), conflictsAt(9));
+    }
+
+    @Test
+    void treatmentPutWhileLoadingIsKept() throws SQLException {
+        ScheduleIndex.Reload load = this.index.prepareLoad(YearMonth.from(DAY));
+        load.read();
+        Treatment treatment = create(9);
+        this.index.put(treatment);
+
+        this.index.apply(load);
+        assertEquals(List.of(treatment.getTid()), conflictsAt(9));
+    }
+
+    @Test
+    void monthIsNotReadByACheck() {
+        assertFalse(this.index.isLoaded(YearMonth.from(DAY)));
+        assertThrows(IllegalStateException.class, () -> conflictsAt(9));
+    }
+
+    /**
+     * Reads the month of the treatments into the index.
+     */
+    private void load() throws SQLException {
+        ScheduleIndex.Reload load = this.index.prepareLoad(YearMonth.from(DAY));
+        load.read();
+        this.index.apply(load);
+    }
+
+    private Treatment create(int hour) throws SQLException {
+        return this.dao.create(new Treatment(this.pid, this.cid, DAY, LocalTime.of(hour, 0), LocalTime.of(hour, 30),
+                "Waschen", ""));
+    }
+
+    /**
+     * Returns the IDs of the treatments, which overlap a planned treatment of the patient at the given hour.
+     */
+    private List<Long> conflictsAt(int hour) {
+        Treatment planned = new Treatment(this.pid, this.cid, DAY, LocalTime.of(hour, 10), LocalTime.of(hour, 20),
+                "Geplant", "");
+        return this.index.findConflicts(planned).stream().map(Treatment::getTid).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package de.hitec.nhplus.datastorage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the ranking and the snippets of the full-text search without a database.
+ */
+class SearchRankingTest {
+
+    @Test
+    void wordsIgnoreCaseAndDiacritics() {
+        assertEquals(List.of("ubelkeit", "nach", "gabe", "von", "iberogast", "5", "ml"),
+                SearchRanking.words("Übelkeit nach Gabe von \"Iberogast\" (5 ml)."));
+    }
+
+    @Test
+    void descriptionWeighsMoreThanRemark() {
+        SearchRanking ranking = new SearchRanking(SearchRanking.words("Wunde"), new double[]{1.0}, 2.0, 1.0);
+        List<String[]> matches = List.of(
+                new String[]{"Verband gewechselt.", "Wunde nässt."},
+                new String[]{"Wunde gereinigt.", "Keine Entzündung."},
+                new String[]{"Wunde gereinigt, Wunde neu verbunden.", "Wundheilung gut."});
+        assertArrayEquals(new int[]{2, 1}, ranking.rank(matches, 2));
+    }
+
+    @Test
+    void rareWordWeighsMoreThanFrequentWord() {
+        double frequent = SearchRanking.inverseDocumentFrequency(1_000_000, 480_000);
+        double rare = SearchRanking.inverseDocumentFrequency(1_000_000, 1_000);
+        SearchRanking ranking = new SearchRanking(SearchRanking.words("Patient Tochter"), new double[]{frequent, rare},
+                1.0, 1.0);
+        List<String[]> matches = List.of(
+                new String[]{"Patient gewaschen, Patient gelagert.", "Patient ruhig, Tochter da."},
+                new String[]{"Patient gewaschen.", "Tochter angerufen, Tochter kommt morgen."});
+        assertArrayEquals(new int[]{1, 0}, ranking.rank(matches, 2));
+    }
+
+    @Test
+    void lastWordIsPrefix() {
+        SearchRanking ranking = new SearchRanking(SearchRanking.words("gabe Iber"), new double[]{1.0, 1.0}, 2.0, 1.0);
+        assertEquals("[Gabe] von [Iberogast].", ranking.snippet(new String[]{"Gabe von Iberogast.", ""}));
+    }
+
+    @Test
+    void snippetShowsTheWordsAroundTheMatch() {
+        SearchRanking ranking = new SearchRanking(SearchRanking.words("rollstuhl"), new double[]{1.0}, 2.0, 1.0);
+        String remark = "Nach dem Mittagessen hat die Patientin lange am Fenster gesessen und ist dann "
+                + "im Rollstuhl eingeschlafen, später wieder wach und gesprächig.";
+        assertEquals("…und ist dann im [Rollstuhl] eingeschlafen, später wieder wach und…",
+                ranking.snippet(new String[]{"Spaziergang im Park.", remark}));
+    }
+}
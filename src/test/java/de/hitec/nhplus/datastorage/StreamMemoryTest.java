@@ -0,0 +1,69 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks, that <code>stream()</code> reads a table of 1,000,000 treatments with flat memory: the heap, which is still
+ * in use after a garbage collection, must not grow with the number of rows read so far.
+ */
+@Tag("large")
+class StreamMemoryTest {
+
+    /**
+     * Rows read between two measurements of the heap.
+     */
+    private static final int SAMPLE_INTERVAL = 100_000;
+
+    /**
+     * Maximum growth of the used heap while streaming. All treatments as list take a few hundred MB.
+     */
+    private static final long MAX_GROWTH = 16L * 1024 * 1024;
+
+    private TreatmentDao dao;
+
+    @BeforeEach
+    void openDatabase() throws IOException, SQLException {
+        this.dao = LargeDatabase.open().createTreatmentDao();
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        LargeDatabase.close();
+    }
+
+    @Test
+    void streamKeepsMemoryFlat() throws SQLException {
+        long baseline = usedHeapAfterGc();
+        long peak = baseline;
+        long rows = 0;
+        try (Stream<Treatment> stream = this.dao.stream()) {
+            for (Treatment treatment : (Iterable<Treatment>) stream::iterator) {
+                if (++rows % SAMPLE_INTERVAL == 0) {
+                    peak = Math.max(peak, usedHeapAfterGc());
+                }
+            }
+        }
+        System.out.printf("stream(): %,d Zeilen, Heap vorher %,d KB, höchstens %,d KB%n",
+                rows, baseline / 1024, peak / 1024);
+        assertEquals(LargeDatabase.TREATMENTS, rows);
+        assertTrue(peak - baseline < MAX_GROWTH,
+                "Der Heap ist beim Lesen um " + (peak - baseline) / 1024 + " KB gewachsen.");
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
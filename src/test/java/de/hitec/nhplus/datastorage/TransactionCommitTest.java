@@ -0,0 +1,143 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteCommitListener;
+import org.sqlite.SQLiteConnection;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the commits of a multi-step operation, a new patient with its first treatments, with and without
+ * <code>DaoFactory.inTransaction()</code>, and compares their latency. The latency depends on the machine, so it is
+ * only compared with the tests tagged <code>large</code>.
+ */
+class TransactionCommitTest {
+
+    private static final int TREATMENTS = 10;
+    private static final int REPETITIONS = 200;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger commits = new AtomicInteger();
+    private DaoFactory factory;
+    private long cid;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("transaction.db").toString());
+        this.factory = DaoFactory.getDaoFactory();
+        this.factory.clearCaches();
+        this.cid = this.factory.createCareGiverDAO().create(
+                new CareGiver("Berta", "Brandt", "0171 123456")).getCid();
+        ConnectionPool pool = ConnectionBuilder.getPool();
+        Connection connection = pool.acquire(true);
+        try {
+            connection.unwrap(SQLiteConnection.class).addCommitListener(new SQLiteCommitListener() {
+                @Override
+                public void onCommit() {
+                    TransactionCommitTest.this.commits.incrementAndGet();
+                }
+
+                @Override
+                public void onRollback() {
+                }
+            });
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void separateCallsCommitEveryStep() throws SQLException {
+        this.commits.set(0);
+        createPatientWithTreatments(this.factory);
+        assertEquals(1 + TREATMENTS, this.commits.get());
+    }
+
+    @Test
+    void transactionCommitsOnce() throws SQLException {
+        this.commits.set(0);
+        this.factory.inTransaction(this::createPatientWithTreatments);
+        assertEquals(1, this.commits.get());
+    }
+
+    @Test
+    void failedTransactionCommitsNothing() throws SQLException {
+        this.commits.set(0);
+        long[] pid = new long[1];
+        assertThrows(SQLException.class, () -> this.factory.inTransaction(daos -> {
+            pid[0] = createPatientWithTreatments(daos);
+            throw new SQLException("abgebrochen");
+        }));
+        assertEquals(0, this.commits.get());
+        assertNull(this.factory.createPatientDAO().read(pid[0]));
+    }
+
+    @Test
+    @Tag("large")
+    void transactionReducesLatency() throws SQLException {
+        for (int i = 0; i < REPETITIONS / 10; i++) {
+            createPatientWithTreatments(this.factory);
+            this.factory.inTransaction(this::createPatientWithTreatments);
+        }
+        this.commits.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            createPatientWithTreatments(this.factory);
+        }
+        long separate = System.nanoTime() - start;
+        int separateCommits = this.commits.getAndSet(0);
+        start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            this.factory.inTransaction(this::createPatientWithTreatments);
+        }
+        long together = System.nanoTime() - start;
+        int togetherCommits = this.commits.get();
+        System.out.printf("Patient mit %d Behandlungen: einzeln %d Commits, %.1f µs; "
+                        + "inTransaction %d Commits, %.1f µs%n",
+                TREATMENTS, separateCommits / REPETITIONS, separate / 1e3 / REPETITIONS,
+                togetherCommits / REPETITIONS, together / 1e3 / REPETITIONS);
+        assertEquals(REPETITIONS * (1 + TREATMENTS), separateCommits);
+        assertEquals(REPETITIONS, togetherCommits);
+        assertTrue(together < separate);
+    }
+
+    /**
+     * Creates a patient and its first treatments, each with its own DAO call.
+     *
+     * @return The ID of the patient.
+     */
+    private long createPatientWithTreatments(DaoFactory daos) throws SQLException {
+        long pid = daos.createPatientDAO().create(new Patient("Erika", "Mustermann", LocalDate.of(1940, 3, 12),
+                "3", "101")).getPid();
+        TreatmentDao treatmentDao = daos.createTreatmentDao();
+        for (int i = 0; i < TREATMENTS; i++) {
+            treatmentDao.create(new Treatment(pid, this.cid, LocalDate.of(2025, 1, 1).plusDays(i),
+                    LocalTime.of(8, 0), LocalTime.of(8, 30), "Grundpflege", "ohne Befund"));
+        }
+        return pid;
+    }
+}
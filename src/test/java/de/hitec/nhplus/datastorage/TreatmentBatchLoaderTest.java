@@ -0,0 +1,82 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the loading of the treatments of read patients: the patients of one result share one batch, and treatments
+ * kept for a patient are read again after a write.
+ */
+class TreatmentBatchLoaderTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    @TempDir
+    Path directory;
+
+    private PatientDao patientDao;
+    private TreatmentDao treatmentDao;
+    private OperationMetrics batches;
+    private long first;
+    private long second;
+    private long cid;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("loader.db").toString());
+        DaoFactory factory = DaoFactory.getDaoFactory();
+        factory.clearCaches();
+        this.patientDao = factory.createPatientDAO();
+        this.treatmentDao = factory.createTreatmentDao();
+        this.first = this.patientDao.create(
+                new Patient("Erika", "Mustermann", LocalDate.of(1940, 3, 12), "3", "101")).getPid();
+        this.second = this.patientDao.create(
+                new Patient("Max", "Mustermann", LocalDate.of(1938, 7, 1), "2", "102")).getPid();
+        this.cid = factory.createCareGiverDAO().create(new CareGiver("Berta", "Brandt", "0171 123456")).getCid();
+        create(this.first, 9);
+        create(this.second, 10);
+        this.batches = DaoMetrics.of(TreatmentDao.class).operation("readByPids");
+        this.batches.reset();
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void patientsOfOneResultShareABatch() throws SQLException {
+        List<Patient> patients = this.patientDao.readAll();
+        assertEquals(1, patients.get(0).getTreatments().size());
+        assertEquals(1, patients.get(1).getTreatments().size());
+        assertEquals(1, this.batches.getCalls());
+    }
+
+    @Test
+    void keptTreatmentsAreReadAgainAfterAWrite() throws SQLException {
+        List<Patient> patients = this.patientDao.readAll();
+        patients.get(0).getTreatments().size();
+        create(this.second, 14);
+
+        assertEquals(2, patients.get(1).getTreatments().size());
+        assertEquals(2, this.batches.getCalls());
+    }
+
+    private void create(long pid, int hour) throws SQLException {
+        this.treatmentDao.create(new Treatment(pid, this.cid, DAY, LocalTime.of(hour, 0), LocalTime.of(hour, 30),
+                "Waschen", ""));
+    }
+}
@@ -0,0 +1,78 @@
+package de.hitec.nhplus.datastorage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks, that the search of the treatment view answers within 50 ms on a history of 1,000,000 treatments: for rare
+ * and frequent words, for several words, for the beginning of a word, as while typing, and for a word without its
+ * umlaut.
+ */
+@Tag("large")
+class TreatmentSearchTest {
+
+    private static final long MAX_MILLIS = 50;
+    private static final int LIMIT = 100;
+    private static final int REPETITIONS = 10;
+
+    /**
+     * Rounds over all queries before measuring, until the JIT compiler has compiled the search.
+     */
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static final String[] QUERIES = {
+            "Iberogast", "Waschen", "Patient", "Patient gewendet", "Rollstuhl", "Lymphdrainage", "Wunde Arzt",
+            "Tochter", "Iber", "Schm", "ubungen"
+    };
+
+    private TreatmentDao dao;
+
+    @BeforeEach
+    void openDatabase() throws IOException, SQLException {
+        this.dao = LargeDatabase.open().createTreatmentDao();
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        LargeDatabase.close();
+    }
+
+    @Test
+    void searchAnswersWithin50Milliseconds() throws SQLException {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (String query : QUERIES) {
+                this.dao.search(query, LIMIT);
+            }
+        }
+        List<String> slow = new ArrayList<>();
+        for (String query : QUERIES) {
+            long[] latencies = new long[REPETITIONS];
+            int results = 0;
+            for (int i = 0; i < REPETITIONS; i++) {
+                long start = System.nanoTime();
+                results = this.dao.search(query, LIMIT).getResults().size();
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            double median = latencies[REPETITIONS / 2] / 1e6;
+            System.out.printf("search(\"%s\"): %d Treffer, Median %.1f ms, höchstens %.1f ms%n",
+                    query, results, median, latencies[REPETITIONS - 1] / 1e6);
+            if (median >= MAX_MILLIS) {
+                slow.add(query);
+            }
+            assertFalse(results == 0, "Keine Treffer für \"" + query + "\".");
+        }
+        assertEquals(List.of(), slow);
+    }
+}
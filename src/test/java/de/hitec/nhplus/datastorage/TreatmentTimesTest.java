@@ -0,0 +1,91 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.CareGiver;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the integer columns of the date and times of a treatment: the triggers derive them for treatments written
+ * without the DAO, and the DAO parses the TEXT columns of rows, which have none.
+ */
+class TreatmentTimesTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    @TempDir
+    Path directory;
+
+    private DaoFactory factory;
+    private long pid;
+    private long cid;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        ConnectionBuilder.setDatabasePath(this.directory.resolve("times.db").toString());
+        this.factory = DaoFactory.getDaoFactory();
+        this.factory.clearCaches();
+        this.pid = this.factory.createPatientDAO().create(
+                new Patient("Erika", "Mustermann", LocalDate.of(1940, 3, 12), "3", "101")).getPid();
+        this.cid = this.factory.createCareGiverDAO().create(new CareGiver("Berta", "Brandt", "0171 123456")).getCid();
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        ConnectionBuilder.closeConnection();
+    }
+
+    @Test
+    void triggersDeriveTheIntegerColumns() throws SQLException {
+        long tid = execute("INSERT INTO treatment (pid, caregiver_id, treatment_date, begin, end, description, remark) "
+                + "VALUES (" + this.pid + ", " + this.cid + ", '2025-06-02', '09:15', '09:45', 'Waschen', '')");
+        assertTimes(tid, DAY, LocalTime.of(9, 15), LocalTime.of(9, 45));
+
+        execute("UPDATE treatment SET treatment_date = '2025-06-03', begin = '14:00', end = '14:30' WHERE tid = " + tid);
+        assertTimes(tid, DAY.plusDays(1), LocalTime.of(14, 0), LocalTime.of(14, 30));
+    }
+
+    @Test
+    void missingIntegerColumnsAreParsed() throws SQLException {
+        long tid = this.factory.createTreatmentDao().create(new Treatment(this.pid, this.cid, DAY,
+                LocalTime.of(9, 15), LocalTime.of(9, 45), "Waschen", "")).getTid();
+        // Setting the integer columns does not fire the triggers.
+        execute("UPDATE treatment SET treatment_day = NULL, begin_minute = NULL, end_minute = NULL WHERE tid = " + tid);
+        assertTimes(tid, DAY, LocalTime.of(9, 15), LocalTime.of(9, 45));
+    }
+
+    /**
+     * Executes a write without the DAO and returns the last inserted rowid.
+     */
+    private long execute(String sql) throws SQLException {
+        return ConnectionBuilder.getPool().inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+                try (ResultSet result = statement.executeQuery("SELECT last_insert_rowid()")) {
+                    result.next();
+                    return result.getLong(1);
+                }
+            }
+        });
+    }
+
+    private void assertTimes(long tid, LocalDate date, LocalTime begin, LocalTime end) throws SQLException {
+        this.factory.clearCaches();
+        Treatment treatment = this.factory.createTreatmentDao().read(tid);
+        assertEquals(date, treatment.getLocalDate());
+        assertEquals(begin, treatment.getLocalBegin());
+        assertEquals(end, treatment.getLocalEnd());
+    }
+}